@@ -0,0 +1,162 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.MaterialCondition;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput benchmarks for the expression pipeline: lexing and parsing without caches, direct
+ * interpretation of parsed trees, and {@link ExpressionEngine#evaluate(String, Map)} with warm and
+ * missing result cache entries. Run with the {@code jmh} profile, which enables the gc profiler to
+ * report the allocation rate next to ops/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionEngineBenchmark {
+
+    static final Map<String, List<String>> CORPORA = Map.of(
+            "conditional", List.of(
+                    "if level > 50: 'veteran' elif level > 10: 'regular' else: 'newbie'",
+                    "rank == 'admin' ? 'Administrator' : 'Player'",
+                    "if kills > 100 && level > 20: 'hunter' elif kills > 10 || rank == 'mod': 'fighter' else: 'peaceful'",
+                    "!(level < 5) && balance >= 100"
+            ),
+            "math", List.of(
+                    "(level * 2 + kills) / 3",
+                    "balance * 1.05 - kills % 7",
+                    "-(level - kills) * 2.5 + 10",
+                    "level * level + kills * kills - balance / 4"
+            ),
+            "functions", List.of(
+                    "add(level, kills) * 2",
+                    "Out<double>(balance / 2)",
+                    "add(add(level, 1), kills)",
+                    "'Level ' + add(level, 1)"
+            )
+    );
+
+    static final List<String> MATERIAL_CORPUS = List.of(
+            "if level > 50: 'HEAD(Notch)' elif level > 10: 'HEAD_TEXTURE(eyJ0ZXh0dXJlcyI6e319)' else: Out<Material>(STONE)",
+            "if rank == 'admin': Out<Material>(DIAMOND_BLOCK) else: Out<Material>(DIRT)",
+            "if kills > 10: 'HEAD_OBJECT(WORLD)' else: Out<Material>(BARRIER)"
+    );
+
+    static Map<String, Object> variables(int level) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("level", level);
+        variables.put("kills", 42);
+        variables.put("balance", 1250.5);
+        variables.put("rank", "mod");
+        return variables;
+    }
+
+    @State(Scope.Thread)
+    public static class CorpusState {
+        @Param({"conditional", "math", "functions"})
+        public String corpus;
+
+        ExpressionEngine engine;
+        String[] expressions;
+        Parser.Expression[] trees;
+        Map<String, Object> fixedVariables;
+        int next;
+        int level;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            engine = new ExpressionEngine();
+            expressions = CORPORA.get(corpus).toArray(new String[0]);
+            trees = new Parser.Expression[expressions.length];
+            for (int i = 0; i < expressions.length; i++) {
+                trees[i] = new Parser(new Lexer(expressions[i]).scanTokens()).parse();
+            }
+            fixedVariables = variables(30);
+            fixedVariables.forEach(engine::setVariable);
+            // Fill the parse and result caches for the fixed variables
+            for (String expression : expressions) {
+                engine.evaluate(expression, fixedVariables);
+            }
+        }
+
+        int nextIndex() {
+            int index = next;
+            next = index + 1 == expressions.length ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MaterialState {
+        ExpressionEngine engine;
+        String[] expressions;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            engine = new ExpressionEngine();
+            variables(30).forEach(engine::setVariable);
+            expressions = MATERIAL_CORPUS.toArray(new String[0]);
+        }
+    }
+
+    /**
+     * Lexes and parses an expression from scratch, as on a parse cache miss.
+     */
+    @Benchmark
+    public Parser.Expression coldParse(CorpusState state) {
+        return new Parser(new Lexer(state.expressions[state.nextIndex()]).scanTokens()).parse();
+    }
+
+    /**
+     * Interprets an already parsed tree without any engine caching.
+     */
+    @Benchmark
+    public Object interpret(CorpusState state) {
+        return state.engine.getInterpreter().interpret(state.trees[state.nextIndex()]);
+    }
+
+    /**
+     * Evaluates with variables that were seen before, so both parse and result cache hit.
+     */
+    @Benchmark
+    public Object warmCacheHit(CorpusState state) {
+        return state.engine.evaluate(state.expressions[state.nextIndex()], state.fixedVariables);
+    }
+
+    /**
+     * Evaluates with a new variable value every call: the parse cache hits, the result cache misses.
+     */
+    @Benchmark
+    public Object cacheMissEvaluate(CorpusState state) {
+        return state.engine.evaluate(state.expressions[state.nextIndex()], variables(++state.level));
+    }
+
+    /**
+     * Resolves conditional material and head expressions as used by item definitions.
+     */
+    @Benchmark
+    public MaterialCondition materialCondition(MaterialState state) {
+        String expression = state.expressions[state.next];
+        state.next = (state.next + 1) % state.expressions.length;
+        return state.engine.parse(expression, Material.BARRIER);
+    }
+}
@@ -5,6 +5,8 @@ package de.happybavarian07.coolstufflib;/*
 
 import de.happybavarian07.coolstufflib.commandmanagement.CommandManagerRegistry;
 import de.happybavarian07.coolstufflib.languagemanager.LanguageManager;
+import de.happybavarian07.coolstufflib.languagemanager.PlaceholderAPIListener;
+import de.happybavarian07.coolstufflib.languagemanager.PlayerLanguageListener;
 import de.happybavarian07.coolstufflib.menusystem.MenuAddonManager;
 import de.happybavarian07.coolstufflib.menusystem.MenuListener;
 import de.happybavarian07.coolstufflib.menusystem.PlayerMenuUtility;
@@ -130,7 +132,7 @@ public class CoolStuffLib {
      * <ul>
      *   <li>Enables LanguageManager, CommandManagerRegistry, and MenuAddonManager if present</li>
      *   <li>Checks for PlaceholderAPI and sets internal state</li>
-     *   <li>Registers MenuListener events</li>
+     *   <li>Registers MenuListener events, the PluginDisableListener, the PlayerLanguageListener and, with PlaceholderAPI, the PlaceholderAPIListener</li>
      * </ul>
      * <pre><code>
      * coolStuffLib.setup();
@@ -170,6 +172,31 @@ public class CoolStuffLib {
             pluginFileLogger.createLogFile();
         }
         Bukkit.getPluginManager().registerEvents(new MenuListener(), javaPluginUsingLib);
+        Bukkit.getPluginManager().registerEvents(new PluginDisableListener(this, javaPluginUsingLib), javaPluginUsingLib);
+        if (languageManager != null) {
+            Bukkit.getPluginManager().registerEvents(new PlayerLanguageListener(languageManager), javaPluginUsingLib);
+        }
+        if (languageManager != null && placeholderAPIEnabled) {
+            Bukkit.getPluginManager().registerEvents(new PlaceholderAPIListener(languageManager), javaPluginUsingLib);
+        }
+    }
+
+    /**
+     * Stops the background work of the lib and writes pending data to disk, e.g. the languages
+     * of the {@link de.happybavarian07.coolstufflib.languagemanager.PerPlayerLanguageHandler}
+     * and the language file watcher.
+     * Called by the {@link PluginDisableListener} when the plugin using the lib is disabled;
+     * calling it again, e.g. from {@code onDisable}, does nothing.
+     * <pre><code>
+     * coolStuffLib.shutdown();
+     * </code></pre>
+     */
+    public void shutdown() {
+        if (languageManager == null) return;
+        languageManager.stopFileWatcher();
+        if (languageManager.getPLHandler() != null) {
+            languageManager.getPLHandler().close();
+        }
     }
 
     public LanguageManager getLanguageManager() {
@@ -0,0 +1,29 @@
+package de.happybavarian07.coolstufflib;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Calls {@link CoolStuffLib#shutdown()} when the plugin using the lib is disabled, so that
+ * pending data like the player languages is written even if the plugin never calls it itself.
+ * Registered by {@link CoolStuffLib#setup()}.
+ */
+public class PluginDisableListener implements Listener {
+    private final CoolStuffLib lib;
+    private final Plugin plugin;
+
+    public PluginDisableListener(CoolStuffLib lib, Plugin plugin) {
+        this.lib = lib;
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        if (event.getPlugin() == plugin) {
+            lib.shutdown();
+        }
+    }
+}
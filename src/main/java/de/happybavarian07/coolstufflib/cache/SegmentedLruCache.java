@@ -0,0 +1,262 @@
+package de.happybavarian07.coolstufflib.cache;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A size- and time-bounded cache using a segmented LRU eviction policy.
+ * <p>
+ * Unlike {@link InMemoryCache}, which rejects new entries when it is full, this cache always accepts
+ * new entries and evicts old ones instead.
+ * </p>
+ * <p>
+ * New entries are placed in a small probationary segment. An entry that is read again while on
+ * probation is promoted to the protected segment, which holds the remaining capacity. When the
+ * protected segment is full its least recently used entry is demoted back to probation, and when
+ * the whole cache is full the least recently used probationary entry is evicted. Entries that
+ * are only ever written once therefore cannot push frequently read entries out of the cache.
+ * </p>
+ * <p>
+ * Optionally, entries expire a fixed time after they were written. Hit, miss and eviction counts
+ * are tracked for monitoring. All operations are synchronized, so the cache can be shared between
+ * threads.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SegmentedLruCache<K, V> implements Cache<K, V> {
+    private final int maxSize;
+    private final int protectedMaxSize;
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+    private final LinkedHashMap<K, Entry<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache without time-based expiry.
+     *
+     * @param maxSize the maximum number of entries
+     */
+    public SegmentedLruCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * Creates a cache whose entries expire a fixed time after they were written.
+     *
+     * @param maxSize                the maximum number of entries
+     * @param expireAfterWriteMillis the lifetime of an entry in milliseconds, or 0 for no expiry
+     */
+    public SegmentedLruCache(int maxSize, long expireAfterWriteMillis) {
+        this(maxSize, expireAfterWriteMillis, System::nanoTime);
+    }
+
+    SegmentedLruCache(int maxSize, long expireAfterWriteMillis, LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        if (expireAfterWriteMillis < 0) {
+            throw new IllegalArgumentException("Expiry must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.protectedMaxSize = maxSize > 1 ? Math.max(1, maxSize * 4 / 5) : 0;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key must not be null");
+        }
+        Entry<V> entry = protectedSegment.get(key);
+        if (entry == null) {
+            entry = probation.get(key);
+            if (entry != null && !isExpired(entry) && protectedMaxSize > 0) {
+                probation.remove(key);
+                protectedSegment.put(key, entry);
+                demoteOverflow();
+            }
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (isExpired(entry)) {
+            removeEntry(key);
+            evictionCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value();
+    }
+
+    @Override
+    public synchronized void put(K key, V value, boolean overwrite) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value must not be null");
+        }
+        Entry<V> existing = protectedSegment.get(key);
+        if (existing == null) {
+            existing = probation.get(key);
+        }
+        if (existing != null && !overwrite && !isExpired(existing)) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, ticker.getAsLong());
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, entry);
+            return;
+        }
+        probation.put(key, entry);
+        evictOverflow();
+    }
+
+    @Override
+    public void put(K key, V value) {
+        put(key, value, true);
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key must not be null");
+        }
+        removeEntry(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    @Override
+    public synchronized boolean containsKey(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key must not be null");
+        }
+        Entry<V> entry = protectedSegment.containsKey(key) ? protectedSegment.get(key) : probation.get(key);
+        return entry != null && !isExpired(entry);
+    }
+
+    /**
+     * Removes all expired entries. Expired entries are otherwise only dropped when they are read
+     * or pushed out by newer entries.
+     */
+    public synchronized void cleanUp() {
+        if (expireAfterWriteNanos == 0) {
+            return;
+        }
+        evictionCount += removeExpired(probation) + removeExpired(protectedSegment);
+    }
+
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Copies all entries that have not expired. Taking the snapshot neither counts as a read nor
+     * changes the eviction order.
+     *
+     * @return an unmodifiable copy of the entries
+     */
+    public synchronized Map<K, V> snapshot() {
+        Map<K, V> copy = new LinkedHashMap<>(size());
+        for (Map<K, Entry<V>> segment : List.of(probation, protectedSegment)) {
+            for (Map.Entry<K, Entry<V>> entry : segment.entrySet()) {
+                if (!isExpired(entry.getValue())) {
+                    copy.put(entry.getKey(), entry.getValue().value());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups, or 0 if the cache has not been read yet.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    public synchronized void resetStats() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return expireAfterWriteNanos > 0 && ticker.getAsLong() - entry.writeTime() >= expireAfterWriteNanos;
+    }
+
+    private void removeEntry(K key) {
+        if (protectedSegment.remove(key) == null) {
+            probation.remove(key);
+        }
+    }
+
+    private void demoteOverflow() {
+        while (protectedSegment.size() > protectedMaxSize) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = protectedSegment.entrySet().iterator();
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            probation.put(eldest.getKey(), eldest.getValue());
+        }
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        while (size() > maxSize) {
+            LinkedHashMap<K, Entry<V>> segment = probation.isEmpty() ? protectedSegment : probation;
+            Iterator<Map.Entry<K, Entry<V>>> iterator = segment.entrySet().iterator();
+            iterator.next();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private int removeExpired(LinkedHashMap<K, Entry<V>> segment) {
+        int removed = 0;
+        Iterator<Entry<V>> iterator = segment.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private record Entry<V>(V value, long writeTime) {
+    }
+}
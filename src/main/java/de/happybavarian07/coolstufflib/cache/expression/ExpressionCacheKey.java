@@ -8,11 +8,34 @@ public class ExpressionCacheKey {
     private final String expression;
     private final int variableStateHash;
     private final String[] relevantVariables;
+    private final Object[] variableValues;
 
+    /**
+     * Creates a key that only knows the hash of the variable values. Two such keys are equal if
+     * their hashes are, so values with colliding hashes share a key; prefer
+     * {@link #ExpressionCacheKey(String, String[], Object[])}.
+     */
     public ExpressionCacheKey(String expression, int variableStateHash, String[] relevantVariables) {
         this.expression = expression;
         this.variableStateHash = variableStateHash;
         this.relevantVariables = relevantVariables != null ? relevantVariables : new String[0];
+        this.variableValues = null;
+    }
+
+    /**
+     * Creates a key for an expression evaluated with the given values of its variables. Keys
+     * are only equal if the values are, the hash of the values is only used for
+     * {@link #hashCode()}.
+     *
+     * @param expression        The expression
+     * @param relevantVariables The names of the variables the expression reads
+     * @param variableValues    The values of those variables, in the same order
+     */
+    public ExpressionCacheKey(String expression, String[] relevantVariables, Object[] variableValues) {
+        this.expression = expression;
+        this.relevantVariables = relevantVariables != null ? relevantVariables : new String[0];
+        this.variableValues = variableValues != null ? variableValues : new Object[0];
+        this.variableStateHash = Arrays.hashCode(this.variableValues);
     }
 
     public ExpressionCacheKey(String expression, Map<String, Object> variables) {
@@ -20,16 +43,16 @@ public class ExpressionCacheKey {
         if (variables == null || variables.isEmpty()) {
             this.variableStateHash = 0;
             this.relevantVariables = new String[0];
+            this.variableValues = new Object[0];
         } else {
             this.relevantVariables = variables.keySet().toArray(new String[0]);
             Arrays.sort(this.relevantVariables);
 
-            int hash = 1;
-            for (String var : this.relevantVariables) {
-                Object value = variables.get(var);
-                hash = 31 * hash + (value != null ? value.hashCode() : 0);
+            this.variableValues = new Object[this.relevantVariables.length];
+            for (int i = 0; i < this.relevantVariables.length; i++) {
+                this.variableValues[i] = variables.get(this.relevantVariables[i]);
             }
-            this.variableStateHash = hash;
+            this.variableStateHash = Arrays.hashCode(this.variableValues);
         }
     }
 
@@ -40,7 +63,8 @@ public class ExpressionCacheKey {
         ExpressionCacheKey that = (ExpressionCacheKey) o;
         return variableStateHash == that.variableStateHash &&
                 Objects.equals(expression, that.expression) &&
-                Arrays.equals(relevantVariables, that.relevantVariables);
+                Arrays.equals(relevantVariables, that.relevantVariables) &&
+                Arrays.equals(variableValues, that.variableValues);
     }
 
     @Override
@@ -6,6 +6,7 @@ package de.happybavarian07.coolstufflib.commandmanagement;/*
 import de.happybavarian07.coolstufflib.CoolStuffLib;
 import de.happybavarian07.coolstufflib.languagemanager.LanguageManager;
 import de.happybavarian07.coolstufflib.languagemanager.Placeholder;
+import de.happybavarian07.coolstufflib.languagemanager.PlaceholderContext;
 import de.happybavarian07.coolstufflib.languagemanager.PlaceholderType;
 import de.happybavarian07.coolstufflib.utils.CardboardCommandGuard;
 import de.happybavarian07.coolstufflib.utils.LogPrefix;
@@ -122,8 +123,8 @@ public abstract class CommandManager {
             if (target.allowOnlySubCommandArgsThatFitToSubArgs()) {
                 Map<Integer, String> invalidArgs = findInvalidArgs(updatedArgs, target, (sender instanceof Player) ? 1 : 0);
                 if (!invalidArgs.isEmpty()) {
-                    lgm.addPlaceholder(PlaceholderType.MESSAGE, "%invalidArgs%", invalidArgs.toString(), false);
-                    sender.sendMessage(format(lgm.getMessage("Player.Commands.CommandContainsInvalidArgs", getPlayerForSender(sender), true), target));
+                    PlaceholderContext context = PlaceholderContext.of("%invalidArgs%", invalidArgs.toString());
+                    sender.sendMessage(format(lgm.getMessage("Player.Commands.CommandContainsInvalidArgs", getPlayerForSender(sender), context), target));
                     return false;
                 }
             }
@@ -134,9 +135,9 @@ public abstract class CommandManager {
                     sender.sendMessage(format(lgm.getMessage("Player.Commands.UsageMessage", getPlayerForSender(sender), true), target));
                 }
             } catch (Exception e) {
-                lgm.addPlaceholder(PlaceholderType.MESSAGE, "%error%", e + ": " + e.getMessage(), false);
-                lgm.addPlaceholder(PlaceholderType.MESSAGE, "%stacktrace%", Arrays.toString(e.getStackTrace()), false);
-                sender.sendMessage(format(lgm.getMessage("Player.Commands.ErrorPerformingSubCommand", getPlayerForSender(sender), true), target));
+                PlaceholderContext context = PlaceholderContext.of("%error%", e + ": " + e.getMessage())
+                        .with("%stacktrace%", Arrays.toString(e.getStackTrace()));
+                sender.sendMessage(format(lgm.getMessage("Player.Commands.ErrorPerformingSubCommand", getPlayerForSender(sender), context), target));
                 String stacktraceWithLineBreaks = Arrays.toString(e.getStackTrace()).replace(", ", "\n");
                 coolStuffLib.getPluginFileLogger().writeToLog(Level.SEVERE,
                         "Error performing subcommand: " + target.name() +
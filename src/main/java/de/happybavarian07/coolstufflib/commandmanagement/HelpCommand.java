@@ -4,7 +4,7 @@ package de.happybavarian07.coolstufflib.commandmanagement;
  * @Date 05.10.2021 | 17:53
  */
 
-import de.happybavarian07.coolstufflib.languagemanager.PlaceholderType;
+import de.happybavarian07.coolstufflib.languagemanager.PlaceholderContext;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
@@ -35,19 +35,19 @@ public class HelpCommand extends SubCommand {
         }
         try {
             int page = Integer.parseInt(args[0]);
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%page%", page, false);
+            PlaceholderContext context = PlaceholderContext.of("%page%", page);
             if (!messages.containsPage(page)) {
-                player.sendMessage(lgm.getMessage("Player.Commands.HelpPageDoesNotExist", player, true));
+                player.sendMessage(lgm.getMessage("Player.Commands.HelpPageDoesNotExist", player, context));
                 return true;
             }
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%max_page%", messages.getMaxPage(), false);
-            player.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Header", player, false));
+            context = context.with("%max_page%", messages.getMaxPage());
+            player.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Header", player, context));
             for (SubCommand s : messages.getPage(page)) {
                 if (player.hasPermission(s.permissionAsPermission())) {
-                    player.sendMessage(format(lgm.getMessage("Player.Commands.HelpMessages.Format", player, false), s));
+                    player.sendMessage(format(lgm.getMessage("Player.Commands.HelpMessages.Format", player, context), s));
                 }
             }
-            player.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Footer", player, true));
+            player.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Footer", player, context));
         } catch (NumberFormatException e) {
             player.sendMessage(lgm.getMessage("Player.Commands.NotANumber", player, true));
             return true;
@@ -65,19 +65,19 @@ public class HelpCommand extends SubCommand {
         }
         try {
             int page = Integer.parseInt(args[0]);
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%page%", page, false);
+            PlaceholderContext context = PlaceholderContext.of("%page%", page);
             if (!messages.containsPage(page)) {
-                sender.sendMessage(lgm.getMessage("Player.Commands.HelpPageDoesNotExist", null, true));
+                sender.sendMessage(lgm.getMessage("Player.Commands.HelpPageDoesNotExist", null, context));
                 return true;
             }
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%max_page%", messages.getMaxPage(), false);
-            sender.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Header", null, false));
+            context = context.with("%max_page%", messages.getMaxPage());
+            sender.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Header", null, context));
             for (SubCommand s : messages.getPage(page)) {
                 if (sender.hasPermission(s.permissionAsPermission()) && !s.isPlayerRequired()) {
-                    sender.sendMessage(format(lgm.getMessage("Player.Commands.HelpMessages.Format", null, false), s));
+                    sender.sendMessage(format(lgm.getMessage("Player.Commands.HelpMessages.Format", null, context), s));
                 }
             }
-            sender.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Footer", null, true));
+            sender.sendMessage(lgm.getMessage("Player.Commands.HelpMessages.Footer", null, context));
         } catch (NumberFormatException e) {
             sender.sendMessage(lgm.getMessage("Player.Commands.NotANumber", null, true));
             return true;
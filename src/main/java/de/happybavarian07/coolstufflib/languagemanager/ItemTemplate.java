@@ -0,0 +1,131 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>An item of a language file compiled once, so that {@link LanguageManager#getItem} does not
+ * have to read and parse the configuration on every call.</p>
+ *
+ * <p>If the material does not depend on the player (a plain material name or a fixed head), the
+ * item is built once and kept as a prototype. If in addition the display name and lore contain no
+ * placeholders or expressions, the finished item is kept as well and every call returns a clone
+ * of it. Otherwise only the {@link MessageTemplate}s of the name and lore are rendered for each
+ * call. The prototypes are never handed out directly.</p>
+ */
+final class ItemTemplate {
+    private final String material;
+    private final ItemStack base;
+    private final ItemStack finished;
+    private final MessageTemplate displayName;
+    private final List<MessageTemplate> lore;
+    private final boolean enchanted;
+    private final boolean disabled;
+    private final String staticText;
+
+    ItemTemplate(String material, @Nullable ItemStack base, @Nullable ItemStack finished, MessageTemplate displayName,
+                 List<MessageTemplate> lore, boolean enchanted, boolean disabled) {
+        this.material = material;
+        this.base = base;
+        this.finished = finished;
+        this.displayName = displayName;
+        this.lore = List.copyOf(lore);
+        this.enchanted = enchanted;
+        this.disabled = disabled;
+        StringBuilder text = new StringBuilder(displayName.getSource());
+        for (MessageTemplate line : this.lore) {
+            text.append('\n').append(line.getSource());
+        }
+        this.staticText = text.toString();
+    }
+
+    /**
+     * Checks whether none of the texts of this item contain placeholder slots or expressions.
+     *
+     * @param displayName The display name template
+     * @param lore        The lore templates
+     * @return True if the texts can be used as they are
+     */
+    static boolean isStatic(MessageTemplate displayName, List<MessageTemplate> lore) {
+        if (displayName.isDynamic()) return false;
+        for (MessageTemplate line : lore) {
+            if (line.isDynamic()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a material string can be turned into an item without a player, i.e. it is
+     * the name of an existing material or one of the {@code HEAD_OBJECT(...)},
+     * {@code HEAD_TEXTURE(...)} and {@code HEAD(...)} forms.
+     *
+     * @param material The material string from the language file
+     * @return True if the item of the material is the same for every player
+     */
+    static boolean isStaticMaterial(String material) {
+        if (material == null || material.isEmpty()) return false;
+        if (material.endsWith(")")) {
+            return material.startsWith("HEAD_OBJECT(") || material.startsWith("HEAD_TEXTURE(") || material.startsWith("HEAD(");
+        }
+        return Material.getMaterial(material.toUpperCase(Locale.ROOT)) != null;
+    }
+
+    /**
+     * Returns the material string as written in the language file.
+     *
+     * @return The material string
+     */
+    String getMaterial() {
+        return material;
+    }
+
+    /**
+     * Returns a copy of the item built from the material, without name and lore applied.
+     *
+     * @return The copy, or null if the material depends on the player
+     */
+    @Nullable
+    ItemStack createBase() {
+        return base != null ? base.clone() : null;
+    }
+
+    /**
+     * Returns a copy of the finished item.
+     *
+     * @return The copy, or null if the item has to be rendered for each player
+     */
+    @Nullable
+    ItemStack createFinished() {
+        return finished != null ? finished.clone() : null;
+    }
+
+    /**
+     * Returns the display name and lore of a static item joined by line breaks, for checking
+     * them against placeholders registered without {@code %} delimiters.
+     *
+     * @return The joined text
+     */
+    String getStaticText() {
+        return staticText;
+    }
+
+    MessageTemplate getDisplayName() {
+        return displayName;
+    }
+
+    List<MessageTemplate> getLore() {
+        return lore;
+    }
+
+    boolean isEnchanted() {
+        return enchanted;
+    }
+
+    boolean isDisabled() {
+        return disabled;
+    }
+}
@@ -1,39 +1,88 @@
-// File: `src/main/java/de/happybavarian07/coolstufflib/languagemanager/LanguageCache.java`
 package de.happybavarian07.coolstufflib.languagemanager;
 
-import java.util.HashMap;
+import de.happybavarian07.coolstufflib.cache.SegmentedLruCache;
+
+import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * <p>Caches the values of one language file by their full path, so that lookups do not have to
+ * go through the {@link org.bukkit.configuration.file.FileConfiguration} every time.</p>
+ *
+ * <p>Values are kept in a bounded {@link SegmentedLruCache}: when the capacity is reached, single
+ * entries that were read least recently (and only once) are evicted instead of wiping the whole
+ * cache. The cache is safe to use from several threads and tracks hit, miss and eviction counts.
+ * It is normally filled with {@link #preload(LanguageSnapshot, String...)} when the language
+ * is loaded.</p>
+ *
+ * <p>Compiled text and item templates are kept separately and are not limited by the capacity.
+ * They are only created for paths that exist in the language file, so their number is bounded by
+ * the size of the file; they are dropped when the language is reloaded or unloaded.</p>
+ */
 public class LanguageCache {
+    /**
+     * The number of values a language cache holds unless another capacity is given.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
     private final String languageName;
-    private final Map<String, Object> languageCache;
-    private long lastAccess;
-    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final SegmentedLruCache<String, Object> languageCache;
+    private final Map<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, ItemTemplate> itemTemplates = new ConcurrentHashMap<>();
+    private volatile long lastAccess;
 
     public LanguageCache(String languageName) {
+        this(languageName, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty cache for a language.
+     *
+     * @param languageName The name of the language
+     * @param capacity     The maximum number of values to keep
+     */
+    public LanguageCache(String languageName, int capacity) {
         this.languageName = languageName;
-        this.languageCache = new HashMap<>();
+        this.languageCache = new SegmentedLruCache<>(capacity);
         this.lastAccess = System.currentTimeMillis();
-        setup();
     }
 
+    /**
+     * Does nothing. Values used to be cleared by a shared background task; they are now evicted
+     * one by one when the capacity is reached.
+     *
+     * @deprecated The cache no longer needs to be set up.
+     */
+    @Deprecated
     public void setup() {
-        executor.scheduleAtFixedRate(() -> {
-            if (languageCache.size() > 600 || System.currentTimeMillis() - lastAccess > 600000) {
-                clearCache();
+    }
+
+    /**
+     * Caches all values below the given top-level sections of a language, e.g.
+     * {@code preload(snapshot, "Messages", "Items")}. Existing values are replaced.
+     *
+     * @param snapshot The flattened language configuration
+     * @param sections The names of the top-level sections to cache
+     * @return The number of cached values
+     */
+    public int preload(LanguageSnapshot snapshot, String... sections) {
+        int loaded = 0;
+        for (Map.Entry<String, Object> entry : snapshot.getValues().entrySet()) {
+            for (String section : sections) {
+                String path = entry.getKey();
+                if (path.length() > section.length() && path.charAt(section.length()) == '.' && path.startsWith(section)) {
+                    languageCache.put(path, entry.getValue());
+                    loaded++;
+                    break;
+                }
             }
-        }, 6000, 6000, TimeUnit.MILLISECONDS);
+        }
+        return loaded;
     }
 
     public void addData(String key, Object value, boolean replace) {
-        if (replace) {
-            languageCache.put(key, value);
-        } else {
-            languageCache.putIfAbsent(key, value);
-        }
+        languageCache.put(key, value, replace);
         lastAccess = System.currentTimeMillis();
     }
 
@@ -50,19 +99,123 @@ public class LanguageCache {
         languageCache.remove(key);
     }
 
+    /**
+     * Removes all cached values. Compiled templates are kept; see {@link #clearTemplates()}.
+     */
     public void clearCache() {
         languageCache.clear();
     }
 
+    /**
+     * Gets the compiled template for a text path. Templates are kept until the language is
+     * reloaded; they are not evicted together with the cached values.
+     *
+     * @param path The full path of the text, e.g. {@code Messages.Player.General.Reload}
+     * @return The template, or null if the path has not been compiled
+     */
+    public MessageTemplate getTemplate(String path) {
+        return templates.get(path);
+    }
+
+    public void putTemplate(String path, MessageTemplate template) {
+        templates.put(path, template);
+    }
+
+    public void removeTemplate(String path) {
+        templates.remove(path);
+    }
+
+    /**
+     * Gets the compiled item for a path below {@code Items}.
+     *
+     * @param path The path of the item without the {@code Items.} prefix
+     * @return The item template, or null if the item has not been compiled
+     */
+    ItemTemplate getItemTemplate(String path) {
+        return itemTemplates.get(path);
+    }
+
+    void putItemTemplate(String path, ItemTemplate template) {
+        itemTemplates.put(path, template);
+    }
+
+    /**
+     * Removes the compiled items that contain one of the given paths, e.g. the item
+     * {@code Sword} when {@code Items.Sword.lore} changed.
+     *
+     * @param changedPaths The full paths that changed
+     */
+    void removeItemTemplates(Collection<String> changedPaths) {
+        itemTemplates.keySet().removeIf(itemPath -> {
+            String itemPrefix = "Items." + itemPath;
+            for (String path : changedPaths) {
+                if (path.startsWith(itemPrefix)
+                        && (path.length() == itemPrefix.length() || path.charAt(itemPrefix.length()) == '.')) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Removes all compiled text and item templates.
+     */
+    public void clearTemplates() {
+        templates.clear();
+        itemTemplates.clear();
+    }
+
     public String getLanguageName() {
         return languageName;
     }
 
+    /**
+     * Copies the cached values. Changes to the returned map are not possible, and later changes
+     * to the cache are not reflected in it.
+     *
+     * @return An unmodifiable snapshot of the cached values by path
+     * @deprecated Use {@link #getData(String)} or {@link #containsKey(String)} instead.
+     */
+    @Deprecated
     public Map<String, Object> getLanguageCache() {
-        return languageCache;
+        return languageCache.snapshot();
+    }
+
+    public int size() {
+        return languageCache.size();
+    }
+
+    public int getCapacity() {
+        return languageCache.getMaxSize();
+    }
+
+    public long getHitCount() {
+        return languageCache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return languageCache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return languageCache.getEvictionCount();
+    }
+
+    /**
+     * Returns the ratio of hits to all lookups, or 0 if the cache has not been read yet.
+     *
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        return languageCache.getHitRate();
+    }
+
+    public void resetStats() {
+        languageCache.resetStats();
     }
 
     public long getLastAccess() {
         return lastAccess;
     }
-}
\ No newline at end of file
+}
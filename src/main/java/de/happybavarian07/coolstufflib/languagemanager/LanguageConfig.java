@@ -2,6 +2,7 @@ package de.happybavarian07.coolstufflib.languagemanager;
 
 import de.happybavarian07.coolstufflib.CoolStuffLib;
 import de.happybavarian07.coolstufflib.utils.Utils;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -15,14 +16,14 @@ import java.util.logging.Level;
 public class LanguageConfig {
     private final String langName;
     private File file;
-    private FileConfiguration config;
+    private volatile FileConfiguration config;
     private final String resourceDirectory;
     private final File langFolder;
 
     /**
      * The LanguageConfig function is used to create a new LanguageConfig object.
-     * This function will also save the default language file if it does not exist,
-     * and load the configuration from that file into memory.
+     * This function will also save the default language file if it does not exist.
+     * The configuration is read from that file on the first call to {@link #getConfig()}.
 
      *
      * @param langFile Set the file variable
@@ -38,7 +39,6 @@ public class LanguageConfig {
         this.langFolder = langFolder;
         //System.out.println("Creating Language Config: " + this.langName + "  |  " + this.file);
         saveDefaultConfig();
-        this.config = YamlConfiguration.loadConfiguration(file);
     }
 
     /**
@@ -49,17 +49,60 @@ public class LanguageConfig {
         if (this.file == null)
             this.file = new File(langFolder, this.langName + ".yml");
 
-        this.config = YamlConfiguration.loadConfiguration(this.file);
+        this.config = loadConfig();
+    }
+
+    /**
+     * The loadConfig function reads the config file and its defaults from disk into a new
+     * configuration without replacing the current one, so it can be called off the main thread.
+     * The result is put in use with {@link #setConfig(FileConfiguration)}.
+     *
+     * @return The freshly loaded config
+     */
+    FileConfiguration loadConfig() {
+        YamlConfiguration loaded = YamlConfiguration.loadConfiguration(getSource());
+        setDefaults(loaded);
+        return loaded;
+    }
+
+    /**
+     * The readConfig function reads the config file like {@link #loadConfig()}, but fails
+     * instead of returning an empty config if the file cannot be read or is not valid YAML,
+     * so that a broken file does not replace a working configuration.
+     *
+     * @return The freshly loaded config
+     * @throws IOException If the file cannot be read
+     * @throws InvalidConfigurationException If the file is not valid YAML
+     */
+    FileConfiguration readConfig() throws IOException, InvalidConfigurationException {
+        YamlConfiguration loaded = new YamlConfiguration();
+        loaded.load(getSource());
+        setDefaults(loaded);
+        return loaded;
+    }
 
-        if (Utils.getResource(resourceDirectory + "/" + this.langName + ".yml") != null) {
-            InputStream defaultStream = Utils.getResource(resourceDirectory + "/" + this.langName + ".yml");
-            if (defaultStream != null) {
-                YamlConfiguration defaultConfig = YamlConfiguration.loadConfiguration(new InputStreamReader(defaultStream));
-                this.config.setDefaults(defaultConfig);
-            }
+    private File getSource() {
+        return this.file != null ? this.file : new File(langFolder, this.langName + ".yml");
+    }
+
+    private void setDefaults(YamlConfiguration loaded) {
+        InputStream defaultStream = Utils.getResource(resourceDirectory + "/" + this.langName + ".yml");
+        if (defaultStream != null) {
+            YamlConfiguration defaultConfig = YamlConfiguration.loadConfiguration(new InputStreamReader(defaultStream));
+            loaded.setDefaults(defaultConfig);
         }
     }
 
+    /**
+     * The setConfig function replaces the loaded config in a single write, so readers see
+     * either the old or the new config.
+     *
+     * @param config The config to use from now on
+     */
+    void setConfig(FileConfiguration config) {
+        this.config = config;
+    }
+
     /**
      * The getConfig function is used to get the configuration file for this plugin.
      * If the config file does not exist, it will be created.
@@ -67,10 +110,31 @@ public class LanguageConfig {
      * @return The config file
      */
     public FileConfiguration getConfig() {
-        if (this.config == null)
-            reloadConfig();
+        FileConfiguration current = this.config;
+        if (current == null) {
+            if (this.file == null)
+                this.file = new File(langFolder, this.langName + ".yml");
+            current = loadConfig();
+            this.config = current;
+        }
+        return current;
+    }
 
-        return this.config;
+    /**
+     * The isLoaded function checks whether the config file has been read into memory.
+     *
+     * @return True if the config is loaded
+     */
+    public boolean isLoaded() {
+        return this.config != null;
+    }
+
+    /**
+     * The unload function drops the loaded config from memory. It is read again from disk
+     * on the next call to {@link #getConfig()}.
+     */
+    public void unload() {
+        this.config = null;
     }
 
     /**
@@ -1,5 +1,6 @@
 package de.happybavarian07.coolstufflib.languagemanager;
 
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
@@ -8,6 +9,8 @@ public class LanguageFile {
     private final File langFile;
     private final String langName;
     private final LanguageConfig langConfig;
+    private volatile LanguageSnapshot snapshot;
+    private volatile long lastAccess = System.currentTimeMillis();
 
     /**
      * The LanguageFile function is used to create a new LanguageFile object.
@@ -56,6 +59,71 @@ public class LanguageFile {
         return langConfig;
     }
 
+    /**
+     * The getSnapshot function returns a flattened, immutable copy of the language
+     * configuration. A new snapshot is created when the configuration has been reloaded
+     * since the last call; readers holding the old one are not affected.
+     *
+     * @return The snapshot of the current configuration
+     */
+    public LanguageSnapshot getSnapshot() {
+        FileConfiguration config = langConfig.getConfig();
+        if (config == null) return LanguageSnapshot.empty();
+        LanguageSnapshot current = snapshot;
+        if (current == null || !current.isFrom(config)) {
+            current = LanguageSnapshot.of(config);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * The isLoaded function checks whether the language file has been read into memory.
+     * A new LanguageFile only knows its name and file until it is first used.
+     *
+     * @return True if the language is loaded
+     */
+    public boolean isLoaded() {
+        return langConfig.isLoaded();
+    }
+
+    /**
+     * The unload function drops the loaded configuration and snapshot from memory. They are
+     * read again from disk when the language is used the next time.
+     */
+    public void unload() {
+        langConfig.unload();
+        this.snapshot = null;
+    }
+
+    /**
+     * The touch function records that the language has just been used.
+     */
+    void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * The getLastAccess function returns when the language was used the last time.
+     *
+     * @return The time of the last use in milliseconds
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * The update function puts a configuration that was loaded off the main thread in use,
+     * together with the snapshot that was built from it.
+     *
+     * @param config   The new configuration
+     * @param snapshot The snapshot of the new configuration
+     */
+    void update(FileConfiguration config, LanguageSnapshot snapshot) {
+        langConfig.setConfig(config);
+        this.snapshot = snapshot;
+    }
+
     /**
      * The getFullName function returns the full name of the language.
      *
@@ -0,0 +1,156 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * <p>Watches the language folder of a {@link LanguageManager} and applies edits to a language
+ * file while the server is running, without a full reload. Only the modified file is parsed,
+ * and only the cached values and templates of the paths that changed are replaced; see
+ * {@link LanguageManager#updateLanguageFromFile(String)}.</p>
+ *
+ * <p>Editors often write a file several times when saving, so a file is only read once no
+ * further write to it has happened for a short delay, i.e. once per burst. Files of languages
+ * that are not registered are ignored.</p>
+ *
+ * <pre><code>
+ * languageManager.startFileWatcher();
+ * // in onDisable
+ * languageManager.stopFileWatcher();
+ * </code></pre>
+ */
+public class LanguageFileWatcher {
+    /**
+     * The time in milliseconds after the last write to a file before it is read, unless another
+     * delay is given.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private final LanguageManager lgm;
+    private final File langFolder;
+    private final long debounceMillis;
+    private final ConcurrentMap<String, ScheduledFuture<?>> pendingUpdates = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean closed = false;
+
+    public LanguageFileWatcher(LanguageManager lgm) {
+        this(lgm, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Creates a watcher for the language folder of a LanguageManager. Call {@link #start()} to
+     * begin watching.
+     *
+     * @param lgm            The LanguageManager to update
+     * @param debounceMillis The time after the last write to a file before it is read
+     */
+    public LanguageFileWatcher(LanguageManager lgm, long debounceMillis) {
+        this.lgm = lgm;
+        this.langFolder = lgm.getLangFolder();
+        this.debounceMillis = debounceMillis;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "LanguageFile-Debounce");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts watching the language folder on a background thread.
+     *
+     * @throws IOException If the folder cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (closed) throw new IllegalStateException("The watcher has been closed");
+        if (watchThread != null) return;
+        Path folder = langFolder.toPath();
+        watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watch, "LanguageFile-Watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path path) {
+                        onFileChanged(path.getFileName().toString());
+                    }
+                }
+                if (!key.reset()) {
+                    LanguageManager.getLogger().log(Level.WARNING, "Language folder " + langFolder + " can no longer be watched");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void onFileChanged(String fileName) {
+        if (!fileName.endsWith(".yml")) return;
+        String langName = fileName.substring(0, fileName.length() - ".yml".length());
+        if (lgm.getLang(langName, false) == null) return;
+        pendingUpdates.compute(langName, (name, pending) -> {
+            if (pending != null) pending.cancel(false);
+            try {
+                return scheduler.schedule(() -> update(name), debounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return null;
+            }
+        });
+    }
+
+    private void update(String langName) {
+        pendingUpdates.remove(langName);
+        lgm.updateLanguageFromFile(langName);
+    }
+
+    /**
+     * Checks whether the watcher is running.
+     *
+     * @return True if the language folder is being watched
+     */
+    public boolean isRunning() {
+        return watchThread != null && watchThread.isAlive();
+    }
+
+    /**
+     * Stops watching the language folder. Changes that are still waiting for their delay are
+     * dropped. A closed watcher cannot be started again.
+     */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        scheduler.shutdownNow();
+        pendingUpdates.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LanguageManager.getLogger().log(Level.WARNING, "Could not close the language file watcher", e);
+            }
+        }
+    }
+}
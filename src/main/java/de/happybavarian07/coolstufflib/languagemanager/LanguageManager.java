@@ -1,21 +1,30 @@
 package de.happybavarian07.coolstufflib.languagemanager;
 
+import de.happybavarian07.coolstufflib.CoolStuffLib;
+import de.happybavarian07.coolstufflib.cache.SegmentedLruCache;
 import de.happybavarian07.coolstufflib.configstuff.ConfigUpdater;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionEngine;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionEnginePool;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionTemplate;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.VariableScope;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.conditions.HeadMaterialCondition;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.FunctionCall;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.MaterialCondition;
 import de.happybavarian07.coolstufflib.utils.Head;
 import de.happybavarian07.coolstufflib.utils.Utils;
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.Nullable;
 
@@ -23,27 +32,51 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 
 /**
  * LanguageManager class.
  */
 public class LanguageManager {
+    /**
+     * Maximum number of compiled expression templates kept by {@link #parseEmbeddedExpressions(String, Player, String)}.
+     */
+    public static final int EXPRESSION_TEMPLATE_CACHE_SIZE = 512;
+    /**
+     * Sections whose texts are compiled into {@link MessageTemplate}s when a language is loaded.
+     */
+    private static final String[] TEMPLATE_SECTIONS = {"Messages", "MenuTitles"};
+    /**
+     * Sections whose values are loaded into the {@link LanguageCache} when a language is loaded.
+     */
+    private static final String[] PRELOAD_SECTIONS = {"Messages", "Items", "MenuTitles"};
     private static Logger logger;
     private final JavaPlugin plugin;
     private final File langFolder;
     private final String resourceDirectory;
-    private final Map<String, LanguageFile> registeredLanguages;
-    private final Map<String, Placeholder> placeholders;
+    private final Map<String, LanguageFile> registeredLanguages; // read from login and watcher threads
+    private final List<String> registrationOrder = new CopyOnWriteArrayList<>(); // fallback for setCurrentLang(null)
+    private final PlaceholderMap placeholders;
     private final Map<String, LanguageCache> languageCaches; // New map for LanguageCache
-    private final Map<String, Map<String, Map.Entry<Object, Integer>>> playerPathVariables = new HashMap<>();
+    private final Set<String> activeLanguages = ConcurrentHashMap.newKeySet(); // languages whose cache is filled
+    private final Map<String, VariableScope> playerPathVariables = new ConcurrentHashMap<>(); // playerUUID:path -> scope
     private final ExpressionEnginePool expressionEnginePool;
+    private final SegmentedLruCache<String, ExpressionTemplate> expressionTemplates = new SegmentedLruCache<>(EXPRESSION_TEMPLATE_CACHE_SIZE);
+    private final AtomicInteger placeholderAPIVersion = new AtomicInteger(); // changes when PlaceholderAPI expansions change
     private String prefix;
+    private int languageCacheCapacity = LanguageCache.DEFAULT_CAPACITY;
     private String currentLangName;
     private LanguageFile currentLang;
     private PerPlayerLanguageHandler playerLanguageHandler;
+    private boolean lazyLoading = false;
+    private long languageIdleTimeout = 0;
+    private int idleUnloadTaskId = -1;
+    private LanguageFileWatcher languageFileWatcher;
 
     // TODO LanguageManager Menu Item Identification Optimization: inside E:\InteliJ Programs\CoolStuffLib\Menu_Item_ID_System.md
 
@@ -61,9 +94,9 @@ public class LanguageManager {
         this.plugin = plugin;
         this.langFolder = langFolder;
         this.resourceDirectory = resourceDirectory;
-        this.registeredLanguages = new LinkedHashMap<>();
-        this.placeholders = new LinkedHashMap<>();
-        this.languageCaches = new HashMap<>();
+        this.registeredLanguages = new ConcurrentHashMap<>();
+        this.placeholders = new PlaceholderMap();
+        this.languageCaches = new ConcurrentHashMap<>();
         // Initialize default engine for current language
         ExpressionEngine defaultEngine = new ExpressionEngine();
         registerHeadFunction(defaultEngine);
@@ -270,19 +303,18 @@ public class LanguageManager {
 
     /**
      * Sets an expression variable for a specific player and path.
-     * These variables will be added to the parser when getItem is called with matching player and path.
+     * These variables are layered over the language and global variables when a message, item or
+     * menu title with matching player and path is evaluated. The shared engines are not modified.
      *
      * @param playerUUID The UUID of the player this variable is for
      * @param path       The path this variable is associated with
      * @param key        The variable key
      * @param value      The variable value
+     * @param uses       The number of reads allowed per evaluation, -1 for unlimited
      */
     public void setPathExpressionVariable(String playerUUID, String path, String key, Object value, int uses) {
-        String mapKey = playerUUID + ":" + path;
-        if (!playerPathVariables.containsKey(mapKey)) {
-            playerPathVariables.put(mapKey, new HashMap<>());
-        }
-        playerPathVariables.get(mapKey).put(key, new AbstractMap.SimpleEntry<>(value, uses));
+        playerPathVariables.compute(playerUUID + ":" + path, (mapKey, scope) ->
+                (scope != null ? scope : VariableScope.empty()).with(key, value, uses));
     }
 
     /**
@@ -293,13 +325,10 @@ public class LanguageManager {
      * @param key        The variable key to remove
      */
     public void removePathExpressionVariable(String playerUUID, String path, String key) {
-        String mapKey = playerUUID + ":" + path;
-        if (playerPathVariables.containsKey(mapKey)) {
-            playerPathVariables.get(mapKey).remove(key);
-            if (playerPathVariables.get(mapKey).isEmpty()) {
-                playerPathVariables.remove(mapKey);
-            }
-        }
+        playerPathVariables.computeIfPresent(playerUUID + ":" + path, (mapKey, scope) -> {
+            VariableScope remaining = scope.without(key);
+            return remaining.isEmpty() ? null : remaining;
+        });
     }
 
     /**
@@ -322,32 +351,22 @@ public class LanguageManager {
      * @return The variable value or null if not found
      */
     public Object getPathExpressionVariable(String playerUUID, String path, String key) {
-        String mapKey = playerUUID + ":" + path;
-        if (playerPathVariables.containsKey(mapKey)) {
-            return playerPathVariables.get(mapKey).get(key);
-        }
-        return null;
+        VariableScope scope = playerPathVariables.get(playerUUID + ":" + path);
+        VariableScope.Binding binding = scope != null ? scope.lookup(key) : null;
+        return binding != null ? new AbstractMap.SimpleImmutableEntry<>(binding.value(), binding.uses()) : null;
     }
 
     /**
-     * Applies path expression variables for a specific player and path.
-     * This method will add the variables to the global expression engine pool.
+     * Gets the path expression variables for a specific player and path as a scope that can be
+     * layered over the language and global variables of an engine.
      *
-     * @param player The player for whom to apply the path expression variables
+     * @param player The player for whom to get the path expression variables
      * @param path   The path associated with the variables
+     * @return The variable scope, or null if the player has no variables for the path
      */
-    private void applyPathExpressionVariables(Player player, String path) {
-        if (player == null) return;
-
-        String playerUUID = player.getUniqueId().toString();
-        String mapKey = playerUUID + ":" + path;
-
-        if (playerPathVariables.containsKey(mapKey)) {
-            Map<String, Map.Entry<Object, Integer>> variables = playerPathVariables.get(mapKey);
-            for (Map.Entry<String, Map.Entry<Object, Integer>> entry : variables.entrySet()) {
-                addVariableGlobally(entry.getKey(), entry.getValue().getKey(), entry.getValue().getValue());
-            }
-        }
+    private VariableScope getPathExpressionScope(Player player, String path) {
+        if (player == null) return null;
+        return playerPathVariables.get(player.getUniqueId() + ":" + path);
     }
 
     /**
@@ -375,6 +394,165 @@ public class LanguageManager {
      */
     public void setPrefix(String prefix) {
         this.prefix = prefix;
+        for (String langName : activeLanguages) {
+            loadLanguageCache(langName);
+        }
+    }
+
+    /**
+     * Retrieves the number of values the {@link LanguageCache} of each language holds.
+     *
+     * @return The capacity of the language caches.
+     */
+    public int getLanguageCacheCapacity() {
+        return languageCacheCapacity;
+    }
+
+    /**
+     * Sets the number of values the {@link LanguageCache} of each language holds. Applies to
+     * languages registered or reloaded afterwards.
+     *
+     * @param languageCacheCapacity The capacity of the language caches.
+     */
+    public void setLanguageCacheCapacity(int languageCacheCapacity) {
+        if (languageCacheCapacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        this.languageCacheCapacity = languageCacheCapacity;
+    }
+
+    /**
+     * Checks whether languages are only loaded when they are first used.
+     *
+     * @return True if languages are loaded lazily.
+     */
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Sets whether languages are only loaded when they are first used. Lazily registered
+     * languages only know their name and file until a message, item or title of them is
+     * requested or {@link #activateLanguage(String)} is called. The {@link PlayerLanguageListener}
+     * activates the stored language of a player while they log in. Any other first use loads the
+     * language synchronously on the calling thread. Applies to languages
+     * registered afterwards, so call this before the languages are added.
+     *
+     * @param lazyLoading Whether to load languages lazily.
+     */
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    /**
+     * Retrieves the time after which an unused language is unloaded.
+     *
+     * @return The idle time in milliseconds, or 0 if languages are never unloaded.
+     */
+    public long getLanguageIdleTimeout() {
+        return languageIdleTimeout;
+    }
+
+    /**
+     * Sets the time after which a language that has not been used is unloaded from memory.
+     * The current language is never unloaded, and unloaded languages are loaded again on their
+     * next use. Idle languages are checked once a minute on the main thread.
+     *
+     * @param languageIdleTimeout The idle time in milliseconds, or 0 to never unload languages.
+     */
+    public void setLanguageIdleTimeout(long languageIdleTimeout) {
+        if (languageIdleTimeout < 0) throw new IllegalArgumentException("Idle timeout cannot be negative");
+        this.languageIdleTimeout = languageIdleTimeout;
+        if (languageIdleTimeout > 0 && idleUnloadTaskId == -1) {
+            idleUnloadTaskId = Bukkit.getScheduler().runTaskTimer(plugin, this::unloadIdleLanguages, 1200L, 1200L).getTaskId();
+        } else if (languageIdleTimeout == 0 && idleUnloadTaskId != -1) {
+            Bukkit.getScheduler().cancelTask(idleUnloadTaskId);
+            idleUnloadTaskId = -1;
+        }
+    }
+
+    /**
+     * Unloads all languages that have not been used for longer than the
+     * {@link #setLanguageIdleTimeout(long) idle timeout}, except the current language.
+     *
+     * @return The number of unloaded languages.
+     */
+    public int unloadIdleLanguages() {
+        if (languageIdleTimeout <= 0) return 0;
+        long now = System.currentTimeMillis();
+        int unloaded = 0;
+        for (Map.Entry<String, LanguageFile> entry : registeredLanguages.entrySet()) {
+            String langName = entry.getKey();
+            LanguageFile langFile = entry.getValue();
+            if (langName.equals(currentLangName) || now - langFile.getLastAccess() < languageIdleTimeout) continue;
+            synchronized (langFile) {
+                if (!activeLanguages.remove(langName)) continue;
+                langFile.unload();
+                languageCaches.put(langName, new LanguageCache(langName, languageCacheCapacity));
+            }
+            unloaded++;
+        }
+        return unloaded;
+    }
+
+    /**
+     * Checks whether a language is loaded and its cache is filled.
+     *
+     * @param langName The name of the language.
+     * @return True if the language is active.
+     */
+    public boolean isLanguageActive(String langName) {
+        return activeLanguages.contains(langName);
+    }
+
+    /**
+     * Loads a language in the background, so that it is ready before it is first used, e.g.
+     * when a player with that language joins. The language is put in use on the main thread.
+     *
+     * @param langName The name of the language to load.
+     * @return A future that is completed on the main thread once the language is active.
+     */
+    public CompletableFuture<Void> activateLanguage(String langName) {
+        LanguageFile langFile = getLang(langName, false);
+        if (langFile == null || activeLanguages.contains(langName)) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> activated = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> loadLanguage(langFile))
+                .whenComplete((loaded, error) -> runOnMainThread(() -> {
+                    if (error != null) {
+                        getLogger().log(Level.SEVERE, "Error loading language " + langName, error);
+                        activated.completeExceptionally(error);
+                        return;
+                    }
+                    synchronized (langFile) {
+                        if (!activeLanguages.contains(langName)) publishLanguage(loaded);
+                    }
+                    activated.complete(null);
+                }, activated));
+        return activated;
+    }
+
+    /**
+     * Hands a task to the main thread. The scheduler refuses tasks of a disabled plugin, so if
+     * the plugin was disabled while loading, the future is completed with that error instead.
+     *
+     * @param task   The task to run on the main thread.
+     * @param future The future the task would complete.
+     */
+    private void runOnMainThread(Runnable task, CompletableFuture<?> future) {
+        try {
+            Bukkit.getScheduler().runTask(plugin, task);
+        } catch (IllegalPluginAccessException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Loads a language on the calling thread if it is not active yet.
+     */
+    private void activateLanguageNow(String langName, LanguageFile langFile) {
+        synchronized (langFile) {
+            if (activeLanguages.contains(langName)) return;
+            loadLanguageCache(langName);
+            activeLanguages.add(langName);
+        }
     }
 
     /**
@@ -419,7 +597,8 @@ public class LanguageManager {
     }
 
     /**
-     * Retrieves the registered languages.
+     * Retrieves the registered languages. The map is safe to read from other threads and is
+     * not ordered by registration.
      *
      * @return A map of the registered languages, with the language name as the key and the language file as the value.
      */
@@ -456,10 +635,9 @@ public class LanguageManager {
      */
     public void setCurrentLang(LanguageFile currentLang, boolean log) throws NullPointerException {
         if (currentLang == null) {
-            List<Map.Entry<String, LanguageFile>> list = new ArrayList<>(registeredLanguages.entrySet());
-            Map.Entry<String, LanguageFile> firstInsertedEntry = list.get(0);
-            this.currentLang = firstInsertedEntry.getValue();
-            this.currentLangName = firstInsertedEntry.getValue().getLangName();
+            LanguageFile firstRegistered = registeredLanguages.get(registrationOrder.get(0));
+            this.currentLang = firstRegistered;
+            this.currentLangName = firstRegistered.getLangName();
             throw new NullPointerException("Language not found!");
         } else {
             this.currentLangName = currentLang.getLangName();
@@ -480,12 +658,14 @@ public class LanguageManager {
         if (fileArray != null) {
             for (File file : fileArray) {
                 LanguageFile languageFile = new LanguageFile(langFolder, resourceDirectory, file.getName().replace(".yml", ""));
-                if (!registeredLanguages.containsValue(languageFile) && !languageFile.getLangName().equals("default") && !registeredLanguages.containsKey(languageFile.getLangName())) {
+                if (!registeredLanguages.containsValue(languageFile) && !languageFile.getLangName().equals("default")
+                        && registeredLanguages.putIfAbsent(languageFile.getLangName(), languageFile) == null) {
                     if (log)
                         getLogger().log(Level.INFO, "Language: " + languageFile.getLangFile() + " successfully registered!");
-                    registeredLanguages.put(languageFile.getLangName(), languageFile);
-                    languageCaches.put(languageFile.getLangName(), new LanguageCache(languageFile.getLangName()));
+                    registrationOrder.add(languageFile.getLangName());
+                    languageCaches.put(languageFile.getLangName(), new LanguageCache(languageFile.getLangName(), languageCacheCapacity));
                     addEngineForLanguage(languageFile.getLangName(), true, true);
+                    if (!lazyLoading) activateLanguageNow(languageFile.getLangName(), languageFile);
                 }
             }
         }
@@ -499,7 +679,11 @@ public class LanguageManager {
      * any of these files are found, it uses ConfigUpdater to update the language file.
      */
     public void updateLangFiles() {
-        for (LanguageFile langFiles : getRegisteredLanguages().values()) {
+        updateLangFiles(getRegisteredLanguages().values());
+    }
+
+    private void updateLangFiles(Collection<LanguageFile> languageFiles) {
+        for (LanguageFile langFiles : languageFiles) {
             try {
                 String resourceName = resourceDirectory + "/" + langFiles.getLangFile().getName();
                 if (Utils.getResource(resourceName) == null) {
@@ -520,7 +704,8 @@ public class LanguageManager {
     }
 
     /**
-     * Reloads all languages and updates the language files.
+     * Reloads all languages and updates the language files. If one of the files cannot be
+     * read, none of the languages are replaced.
      *
      * @param messageReceiver The command sender to send the message to.
      * @param log             Whether to log the action or not.
@@ -528,16 +713,243 @@ public class LanguageManager {
     public void reloadLanguages(CommandSender messageReceiver, Boolean log) {
         addLanguagesToList(log);
         updateLangFiles();
-        for (String langFiles : registeredLanguages.keySet()) {
-            getLang(langFiles, true).getLangConfig().reloadConfig();
-            if (messageReceiver != null) {
-                addPlaceholder(PlaceholderType.MESSAGE, "%language%", getLang(langFiles, true).getLangFile(), true);
-                messageReceiver.sendMessage(getMessage("Player.General.ReloadedLanguageFile", messageReceiver instanceof Player ? (Player) messageReceiver : null, true));
+        List<LoadedLanguage> loaded = new ArrayList<>();
+        try {
+            for (LanguageFile langFile : getLanguagesToReload()) {
+                loaded.add(loadLanguage(langFile));
+            }
+        } catch (IllegalStateException e) {
+            getLogger().log(Level.SEVERE, "Error reloading languages, keeping the loaded languages", e);
+            return;
+        }
+        publishLanguages(loaded, messageReceiver, log);
+    }
+
+    /**
+     * Reloads all languages like {@link #reloadLanguages(CommandSender, Boolean)}, but updates,
+     * parses and caches the language files in parallel off the main thread. The new languages
+     * are put in use together in a single task on the main thread; until then every language
+     * keeps answering from its old configuration and cache, so no reader sees a half-loaded
+     * language. If one of the files cannot be read, none of the languages are replaced and the
+     * future completes exceptionally.
+     *
+     * @param messageReceiver The command sender to send the message to.
+     * @param log             Whether to log the action or not.
+     * @return A future that is completed on the main thread once the new languages are in use.
+     */
+    public CompletableFuture<Void> reloadLanguagesAsync(CommandSender messageReceiver, boolean log) {
+        addLanguagesToList(log);
+        List<LanguageFile> allLanguageFiles = new ArrayList<>(registeredLanguages.values());
+        List<LanguageFile> languageFiles = getLanguagesToReload();
+        CompletableFuture<Void> published = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> updateLangFiles(allLanguageFiles))
+                .thenCompose(ignored -> {
+                    List<CompletableFuture<LoadedLanguage>> loads = new ArrayList<>();
+                    for (LanguageFile langFile : languageFiles) {
+                        loads.add(CompletableFuture.supplyAsync(() -> loadLanguage(langFile)));
+                    }
+                    return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]))
+                            .thenApply(done -> loads.stream().map(CompletableFuture::join).toList());
+                })
+                .whenComplete((loaded, error) -> runOnMainThread(() -> {
+                    if (error != null) {
+                        getLogger().log(Level.SEVERE, "Error reloading languages", error);
+                        published.completeExceptionally(error);
+                        return;
+                    }
+                    try {
+                        publishLanguages(loaded, messageReceiver, log);
+                        published.complete(null);
+                    } catch (RuntimeException e) {
+                        published.completeExceptionally(e);
+                        throw e;
+                    }
+                }, published));
+        return published;
+    }
+
+    /**
+     * A language file read from disk together with everything built from it, ready to be put
+     * in use.
+     */
+    private record LoadedLanguage(LanguageFile langFile, FileConfiguration config, LanguageSnapshot snapshot,
+                                  LanguageCache cache) {
+    }
+
+    /**
+     * Reads a language file and builds its snapshot and cache without changing the state of
+     * the manager, so it can run on any thread.
+     */
+    private LoadedLanguage loadLanguage(LanguageFile langFile) {
+        FileConfiguration config;
+        try {
+            config = langFile.getLangConfig().readConfig();
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new IllegalStateException("Could not read language file " + langFile.getLangFile(), e);
+        }
+        LanguageSnapshot snapshot = LanguageSnapshot.of(config);
+        return new LoadedLanguage(langFile, config, snapshot, buildLanguageCache(langFile.getLangName(), snapshot));
+    }
+
+    /**
+     * Returns the languages a reload has to read. Languages that are not active are unloaded
+     * instead, so they are read from disk when they are used the next time.
+     */
+    private List<LanguageFile> getLanguagesToReload() {
+        List<LanguageFile> languageFiles = new ArrayList<>();
+        for (Map.Entry<String, LanguageFile> entry : registeredLanguages.entrySet()) {
+            if (activeLanguages.contains(entry.getKey())) {
+                languageFiles.add(entry.getValue());
+            } else {
+                entry.getValue().unload();
+            }
+        }
+        return languageFiles;
+    }
+
+    private void publishLanguages(List<LoadedLanguage> loaded, CommandSender messageReceiver, boolean log) {
+        for (LoadedLanguage language : loaded) {
+            publishLanguage(language);
+        }
+        if (messageReceiver != null) {
+            Player player = messageReceiver instanceof Player ? (Player) messageReceiver : null;
+            for (LoadedLanguage language : loaded) {
+                messageReceiver.sendMessage(getMessage("Player.General.ReloadedLanguageFile", player,
+                        PlaceholderContext.of("%language%", language.langFile().getLangFile())));
             }
         }
         setCurrentLang(getLang(plugin.getConfig().getString("Plugin.language"), true), log);
     }
 
+    private void publishLanguage(LoadedLanguage language) {
+        String langName = language.langFile().getLangName();
+        if (registeredLanguages.get(langName) != language.langFile()) return;
+        language.langFile().update(language.config(), language.snapshot());
+        languageCaches.put(langName, language.cache());
+        activeLanguages.add(langName);
+    }
+
+    /**
+     * Starts a {@link LanguageFileWatcher} on the language folder, so that edits to language
+     * files are applied without a full reload. Does nothing if the watcher is already running.
+     */
+    public void startFileWatcher() {
+        if (languageFileWatcher != null) return;
+        try {
+            LanguageFileWatcher watcher = new LanguageFileWatcher(this);
+            watcher.start();
+            languageFileWatcher = watcher;
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Could not watch the language folder " + langFolder, e);
+        }
+    }
+
+    /**
+     * Stops the {@link LanguageFileWatcher} started with {@link #startFileWatcher()}.
+     */
+    public void stopFileWatcher() {
+        if (languageFileWatcher == null) return;
+        languageFileWatcher.close();
+        languageFileWatcher = null;
+    }
+
+    /**
+     * Reads a single language file again and applies only what changed: the file is parsed off
+     * the main thread and compared with the loaded version, and only the cached values and
+     * templates of the changed paths are replaced on the main thread. Languages that are not
+     * loaded are skipped, they are read fresh on their next use anyway. If the file cannot be
+     * read or is not valid YAML, a warning is logged and the loaded version is kept.
+     *
+     * @param langName The name of the language to update.
+     * @return A future completed on the main thread with the full paths that changed.
+     */
+    public CompletableFuture<Set<String>> updateLanguageFromFile(String langName) {
+        LanguageFile langFile = getLang(langName, false);
+        if (langFile == null || !langFile.isLoaded()) return CompletableFuture.completedFuture(Set.of());
+        CompletableFuture<Set<String>> updated = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> {
+                    FileConfiguration config;
+                    try {
+                        config = langFile.getLangConfig().readConfig();
+                    } catch (IOException | InvalidConfigurationException e) {
+                        getLogger().log(Level.WARNING, "Could not read language file " + langFile.getLangFile()
+                                + ", keeping the loaded version: " + e.getMessage());
+                        return null;
+                    }
+                    LanguageSnapshot snapshot = LanguageSnapshot.of(config);
+                    Set<String> changedPaths = langFile.getSnapshot().getChangedPaths(snapshot);
+                    Map<String, MessageTemplate> templates = new HashMap<>();
+                    for (String path : changedPaths) {
+                        if (snapshot.get(path) instanceof String text && isInSection(path, TEMPLATE_SECTIONS)) {
+                            templates.put(path, compileTemplate(text));
+                        }
+                    }
+                    return new LanguageChange(langFile, config, snapshot, changedPaths, templates);
+                })
+                .whenComplete((change, error) -> runOnMainThread(() -> {
+                    if (error != null) {
+                        getLogger().log(Level.SEVERE, "Error updating language " + langName, error);
+                        updated.completeExceptionally(error);
+                        return;
+                    }
+                    if (change == null) {
+                        updated.complete(Set.of());
+                        return;
+                    }
+                    applyLanguageChange(change);
+                    updated.complete(change.changedPaths());
+                }, updated));
+        return updated;
+    }
+
+    /**
+     * A language file read again from disk, with the paths that differ from the loaded version
+     * and the templates compiled for them.
+     */
+    private record LanguageChange(LanguageFile langFile, FileConfiguration config, LanguageSnapshot snapshot,
+                                  Set<String> changedPaths, Map<String, MessageTemplate> templates) {
+    }
+
+    private void applyLanguageChange(LanguageChange change) {
+        LanguageFile langFile = change.langFile();
+        String langName = langFile.getLangName();
+        if (registeredLanguages.get(langName) != langFile || change.changedPaths().isEmpty()) return;
+        langFile.update(change.config(), change.snapshot());
+
+        LanguageCache langCache = languageCaches.get(langName);
+        if (langCache != null && activeLanguages.contains(langName)) {
+            for (String path : change.changedPaths()) {
+                langCache.removeData(path);
+                langCache.removeTemplate(path);
+                Object value = change.snapshot().get(path);
+                if (value != null && isInSection(path, PRELOAD_SECTIONS)) {
+                    langCache.addData(path, value, true);
+                }
+            }
+            change.templates().forEach(langCache::putTemplate);
+            langCache.removeItemTemplates(change.changedPaths());
+        }
+        if (langFile == currentLang && isInSection(change.changedPaths(), "CustomVariables")) {
+            handleVariablesSection(langFile, false);
+        }
+    }
+
+    private static boolean isInSection(String path, String... sections) {
+        for (String section : sections) {
+            if (path.length() > section.length() && path.charAt(section.length()) == '.' && path.startsWith(section)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInSection(Collection<String> paths, String section) {
+        for (String path : paths) {
+            if (isInSection(path, section)) return true;
+        }
+        return false;
+    }
+
     /**
      * Adds a new language to the list of registered languages.
      *
@@ -545,11 +957,12 @@ public class LanguageManager {
      * @param langName The name of the language to be added.
      */
     public void addLang(LanguageFile langFile, String langName) {
-        if (registeredLanguages.containsKey(langName) || langName.equals("default"))
+        if (langName.equals("default") || registeredLanguages.putIfAbsent(langName, langFile) != null)
             return;
-        registeredLanguages.put(langName, langFile);
-        languageCaches.put(langName, new LanguageCache(langName));
+        registrationOrder.add(langName);
+        languageCaches.put(langName, new LanguageCache(langName, languageCacheCapacity));
         addEngineForLanguage(langName, true, true);
+        if (!lazyLoading) activateLanguageNow(langName, langFile);
         getLogger().log(Level.INFO, "Language: " + langFile.getLangFile() + " successfully registered!");
     }
 
@@ -565,12 +978,10 @@ public class LanguageManager {
      *                              true.
      */
     public LanguageFile getLang(String langName, boolean throwException) throws NullPointerException {
-        if (!registeredLanguages.containsKey(langName))
-            if (throwException)
-                throw new NullPointerException("Language: " + langName + " not found!");
-            else
-                return null;
-        return registeredLanguages.get(langName);
+        LanguageFile langFile = langName != null ? registeredLanguages.get(langName) : null;
+        if (langFile == null && throwException)
+            throw new NullPointerException("Language: " + langName + " not found!");
+        return langFile;
     }
 
     /**
@@ -579,9 +990,10 @@ public class LanguageManager {
      * @param langName The name of the language to be removed.
      */
     public void removeLang(String langName) {
-        if (!registeredLanguages.containsKey(langName))
+        if (langName == null || registeredLanguages.remove(langName) == null)
             return;
-        registeredLanguages.remove(langName);
+        registrationOrder.remove(langName);
+        activeLanguages.remove(langName);
     }
 
     /**
@@ -696,11 +1108,18 @@ public class LanguageManager {
 
     /**
      * Retrieves the {@link LanguageCache} object associated with the given language name.
+     * A language that is not loaded yet is read from disk synchronously on the calling thread;
+     * call {@link #activateLanguage(String)} beforehand to load it in the background instead.
      *
      * @param langName The name of the language to get the {@link LanguageCache} object for.
      * @return The {@link LanguageCache} object associated with the given language name.
      */
     public LanguageCache getLanguageCache(String langName) {
+        LanguageFile langFile = langName != null ? registeredLanguages.get(langName) : null;
+        if (langFile != null) {
+            langFile.touch();
+            if (!activeLanguages.contains(langName)) activateLanguageNow(langName, langFile);
+        }
         return languageCaches.get(langName);
     }
 
@@ -716,32 +1135,37 @@ public class LanguageManager {
      * @return A list of placeholder keys found in the message of the specified type
      */
     private List<String> getPlaceholderKeysInMessage(String message, PlaceholderType type) {
-        List<String> keys = new ArrayList<>();
-        for (String key : placeholders.keySet()) {
-            if (!message.contains(key)) continue;
-            if (!placeholders.get(key).type().equals(type) && !placeholders.get(key).type().equals(PlaceholderType.ALL))
-                continue;
+        if (message == null || placeholders.isEmpty()) return new ArrayList<>();
+        return placeholders.matcher().findKeys(message, key -> getPlaceholder(type, key) != null);
+    }
 
-            keys.add(key);
-        }
-        return keys;
+    /**
+     * Gets the registered placeholder for a key if it applies to the given type.
+     *
+     * @param type The type of placeholder to look for
+     * @param key  The placeholder key
+     * @return The placeholder, or null if there is none of the type or of type ALL
+     */
+    private Placeholder getPlaceholder(PlaceholderType type, String key) {
+        Placeholder placeholder = placeholders.get(key);
+        if (placeholder == null) return null;
+        if (!placeholder.type().equals(type) && !placeholder.type().equals(PlaceholderType.ALL))
+            return null;
+        return placeholder;
     }
 
     /**
      * Replaces placeholders in the given message with their corresponding values.
+     * The message is scanned once for all registered keys; replaced values are not
+     * scanned again.
      *
      * @param type    The type of placeholder to replace.
      * @param message The message to replace placeholders in.
      * @return The message with placeholders replaced.
      */
     public String replacePlaceholders(PlaceholderType type, String message) {
-        for (String key : placeholders.keySet()) {
-            if (!placeholders.get(key).type().equals(type) && !placeholders.get(key).type().equals(PlaceholderType.ALL))
-                continue;
-
-            message = placeholders.get(key).replace(message);
-        }
-        return message;
+        if (message == null || placeholders.isEmpty()) return message;
+        return placeholders.matcher().replace(message, key -> getPlaceholder(type, key));
     }
 
     /**
@@ -799,6 +1223,9 @@ public class LanguageManager {
      * @return The message with all placeholders replaced.
      */
     public String replacePlaceholders(String message, Map<String, Placeholder> placeholders) {
+        if (placeholders instanceof PlaceholderMap placeholderMap) {
+            return placeholderMap.matcher().replace(message, placeholderMap::get);
+        }
         for (String key : placeholders.keySet()) {
             message = placeholders.get(key).replace(message);
         }
@@ -842,14 +1269,13 @@ public class LanguageManager {
 
     public <T> T getObjectFromLanguageCacheOrConfig(String path, String langName, Class<T> clazz) {
         LanguageCache langCache = getLanguageCache(langName);
-        if (langCache.containsKey(path) && langCache.getData(path).getClass().isInstance(clazz)) {
-            return clazz.cast(langCache.getData(path));
+        Object cached = langCache.getData(path);
+        if (clazz.isInstance(cached)) {
+            return clazz.cast(cached);
         } else {
             LanguageFile langFile = getLang(langName, true);
-            LanguageConfig langConfig = langFile.getLangConfig();
-            if (langConfig == null || langConfig.getConfig() == null) return getDefaultInstance(clazz);
-            Object configObject = langConfig.getConfig().get(path);
-            if (configObject == null || !langConfig.getConfig().contains(path))
+            Object configObject = langFile.getSnapshot().get(path);
+            if (configObject == null)
                 return getDefaultInstance(clazz);
             try {
                 T obj = clazz.cast(configObject);
@@ -902,24 +1328,56 @@ public class LanguageManager {
      * @return The formatted message.
      */
     public String getMessage(String path, Player player, String langName, boolean resetAfter) {
-        applyPathExpressionVariables(player, path);
-        LanguageFile langFile = getLangOrPlayerLang(true, langName, player);
-        LanguageConfig langConfig = langFile.getLangConfig();
-        if (langConfig == null || langConfig.getConfig() == null)
-            return "null config";
-        if ((langConfig.getConfig().getString("Messages." + path) == null || !langConfig.getConfig().contains("Messages." + path)) && !getLanguageCache(langName).containsKey("Messages." + path))
-            return "null path: Messages." + path;
+        return getMessage(path, player, langName, resetAfter, null);
+    }
+
+    /**
+     * Gets a message from the specified path in the language file for the specified
+     * player, with the placeholders of the given context layered over the registered
+     * placeholders. The registered placeholders are not modified.
+     *
+     * @param path    The path of the message in the language file.
+     * @param player  The player to get the message for.
+     * @param context The placeholders for this message (nullable).
+     * @return The formatted message.
+     */
+    public String getMessage(String path, Player player, @Nullable PlaceholderContext context) {
+        return getMessage(path, player, getCurrentLangName(), context);
+    }
 
-        String rawMessage = getObjectFromLanguageCacheOrConfig("Messages." + path, langName, String.class);
+    /**
+     * Gets a message from the language file, with the placeholders of the given context
+     * layered over the registered placeholders. The registered placeholders are not
+     * modified, and expressions in the message are evaluated on their own interpreter frame,
+     * so this can be called from any thread. If the language is not loaded yet (see
+     * {@link #setLazyLoading(boolean)}), it is loaded on the calling thread first.
+     *
+     * @param path     The path of the message in the language file.
+     * @param player   The player to format the message for.
+     * @param langName The name of the language file to get the message from.
+     * @param context  The placeholders for this message (nullable).
+     * @return The formatted message.
+     */
+    public String getMessage(String path, Player player, String langName, @Nullable PlaceholderContext context) {
+        return getMessage(path, player, langName, false, context != null ? context : PlaceholderContext.empty());
+    }
 
-        String message = Utils.format(player, rawMessage, prefix);
-        if (!placeholders.isEmpty()) {
-            List<String> includedKeys = new ArrayList<>(getPlaceholderKeysInMessage(message, PlaceholderType.MESSAGE));
-            message = replacePlaceholders(PlaceholderType.MESSAGE, message);
-            if (resetAfter) resetSpecificPlaceholders(PlaceholderType.MESSAGE, includedKeys);
+    private String getMessage(String path, Player player, String langName, boolean resetAfter, @Nullable PlaceholderContext context) {
+        LanguageCache langCache = getLanguageCache(langName);
+        MessageTemplate template = langCache != null ? langCache.getTemplate("Messages." + path) : null;
+        if (template == null) {
+            LanguageFile langFile = getLangOrPlayerLang(true, langName, player);
+            LanguageConfig langConfig = langFile.getLangConfig();
+            if (langConfig == null || langConfig.getConfig() == null)
+                return "null config";
+            if (!langFile.getSnapshot().contains("Messages." + path) && !langCache.containsKey("Messages." + path))
+                return "null path: Messages." + path;
+
+            String rawMessage = getObjectFromLanguageCacheOrConfig("Messages." + path, langName, String.class);
+            template = compileTemplate(rawMessage);
+            langCache.putTemplate("Messages." + path, template);
         }
-        message = parseEmbeddedExpressions(message, player, langName);
-        return message;
+        return renderTemplate(template, PlaceholderType.MESSAGE, player, langName, path, resetAfter, context);
     }
 
     /**
@@ -934,6 +1392,114 @@ public class LanguageManager {
         return getMessage("Player.General.NoPermissions", player, true);
     }
 
+    /**
+     * Sends a message to every online player in their own language.
+     *
+     * @param path    The path of the message in the language file.
+     * @param context The placeholders for this message (nullable).
+     * @see #getMessages(String, Collection, PlaceholderContext)
+     */
+    public void broadcastMessage(String path, @Nullable PlaceholderContext context) {
+        broadcastMessage(path, Bukkit.getOnlinePlayers(), context);
+    }
+
+    /**
+     * Sends a message to each of the given players in their own language.
+     *
+     * @param path       The path of the message in the language file.
+     * @param recipients The players to send the message to.
+     * @param context    The placeholders for this message (nullable).
+     * @see #getMessages(String, Collection, PlaceholderContext)
+     */
+    public void broadcastMessage(String path, Collection<? extends Player> recipients, @Nullable PlaceholderContext context) {
+        getMessages(path, recipients, context).forEach(Player::sendMessage);
+    }
+
+    /**
+     * Gets a message for many players at once, each in their own language. Players whose
+     * message cannot differ share one rendered text: the message is rendered once per language
+     * and only again for players it depends on, i.e. if it contains PlaceholderAPI
+     * placeholders that are not in the context, or expressions while the player has
+     * variables set for this path. The registered placeholders are not reset.
+     *
+     * @param path       The path of the message in the language file.
+     * @param recipients The players to get the message for.
+     * @param context    The placeholders for this message (nullable).
+     * @return The message for each player, in the order of the recipients.
+     */
+    public Map<Player, String> getMessages(String path, Collection<? extends Player> recipients, @Nullable PlaceholderContext context) {
+        PlaceholderContext messageContext = context != null ? context : PlaceholderContext.empty();
+        boolean placeholderAPI = isPlaceholderAPIEnabled();
+        Map<Player, String> messages = new LinkedHashMap<>();
+        Map<String, String> sharedMessages = new HashMap<>();
+        Map<String, Boolean> playerDependent = new HashMap<>();
+        for (Player player : recipients) {
+            String langName = getBroadcastLanguageName(player);
+            LanguageCache langCache = getLanguageCache(langName);
+            MessageTemplate template = langCache.getTemplate("Messages." + path);
+            if (template == null) {
+                messages.put(player, getMessage(path, player, langName, false, messageContext));
+                continue;
+            }
+            boolean dependent = playerDependent.computeIfAbsent(langName,
+                    name -> placeholderAPI && usesPlaceholderAPI(template, messageContext));
+            if (dependent || (template.hasExpressions() && getPathExpressionScope(player, path) != null)) {
+                messages.put(player, getMessage(path, player, langName, false, messageContext));
+            } else {
+                messages.put(player, sharedMessages.computeIfAbsent(langName,
+                        name -> getMessage(path, player, name, false, messageContext)));
+            }
+        }
+        return messages;
+    }
+
+    private String getBroadcastLanguageName(Player player) {
+        if (playerLanguageHandler != null) {
+            String langName = playerLanguageHandler.getPlayerLanguageName(player.getUniqueId());
+            if (langName != null && getLanguageCache(langName) != null) return langName;
+        }
+        return getCurrentLangName();
+    }
+
+    /**
+     * Checks whether a template has slots that PlaceholderAPI resolves per player, i.e.
+     * PlaceholderAPI slots (see {@link #getPlaceholderAPIKeys(MessageTemplate)}) that are not in
+     * the context.
+     */
+    private boolean usesPlaceholderAPI(MessageTemplate template, PlaceholderContext context) {
+        for (String key : getPlaceholderAPIKeys(template)) {
+            if (context.get(key) == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the slots of a template that PlaceholderAPI resolves, i.e. slots of the form
+     * {@code %identifier_params%} with a registered identifier. The result is cached on the
+     * template until PlaceholderAPI expansions are registered or unregistered.
+     */
+    private Set<String> getPlaceholderAPIKeys(MessageTemplate template) {
+        return template.getPlaceholderKeys(LanguageManager::isPlaceholderAPIKey, placeholderAPIVersion.get());
+    }
+
+    private static boolean isPlaceholderAPIKey(String key) {
+        int separator = key.indexOf('_');
+        if (separator <= 1) return false;
+        try {
+            return PlaceholderAPI.isRegistered(key.substring(1, separator));
+        } catch (Exception | NoClassDefFoundError e) {
+            return true;
+        }
+    }
+
+    /**
+     * Drops the cached decisions which template slots PlaceholderAPI resolves. Called when
+     * PlaceholderAPI expansions are registered or unregistered.
+     */
+    public void invalidatePlaceholderAPIKeys() {
+        placeholderAPIVersion.incrementAndGet();
+    }
+
     /**
      * Gets an item from the specified path in the language file for the specified
      * player.
@@ -966,30 +1532,31 @@ public class LanguageManager {
      */
     public ItemStack getItem(String path, Player player, String langName, boolean resetAfter, MaterialCondition condition) {
         LanguageFile langFile = getLangOrPlayerLang(false, langName, player);
-        LanguageConfig langConfig = langFile.getLangConfig();
-        ItemStack error = new ItemStack(Material.BARRIER);
-        ItemMeta errorMeta = error.getItemMeta();
-        if (langConfig == null || langConfig.getConfig() == null) {
-            assert errorMeta != null;
-            errorMeta.setDisplayName("Language Config not found!");
-            errorMeta.setLore(Arrays.asList("If this happens often,", "please report to the Discord"));
-            error.setItemMeta(errorMeta);
-            return error;
-        }
-        if ((langConfig.getConfig().getString("Items." + path) == null || !langConfig.getConfig().contains("Items." + path)) && !getLanguageCache(langName).containsKey("Items." + path)) {
-            assert errorMeta != null;
-            errorMeta.setDisplayName("Config Path not found!");
-            errorMeta.setLore(Arrays.asList("If this happens often,", "please report to the Discord", "Path: Items." + path));
-            error.setItemMeta(errorMeta);
-            return error;
-        }
-        if (langConfig.getConfig().getBoolean("Items." + path + ".disabled", false) &&
-                !Objects.equals(path, "General.DisabledItem")) {
+        LanguageCache langCache = getLanguageCache(langFile.getLangName());
+        ItemTemplate template = langCache != null ? langCache.getItemTemplate(path) : null;
+        if (template == null) {
+            LanguageConfig langConfig = langFile.getLangConfig();
+            if (langConfig == null || langConfig.getConfig() == null) {
+                return createErrorItem("Language Config not found!", "If this happens often,", "please report to the Discord");
+            }
+            if (!langFile.getSnapshot().contains("Items." + path) && !getLanguageCache(langName).containsKey("Items." + path)) {
+                return createErrorItem("Config Path not found!", "If this happens often,", "please report to the Discord", "Path: Items." + path);
+            }
+            template = compileItemTemplate(path, langFile.getLangName());
+            if (langCache != null) langCache.putItemTemplate(path, template);
+        }
+        if (template.isDisabled() && !Objects.equals(path, "General.DisabledItem")) {
             return this.getItem("General.DisabledItem", player, false);
         }
+        if (condition == null) {
+            ItemStack finished = template.createFinished();
+            if (finished != null && (placeholders.isEmpty() || placeholders.matcher()
+                    .findKeys(template.getStaticText(), key -> getPlaceholder(PlaceholderType.ITEM, key) != null).isEmpty())) {
+                return finished;
+            }
+        }
         ItemStack item;
 
-        applyPathExpressionVariables(player, path);
         if (condition instanceof HeadMaterialCondition headCondition) {
             if (headCondition.isHead()) {
                 item = headCondition.getHead().getAsItem();
@@ -999,61 +1566,104 @@ public class LanguageManager {
         } else if (condition != null) {
             Material material = condition.getMaterial();
             if (material == null) {
-                assert errorMeta != null;
-                errorMeta.setDisplayName("Material not found! (" + langConfig.getConfig().getString("Items." + path + ".material") + ")");
-                errorMeta.setLore(Arrays.asList("If this happens,", "please change the Material from this Item", "to something existing", "Path: Items." + path + ".material"));
-                error.setItemMeta(errorMeta);
-                return error;
+                return createErrorItem("Material not found! (" + template.getMaterial() + ")",
+                        "If this happens,", "please change the Material from this Item", "to something existing", "Path: Items." + path + ".material");
             }
             item = new ItemStack(material);
         } else {
-            String materialString = "";
-            if (getObjectFromLanguageCacheOrConfig("Items." + path + ".material", langFile.getLangName(), String.class) != null) {
-                materialString = getObjectFromLanguageCacheOrConfig("Items." + path + ".material", langFile.getLangName(), String.class);
-            } else if (getObjectFromLanguageCacheOrConfig("Items." + path + ".material", langFile.getLangName(), List.class) != null) {
-                List<?> materialList = getObjectFromLanguageCacheOrConfig("Items." + path + ".material", langFile.getLangName(), List.class);
-                StringBuilder materialBuilder = new StringBuilder();
-                for (Object materialObj : materialList) {
-                    if (materialObj instanceof String materialStr) {
-                        materialBuilder.append(materialStr).append("\n");
-                    }
-                }
-                materialString = materialBuilder.toString().trim();
+            item = template.createBase();
+            if (item == null) {
+                item = parseMaterialStringToItem(template.getMaterial(), player, langFile.getLangName(), getPathExpressionScope(player, path));
             }
-            ItemStack headItem = parseMaterialStringToItem(materialString, player, langFile.getLangName());
-            if (headItem == null) {
-                assert errorMeta != null;
-                errorMeta.setDisplayName("Head Item not found! (" + langConfig.getConfig().getString("Items." + path + ".material") + ")");
-                errorMeta.setLore(Arrays.asList("If this happens,", "please change the Material from this Item", "to something existing", "Path: Items." + path + ".material"));
-                error.setItemMeta(errorMeta);
-                return error;
+            if (item == null) {
+                return createErrorItem("Head Item not found! (" + template.getMaterial() + ")",
+                        "If this happens,", "please change the Material from this Item", "to something existing", "Path: Items." + path + ".material");
             }
-            item = headItem;
         }
-        String displayName = getObjectFromLanguageCacheOrConfig("Items." + path + ".displayName", langFile.getLangName(), String.class);
-        List<String> lore = this.getObjectFromLanguageCacheOrConfig("Items." + path + ".lore", langFile.getLangName(), List.class);
-        List<String> loreWithPlaceholders = new ArrayList<>();
         List<String> includedKeys = new ArrayList<>();
         ItemMeta meta = item.getItemMeta();
-        for (String s : lore) {
-            includedKeys.addAll(getPlaceholderKeysInMessage(s, PlaceholderType.ITEM));
-            String temp = replacePlaceholders(PlaceholderType.ITEM, s);
-            loreWithPlaceholders.add(Utils.format(player, temp, prefix));
-        }
         assert meta != null;
-        meta.setLore(loreWithPlaceholders);
-        assert displayName != null;
-        includedKeys.addAll(getPlaceholderKeysInMessage(Utils.format(player, displayName, prefix), PlaceholderType.ITEM));
-        meta.setDisplayName(replacePlaceholders(PlaceholderType.ITEM, Utils.format(player, displayName, prefix)));
-        if (getObjectFromLanguageCacheOrConfig("Items." + path + ".enchanted", langFile.getLangName(), Boolean.class)) {
-            meta.addEnchant(Enchantment.UNBREAKING, 1, true);
-            meta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
+        List<String> lore = new ArrayList<>(template.getLore().size());
+        for (MessageTemplate line : template.getLore()) {
+            lore.add(renderTemplate(line, PlaceholderType.ITEM, player, langFile.getLangName(), path, null, includedKeys));
         }
+        meta.setLore(lore);
+        meta.setDisplayName(renderTemplate(template.getDisplayName(), PlaceholderType.ITEM, player, langFile.getLangName(), path, null, includedKeys));
+        applyEnchantment(meta, template.isEnchanted());
         item.setItemMeta(meta);
         if (resetAfter) resetSpecificPlaceholders(PlaceholderType.ITEM, includedKeys);
         return item;
     }
 
+    /**
+     * Compiles the item at a path of a language into an {@link ItemTemplate}. The material is
+     * parsed and the finished item is built here if they do not depend on the player.
+     *
+     * @param path     The path of the item without the {@code Items.} prefix.
+     * @param langName The name of the language.
+     * @return The compiled item.
+     */
+    private ItemTemplate compileItemTemplate(String path, String langName) {
+        String material = "";
+        Object materialObject = getObjectFromLanguageCacheOrConfig("Items." + path + ".material", langName, Object.class);
+        if (materialObject instanceof String materialStr) {
+            material = materialStr;
+        } else if (materialObject instanceof List<?> materialList) {
+            StringBuilder materialBuilder = new StringBuilder();
+            for (Object materialObj : materialList) {
+                if (materialObj instanceof String materialStr) {
+                    materialBuilder.append(materialStr).append("\n");
+                }
+            }
+            material = materialBuilder.toString().trim();
+        }
+        String name = getObjectFromLanguageCacheOrConfig("Items." + path + ".displayName", langName, String.class);
+        MessageTemplate displayName = compileTemplate(name != null ? name : "");
+        List<MessageTemplate> lore = new ArrayList<>();
+        List<?> loreLines = getObjectFromLanguageCacheOrConfig("Items." + path + ".lore", langName, List.class);
+        if (loreLines != null) {
+            for (Object line : loreLines) {
+                lore.add(compileTemplate(String.valueOf(line)));
+            }
+        }
+        boolean enchanted = Boolean.TRUE.equals(getObjectFromLanguageCacheOrConfig("Items." + path + ".enchanted", langName, Boolean.class));
+        boolean disabled = Boolean.TRUE.equals(getObjectFromLanguageCacheOrConfig("Items." + path + ".disabled", langName, Boolean.class));
+
+        ItemStack base = ItemTemplate.isStaticMaterial(material) ? parseMaterialStringToItem(material, null, langName, null) : null;
+        ItemStack finished = null;
+        if (base != null && ItemTemplate.isStatic(displayName, lore)) {
+            finished = base.clone();
+            ItemMeta meta = finished.getItemMeta();
+            assert meta != null;
+            List<String> loreText = new ArrayList<>(lore.size());
+            for (MessageTemplate line : lore) {
+                loreText.add(line.getSource());
+            }
+            meta.setLore(loreText);
+            meta.setDisplayName(displayName.getSource());
+            applyEnchantment(meta, enchanted);
+            finished.setItemMeta(meta);
+        }
+        return new ItemTemplate(material, base, finished, displayName, lore, enchanted, disabled);
+    }
+
+    private void applyEnchantment(ItemMeta meta, boolean enchanted) {
+        if (enchanted) {
+            meta.addEnchant(Enchantment.UNBREAKING, 1, true);
+            meta.addItemFlags(ItemFlag.HIDE_ENCHANTS);
+        }
+    }
+
+    private ItemStack createErrorItem(String displayName, String... lore) {
+        ItemStack error = new ItemStack(Material.BARRIER);
+        ItemMeta errorMeta = error.getItemMeta();
+        assert errorMeta != null;
+        errorMeta.setDisplayName(displayName);
+        errorMeta.setLore(Arrays.asList(lore));
+        error.setItemMeta(errorMeta);
+        return error;
+    }
+
     /**
      * Gets a Item from the specified material string.
      *
@@ -1064,6 +1674,21 @@ public class LanguageManager {
      * material is invalid.
      */
     public ItemStack parseMaterialStringToItem(String materialString, Player player, String langName) {
+        return parseMaterialStringToItem(materialString, player, langName, null);
+    }
+
+    /**
+     * Gets a Item from the specified material string, evaluating material expressions with the
+     * given variables layered over the language and global variables.
+     *
+     * @param materialString The material string to get the Material from.
+     * @param player         The player to use for placeholder replacements.
+     * @param langName       The language name to use for placeholder replacements.
+     * @param scope          The per-player variables to evaluate with, or null.
+     * @return The Item from the specified material string, or MHF_Question if the
+     * material is invalid.
+     */
+    public ItemStack parseMaterialStringToItem(String materialString, Player player, String langName, @Nullable VariableScope scope) {
         if (materialString == null) {
             return Utils.createSkull("MHF_Question", "MHF_Question", false);
         }
@@ -1105,7 +1730,7 @@ public class LanguageManager {
                 int open = expr.indexOf('(');
                 expr = expr.substring(open + 1, expr.length() - 1).trim();
             }
-            MaterialCondition cond = getExpressionEngineFor(player, langName).parse(expr, Material.BARRIER);
+            MaterialCondition cond = getExpressionEngineFor(player, langName).parse(expr, Material.BARRIER, scope);
             if (cond instanceof HeadMaterialCondition headCondition) {
                 if (headCondition.isHead()) {
                     return headCondition.getHead().getAsItem();
@@ -1169,19 +1794,157 @@ public class LanguageManager {
      * @return The formatted menu title for the player.
      */
     public String getMenuTitle(String path, Player player, String langName) {
-        applyPathExpressionVariables(player, path);
-        LanguageFile langFile = getLangOrPlayerLang(false, langName, player);
-        LanguageConfig langConfig = langFile.getLangConfig();
-        if (langConfig == null || langConfig.getConfig() == null)
-            return "null config";
-        if ((langConfig.getConfig().getString("MenuTitles." + path) == null || !langConfig.getConfig().contains("MenuTitles." + path)) && !getLanguageCache(langName).containsKey("MenuTitles." + path))
-            return "null path: MenuTitles." + path;
-        String title = getObjectFromLanguageCacheOrConfig("MenuTitles." + path, langName, String.class);
-        List<String> includedKeys = new ArrayList<>(getPlaceholderKeysInMessage(title, PlaceholderType.MENUTITLE));
-        title = replacePlaceholders(PlaceholderType.MENUTITLE, title);
-        resetSpecificPlaceholders(PlaceholderType.MENUTITLE, includedKeys);
-        title = parseEmbeddedExpressions(Utils.format(player, title, prefix), player, langName);
-        return title;
+        return getMenuTitle(path, player, langName, null);
+    }
+
+    /**
+     * Retrieves a menu title like {@link #getMenuTitle(String, Player, String)}, with the
+     * placeholders of the given context layered over the registered placeholders. If a
+     * context is given, the registered placeholders are not reset afterwards.
+     *
+     * @param path     The path to the menu title in the language configuration.
+     * @param player   The player for whom the menu title is intended.
+     * @param langName The name of the language to use.
+     * @param context  The placeholders for this title (nullable).
+     * @return The formatted menu title for the player.
+     */
+    public String getMenuTitle(String path, Player player, String langName, @Nullable PlaceholderContext context) {
+        LanguageCache langCache = getLanguageCache(langName);
+        MessageTemplate template = langCache != null ? langCache.getTemplate("MenuTitles." + path) : null;
+        if (template == null) {
+            LanguageFile langFile = getLangOrPlayerLang(false, langName, player);
+            LanguageConfig langConfig = langFile.getLangConfig();
+            if (langConfig == null || langConfig.getConfig() == null)
+                return "null config";
+            if (!langFile.getSnapshot().contains("MenuTitles." + path) && !langCache.containsKey("MenuTitles." + path))
+                return "null path: MenuTitles." + path;
+            String title = getObjectFromLanguageCacheOrConfig("MenuTitles." + path, langName, String.class);
+            template = compileTemplate(title);
+            langCache.putTemplate("MenuTitles." + path, template);
+        }
+        return renderTemplate(template, PlaceholderType.MENUTITLE, player, langName, path, context == null, context);
+    }
+
+    /**
+     * Replaces the {@link LanguageCache} of a language with one freshly built from its file.
+     *
+     * @param langName The name of the language to load.
+     */
+    private void loadLanguageCache(String langName) {
+        LanguageFile langFile = getLang(langName, false);
+        if (langFile == null || !languageCaches.containsKey(langName)) return;
+        languageCaches.put(langName, buildLanguageCache(langName, langFile.getSnapshot()));
+    }
+
+    /**
+     * Builds a {@link LanguageCache} for a language: all messages, items and menu titles are
+     * cached, and messages and menu titles are compiled into {@link MessageTemplate}s. The cache
+     * is not registered, so this can run on any thread.
+     *
+     * @param langName The name of the language.
+     * @param snapshot The snapshot of the language file.
+     * @return The filled cache.
+     */
+    private LanguageCache buildLanguageCache(String langName, LanguageSnapshot snapshot) {
+        LanguageCache langCache = new LanguageCache(langName, languageCacheCapacity);
+        langCache.preload(snapshot, PRELOAD_SECTIONS);
+        for (Map.Entry<String, Object> entry : snapshot.getValues().entrySet()) {
+            if (entry.getValue() instanceof String text && isInSection(entry.getKey(), TEMPLATE_SECTIONS)) {
+                langCache.putTemplate(entry.getKey(), compileTemplate(text));
+            }
+        }
+        return langCache;
+    }
+
+    /**
+     * Compiles a raw language text with the prefix inserted and colour codes translated.
+     *
+     * @param rawText The text as written in the language file.
+     * @return The compiled template.
+     */
+    private MessageTemplate compileTemplate(String rawText) {
+        return MessageTemplate.compile(Utils.chat(rawText.replace("%prefix%", prefix)));
+    }
+
+    /**
+     * Renders a compiled text for a player. Placeholder slots are resolved through PlaceholderAPI
+     * (if enabled and the slot's identifier is registered there) and the registered placeholders of the given type, expression slots with the
+     * player's engine and path variables. Context placeholders take precedence over all
+     * others. Placeholders whose keys are not of the form {@code %key%} cannot have slots
+     * and are replaced in the rendered text afterwards.
+     *
+     * @param template   The compiled text.
+     * @param type       The type of placeholders to use.
+     * @param player     The player to render the text for (nullable).
+     * @param langName   The name of the language the text belongs to.
+     * @param path       The path of the text below its section, for path expression variables.
+     * @param resetAfter Whether to reset the used placeholders afterwards.
+     * @param context    The placeholders for this call (nullable).
+     * @return The rendered text.
+     */
+    private String renderTemplate(MessageTemplate template, PlaceholderType type, Player player, String langName, String path,
+                                  boolean resetAfter, @Nullable PlaceholderContext context) {
+        List<String> includedKeys = new ArrayList<>();
+        String text = renderTemplate(template, type, player, langName, path, context, includedKeys);
+        if (resetAfter && !includedKeys.isEmpty()) resetSpecificPlaceholders(type, includedKeys);
+        return text;
+    }
+
+    /**
+     * Renders a template and adds the keys of all registered placeholders it used to
+     * {@code includedKeys}, so that several templates can be rendered before the placeholders
+     * are reset.
+     */
+    private String renderTemplate(MessageTemplate template, PlaceholderType type, Player player, String langName, String path,
+                                  @Nullable PlaceholderContext context, List<String> includedKeys) {
+        String text = template.getSource();
+        if (template.isDynamic()) {
+            Set<String> placeholderAPIKeys = isPlaceholderAPIEnabled() ? getPlaceholderAPIKeys(template) : Set.of();
+            text = template.render((key, lastColors) -> resolvePlaceholder(type, player, context, key, lastColors, placeholderAPIKeys),
+                    getExpressionEngineFor(player, langName), getPathExpressionScope(player, path));
+        }
+        if (context != null) {
+            for (String key : context.getKeys()) {
+                if (!MessageTemplate.isSlotKey(key) && template.getSource().contains(key)) {
+                    text = context.get(key).replace(text);
+                }
+            }
+        }
+        if (placeholders.isEmpty()) return text;
+
+        for (String key : template.getPlaceholderKeys()) {
+            if (placeholders.containsKey(key)) includedKeys.add(key);
+        }
+        List<String> unslottedKeys = placeholders.matcher().findKeys(template.getSource(),
+                key -> !MessageTemplate.isSlotKey(key) && getPlaceholder(type, key) != null);
+        if (!unslottedKeys.isEmpty()) {
+            includedKeys.addAll(unslottedKeys);
+            text = placeholders.matcher().replace(text, key -> unslottedKeys.contains(key) ? placeholders.get(key) : null);
+        }
+        return text;
+    }
+
+    private String resolvePlaceholder(PlaceholderType type, Player player, @Nullable PlaceholderContext context, String key,
+                                      String lastColors, Set<String> placeholderAPIKeys) {
+        Placeholder contextPlaceholder = context != null ? context.get(key) : null;
+        if (contextPlaceholder != null) return contextPlaceholder.format(lastColors);
+        if (placeholderAPIKeys.contains(key)) {
+            try {
+                String value = PlaceholderAPI.setPlaceholders(player, key);
+                if (!key.equals(value)) return value;
+            } catch (Exception ignored) {
+            }
+        }
+        Placeholder placeholder = getPlaceholder(type, key);
+        return placeholder != null ? placeholder.format(lastColors) : null;
+    }
+
+    private boolean isPlaceholderAPIEnabled() {
+        try {
+            return CoolStuffLib.getLib() != null && CoolStuffLib.getLib().isPlaceholderAPIEnabled();
+        } catch (Exception e) {
+            return false;
+        }
     }
 
     /**
@@ -1295,7 +2058,8 @@ public class LanguageManager {
     /**
      * Parses all embedded EXPRESSION(expr) or EXPR(expr) segments in the input string,
      * evaluates them, and replaces them with their results. If parsing fails, leaves
-     * the original text and stops further parsing.
+     * the original text and stops further parsing. Expressions may contain nested
+     * parentheses; each distinct input is split into a template once and then reused.
      *
      * @param input        The input string possibly containing embedded expressions.
      * @param player       The player context for per-player language (nullable).
@@ -1303,25 +2067,43 @@ public class LanguageManager {
      * @return The string with all embedded expressions evaluated and replaced.
      */
     public String parseEmbeddedExpressions(String input, Player player, String languageName) {
+        return parseEmbeddedExpressions(input, player, languageName, null);
+    }
+
+    /**
+     * Parses all embedded EXPRESSION(expr) or EXPR(expr) segments in the input string like
+     * {@link #parseEmbeddedExpressions(String, Player, String)}, with the given variables layered
+     * over the language and global variables of the engine.
+     *
+     * @param input        The input string possibly containing embedded expressions.
+     * @param player       The player context for per-player language (nullable).
+     * @param languageName The language context (nullable, uses default if null).
+     * @param scope        The per-player variables to evaluate with (nullable).
+     * @return The string with all embedded expressions evaluated and replaced.
+     */
+    public String parseEmbeddedExpressions(String input, Player player, String languageName, @Nullable VariableScope scope) {
         if (input == null) return null;
-        String regex = "(?i)(EXPRESSION|EXPR)\\(([^)]*)\\)";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(regex);
-        java.util.regex.Matcher matcher = pattern.matcher(input);
-        StringBuilder sb = new StringBuilder();
-        ExpressionEngine engine = getExpressionEngineFor(player, languageName);
-        while (matcher.find()) {
-            String expr = matcher.group(2);
-            Object result;
-            try {
-                result = engine.parse(expr, Object.class);
-                matcher.appendReplacement(sb, result == null ? "null" : Matcher.quoteReplacement(result.toString()));
-            } catch (Exception e) {
-                matcher.appendReplacement(sb, matcher.group(0));
-                break;
+        ExpressionTemplate template = getExpressionTemplate(input);
+        if (!template.hasExpressions()) return input;
+        return template.render(getExpressionEngineFor(player, languageName), scope);
+    }
+
+    /**
+     * Gets the compiled expression template for a text. Only templates that contain expression
+     * slots are cached; plain texts are cheap to scan and would otherwise flood the cache.
+     *
+     * @param input The text to compile
+     * @return The compiled template
+     */
+    private ExpressionTemplate getExpressionTemplate(String input) {
+        ExpressionTemplate template = expressionTemplates.get(input);
+        if (template == null) {
+            template = ExpressionTemplate.compile(input);
+            if (template.hasExpressions()) {
+                expressionTemplates.put(input, template);
             }
         }
-        matcher.appendTail(sb);
-        return sb.toString();
+        return template;
     }
 
     public LanguageFileMigrator createMigratorForLanguage(String langName) {
@@ -0,0 +1,158 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>An immutable, flattened copy of a language configuration: every value is stored under its
+ * full path (e.g. {@code Messages.Player.General.Reload}), so a lookup is a single hash probe
+ * instead of a walk through the configuration's section tree.</p>
+ *
+ * <p>Defaults of the configuration are included and overridden by its own values, as with
+ * {@link ConfigurationSection#get(String)}. A snapshot does not follow later changes to the
+ * configuration; {@link LanguageFile#getSnapshot()} creates a new one when the configuration is
+ * reloaded.</p>
+ */
+public final class LanguageSnapshot {
+    private static final LanguageSnapshot EMPTY = new LanguageSnapshot(null, Map.of(), Set.of());
+
+    private final ConfigurationSection source;
+    private final Map<String, Object> values;
+    private final Set<String> sections;
+
+    private LanguageSnapshot(ConfigurationSection source, Map<String, Object> values, Set<String> sections) {
+        this.source = source;
+        this.values = values;
+        this.sections = sections;
+    }
+
+    /**
+     * Returns the snapshot without any values.
+     *
+     * @return The empty snapshot
+     */
+    public static LanguageSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Flattens a configuration into a snapshot.
+     *
+     * @param root The configuration to copy
+     * @return The snapshot
+     */
+    public static LanguageSnapshot of(ConfigurationSection root) {
+        Map<String, Object> values = new HashMap<>();
+        Set<String> sections = new HashSet<>();
+        ConfigurationSection defaults = root.getDefaultSection();
+        if (defaults != null) {
+            collect(defaults, values, sections);
+        }
+        collect(root, values, sections);
+        return new LanguageSnapshot(root, Map.copyOf(values), Set.copyOf(sections));
+    }
+
+    private static void collect(ConfigurationSection section, Map<String, Object> values, Set<String> sections) {
+        for (Map.Entry<String, Object> entry : section.getValues(true).entrySet()) {
+            if (entry.getValue() instanceof ConfigurationSection) {
+                sections.add(entry.getKey());
+                values.remove(entry.getKey());
+            } else if (entry.getValue() != null) {
+                values.put(entry.getKey(), entry.getValue());
+                sections.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Checks whether this snapshot was created from the given configuration instance.
+     *
+     * @param configuration The configuration to compare with
+     * @return True if the snapshot is a copy of exactly this configuration
+     */
+    public boolean isFrom(ConfigurationSection configuration) {
+        return source == configuration;
+    }
+
+    /**
+     * Gets the value at a path.
+     *
+     * @param path The full path
+     * @return The value, or null if the path has no value or is a section
+     */
+    public Object get(String path) {
+        return values.get(path);
+    }
+
+    /**
+     * Gets the value at a path if it has the given type.
+     *
+     * @param path  The full path
+     * @param clazz The expected type
+     * @param <T>   The expected type
+     * @return The value, or null if the path has no value of that type
+     */
+    public <T> T get(String path, Class<T> clazz) {
+        Object value = values.get(path);
+        return clazz.isInstance(value) ? clazz.cast(value) : null;
+    }
+
+    /**
+     * Checks whether a path has a value or is a section.
+     *
+     * @param path The full path
+     * @return True if the path exists
+     */
+    public boolean contains(String path) {
+        return values.containsKey(path) || sections.contains(path);
+    }
+
+    /**
+     * Checks whether a path is a section.
+     *
+     * @param path The full path
+     * @return True if the path is a section
+     */
+    public boolean isSection(String path) {
+        return sections.contains(path);
+    }
+
+    /**
+     * Returns all values by their full path.
+     *
+     * @return An unmodifiable map of all values
+     */
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    /**
+     * Compares this snapshot with a newer one of the same language.
+     *
+     * @param newer The snapshot to compare with
+     * @return The paths whose value was added, removed or changed
+     */
+    public Set<String> getChangedPaths(LanguageSnapshot newer) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!Objects.equals(entry.getValue(), newer.values.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String path : newer.values.keySet()) {
+            if (!values.containsKey(path)) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,298 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionEngine;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionTemplate;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.VariableScope;
+import de.happybavarian07.coolstufflib.utils.ColorFormatter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * <p>A language text compiled once into literal runs, {@code %placeholder%} slots and embedded
+ * {@code EXPR(...)} slots, so that sending it is a single pass over the parts instead of searching
+ * the text for every registered placeholder.</p>
+ *
+ * <p>The text is compiled after the prefix has been inserted and colour codes have been
+ * translated, so literal runs are stored ready to send. A placeholder slot is any {@code %key%}
+ * without whitespace; whether it is a {@link Placeholder} of the manager, a PlaceholderAPI
+ * placeholder or plain text is decided by the {@link PlaceholderResolver} at render time, because
+ * placeholders are registered while the plugin runs. Slots inside an expression are resolved
+ * before the expression is evaluated.</p>
+ */
+public final class MessageTemplate {
+    private final String source;
+    private final Part[] parts;
+    private final List<String> placeholderKeys;
+    private volatile FilteredKeys filteredKeys;
+
+    private MessageTemplate(String source, Part[] parts, List<String> placeholderKeys) {
+        this.source = source;
+        this.parts = parts;
+        this.placeholderKeys = placeholderKeys;
+    }
+
+    /**
+     * Compiles an already formatted text into a template.
+     *
+     * @param text The text with the prefix inserted and colour codes translated
+     * @return The compiled template
+     */
+    public static MessageTemplate compile(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Template text cannot be null");
+        }
+        ExpressionTemplate slots = ExpressionTemplate.compile(text);
+        List<String> literals = slots.getLiterals();
+        List<String> expressions = slots.getExpressions();
+        List<Part> parts = new ArrayList<>();
+        Set<String> keys = new LinkedHashSet<>();
+        ColorCursor colors = new ColorCursor(text);
+        int offset = 0;
+        for (int i = 0; i < literals.size(); i++) {
+            String literal = literals.get(i);
+            addTextParts(colors, offset, literal, parts, keys);
+            offset += literal.length();
+            if (i == expressions.size()) {
+                break;
+            }
+            String marker = slots.getMarker(i);
+            String expression = expressions.get(i);
+            List<Part> body = new ArrayList<>();
+            addTextParts(colors, offset + marker.length(), expression, body, keys);
+            boolean dynamic = body.stream().anyMatch(part -> part instanceof Slot);
+            parts.add(new Expression(marker, dynamic ? body.toArray(new Part[0]) : null, dynamic ? null : expression));
+            offset += marker.length() + expression.length() + 1;
+        }
+        return new MessageTemplate(text, parts.toArray(new Part[0]), List.copyOf(keys));
+    }
+
+    private static void addTextParts(ColorCursor colors, int offset, String segment, List<Part> parts, Set<String> keys) {
+        int literalStart = 0;
+        int start = segment.indexOf('%');
+        while (start != -1) {
+            int end = segment.indexOf('%', start + 1);
+            if (end == -1) {
+                break;
+            }
+            if (!isKeyBody(segment, start + 1, end)) {
+                // The closing sign may still open the next placeholder, e.g. "50% off %item%"
+                start = end;
+                continue;
+            }
+            if (start > literalStart) {
+                parts.add(new Text(segment.substring(literalStart, start)));
+            }
+            String key = segment.substring(start, end + 1);
+            parts.add(new Slot(key, colors.getLastColorsAt(offset + start)));
+            keys.add(key);
+            literalStart = end + 1;
+            start = segment.indexOf('%', literalStart);
+        }
+        if (literalStart < segment.length()) {
+            parts.add(new Text(segment.substring(literalStart)));
+        }
+    }
+
+    private static boolean isKeyBody(String text, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a placeholder key can be found by a template slot, i.e. it has the form
+     * {@code %key%} without whitespace. Other keys have to be replaced in the rendered text.
+     *
+     * @param key The placeholder key
+     * @return True if templates resolve the key through their slots
+     */
+    public static boolean isSlotKey(String key) {
+        return key.length() > 2 && key.charAt(0) == '%' && key.charAt(key.length() - 1) == '%'
+                && isKeyBody(key, 1, key.length() - 1);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param resolver The resolver for placeholder slots
+     * @param engine   The engine to evaluate expression slots with; if null, they are kept as text
+     * @param scope    The variables to layer over the engine's variables, or null
+     * @return The rendered text. If an expression fails, it and all following expressions are
+     * kept as text, with their placeholders resolved.
+     */
+    public String render(PlaceholderResolver resolver, @Nullable ExpressionEngine engine, @Nullable VariableScope scope) {
+        StringBuilder builder = new StringBuilder(source.length() + 16);
+        boolean evaluate = engine != null;
+        for (Part part : parts) {
+            if (part instanceof Text text) {
+                builder.append(text.text());
+            } else if (part instanceof Slot slot) {
+                appendSlot(builder, slot, resolver);
+            } else if (part instanceof Expression expression) {
+                String text = expression.text() != null ? expression.text() : renderBody(expression.body(), resolver);
+                if (evaluate) {
+                    try {
+                        builder.append(engine.parse(text, Object.class, scope));
+                        continue;
+                    } catch (RuntimeException e) {
+                        evaluate = false;
+                    }
+                }
+                builder.append(expression.marker()).append(text).append(')');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String renderBody(Part[] body, PlaceholderResolver resolver) {
+        StringBuilder builder = new StringBuilder();
+        for (Part part : body) {
+            if (part instanceof Slot slot) {
+                appendSlot(builder, slot, resolver);
+            } else {
+                builder.append(((Text) part).text());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendSlot(StringBuilder builder, Slot slot, PlaceholderResolver resolver) {
+        String value = resolver.resolve(slot.key(), slot.lastColors());
+        builder.append(value != null ? value : slot.key());
+    }
+
+    /**
+     * Checks whether the template contains placeholder or expression slots.
+     *
+     * @return False if rendering always returns the source text
+     */
+    public boolean isDynamic() {
+        for (Part part : parts) {
+            if (!(part instanceof Text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the template contains embedded expressions, whose result may depend on the
+     * variables of the player it is rendered for.
+     *
+     * @return True if the template has at least one expression slot
+     */
+    public boolean hasExpressions() {
+        for (Part part : parts) {
+            if (part instanceof Expression) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the formatted text the template was compiled from.
+     *
+     * @return The source text
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the distinct keys of all placeholder slots, including those inside expressions.
+     *
+     * @return The placeholder keys in order of first appearance
+     */
+    public List<String> getPlaceholderKeys() {
+        return placeholderKeys;
+    }
+
+    /**
+     * Returns the placeholder keys accepted by a filter. The result is computed on the first call
+     * and reused for as long as the same version is passed, so a decision that depends on state
+     * outside the template, e.g. which PlaceholderAPI expansions are registered, is made once per
+     * template and state. A template keeps the result of one filter at a time.
+     *
+     * @param filter  The filter for the keys
+     * @param version The version of the state the filter depends on
+     * @return The accepted keys
+     */
+    public Set<String> getPlaceholderKeys(Predicate<String> filter, int version) {
+        FilteredKeys cached = filteredKeys;
+        if (cached == null || cached.version() != version) {
+            Set<String> keys = new LinkedHashSet<>();
+            for (String key : placeholderKeys) {
+                if (filter.test(key)) keys.add(key);
+            }
+            cached = new FilteredKeys(version, Set.copyOf(keys));
+            filteredKeys = cached;
+        }
+        return cached.keys();
+    }
+
+    /**
+     * Resolves the value of a placeholder slot while a template is rendered.
+     */
+    @FunctionalInterface
+    public interface PlaceholderResolver {
+        /**
+         * Resolves a placeholder.
+         *
+         * @param key        The placeholder key including its percent signs
+         * @param lastColors The colour codes in effect before the slot, to continue after a
+         *                   coloured value
+         * @return The value to insert, or null to keep the key as text
+         */
+        @Nullable
+        String resolve(String key, String lastColors);
+    }
+
+    private sealed interface Part permits Text, Slot, Expression {
+    }
+
+    private record Text(String text) implements Part {
+    }
+
+    /**
+     * Reads the colours in effect at increasing positions of the source text, looking at each
+     * character once.
+     */
+    private static final class ColorCursor {
+        private final String source;
+        private final ColorFormatter.LastColorTracker tracker = new ColorFormatter.LastColorTracker();
+        private int position;
+
+        private ColorCursor(String source) {
+            this.source = source;
+        }
+
+        private String getLastColorsAt(int index) {
+            if (index > position) {
+                tracker.append(source, position, index);
+                position = index;
+            }
+            return tracker.getLastColors();
+        }
+    }
+
+    private record Slot(String key, String lastColors) implements Part {
+    }
+
+    private record Expression(String marker, Part[] body, String text) implements Part {
+    }
+
+    private record FilteredKeys(int version, Set<String> keys) {
+    }
+}
@@ -3,61 +3,197 @@ package de.happybavarian07.coolstufflib.languagemanager;/*
  * @Date 26.04.2022 | 17:05
  */
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 
+/**
+ * <p>Stores the language of each player. The languages are kept in memory; changes are collected
+ * and written to the data file in one batch on a background thread shortly after the first
+ * change, so setting a language never blocks the calling thread on disk I/O. Several changes for
+ * the same player within one batch are written only once.</p>
+ *
+ * <p>{@link #close()} writes the remaining changes when the plugin is disabled; the lib calls
+ * it through {@link de.happybavarian07.coolstufflib.CoolStuffLib#shutdown()} once the plugin
+ * using it is disabled.</p>
+ */
 public class PerPlayerLanguageHandler {
+    /**
+     * The time in milliseconds between the first unsaved change and the write of the batch,
+     * unless another delay is given.
+     */
+    public static final long DEFAULT_FLUSH_DELAY_MILLIS = 5000;
+
     private final LanguageManager lgm;
     private final File dataFile;
     private final FileConfiguration dataConfig;
+    private final ConcurrentMap<UUID, String> playerLanguages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Optional<String>> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final Object fileLock = new Object();
+    private final ScheduledThreadPoolExecutor writer;
+    private final long flushDelayMillis;
+    private volatile boolean closed = false;
 
     public PerPlayerLanguageHandler(LanguageManager lgm, File dataFile, FileConfiguration dataConfig) {
+        this(lgm, dataFile, dataConfig, DEFAULT_FLUSH_DELAY_MILLIS);
+    }
+
+    /**
+     * Creates a handler and reads the languages stored in the data file.
+     *
+     * @param lgm              The LanguageManager the languages belong to
+     * @param dataFile         The file the languages are written to
+     * @param dataConfig       The loaded contents of the data file
+     * @param flushDelayMillis The time between the first unsaved change and the write of the batch
+     */
+    public PerPlayerLanguageHandler(LanguageManager lgm, File dataFile, FileConfiguration dataConfig, long flushDelayMillis) {
         this.lgm = lgm;
         this.dataFile = dataFile;
         this.dataConfig = dataConfig;
+        this.flushDelayMillis = flushDelayMillis;
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "PlayerLanguage-Writer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        ConfigurationSection playerData = dataConfig.getConfigurationSection("playerdata");
+        if (playerData != null) {
+            for (String uuid : playerData.getKeys(false)) {
+                String language = playerData.getString(uuid + ".language");
+                if (language == null) continue;
+                try {
+                    playerLanguages.put(UUID.fromString(uuid), language);
+                } catch (IllegalArgumentException e) {
+                    LanguageManager.getLogger().log(Level.WARNING, "Invalid player UUID in language data: " + uuid);
+                }
+            }
+        }
     }
 
     public String getPlayerLanguageName(UUID uuid) {
-        return dataConfig.getString("playerdata." + uuid.toString() + ".language", lgm.getCurrentLangName());
+        return playerLanguages.getOrDefault(uuid, lgm.getCurrentLangName());
     }
 
     public LanguageFile getPlayerLanguage(UUID uuid) {
-        return lgm.getLang(dataConfig.getString("playerdata." + uuid.toString() + ".language", lgm.getCurrentLangName()), true);
+        return lgm.getLang(getPlayerLanguageName(uuid), true);
     }
 
     public Map<UUID, LanguageFile> getPlayerLanguages() {
         Map<UUID, LanguageFile> playerLangs = new HashMap<>();
-        for(String configSec : dataConfig.getConfigurationSection("playerdata").getKeys(false)) {
-            playerLangs.put(UUID.fromString(configSec),
-                    lgm.getLang(dataConfig.getString("playerdata." + UUID.fromString(configSec).toString() + ".language",
-                            lgm.getCurrentLangName()), true));
+        for (Map.Entry<UUID, String> entry : playerLanguages.entrySet()) {
+            playerLangs.put(entry.getKey(), lgm.getLang(entry.getValue(), true));
         }
         return playerLangs;
     }
 
     public void setPlayerLanguage(UUID uuid, String language) {
-        if(lgm.getLang(language, false) == null) language = lgm.getCurrentLangName();
-        dataConfig.set("playerdata." + uuid.toString() + ".language", language);
+        if (lgm.getLang(language, false) == null) language = lgm.getCurrentLangName();
+        playerLanguages.put(uuid, language);
+        pendingChanges.put(uuid, Optional.of(language));
+        if (lgm.isLazyLoading()) lgm.activateLanguage(language);
 
-        saveConfig();
+        scheduleFlush();
+    }
+
+    /**
+     * Loads the stored language of a player in the background if languages are loaded lazily,
+     * so that it is ready when the player joins. Does nothing for players without a stored
+     * language or if the language is already loaded.
+     *
+     * @param uuid The UUID of the player
+     */
+    public void activatePlayerLanguage(UUID uuid) {
+        if (!lgm.isLazyLoading()) return;
+        String language = playerLanguages.get(uuid);
+        if (language != null && !lgm.isLanguageActive(language)) lgm.activateLanguage(language);
     }
 
     public void removePlayerLanguage(UUID uuid) {
-        dataConfig.set("playerdata." + uuid.toString(), null);
+        playerLanguages.remove(uuid);
+        pendingChanges.put(uuid, Optional.empty());
 
-        saveConfig();
+        scheduleFlush();
     }
 
+    /**
+     * Returns the number of changes that have not been written to the data file yet.
+     *
+     * @return The number of players with unsaved changes
+     */
+    public int getPendingChangeCount() {
+        return pendingChanges.size();
+    }
+
+    private void scheduleFlush() {
+        if (closed) {
+            saveConfig();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(this::saveConfig, flushDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                saveConfig();
+            }
+        }
+    }
+
+    /**
+     * Writes all pending changes to the data file on the calling thread.
+     */
     public void saveConfig() {
+        synchronized (fileLock) {
+            flushScheduled.set(false);
+            if (pendingChanges.isEmpty()) return;
+            for (Map.Entry<UUID, Optional<String>> change : pendingChanges.entrySet()) {
+                Optional<String> language = change.getValue();
+                if (language.isPresent()) {
+                    dataConfig.set("playerdata." + change.getKey() + ".language", language.get());
+                } else {
+                    dataConfig.set("playerdata." + change.getKey(), null);
+                }
+                pendingChanges.remove(change.getKey(), language);
+            }
+            try {
+                dataConfig.save(dataFile);
+            } catch (IOException e) {
+                LanguageManager.getLogger().log(Level.SEVERE, "Could not save player languages to " + dataFile, e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background writer and writes all pending changes. Changes made afterwards are
+     * written immediately.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        writer.shutdown();
         try {
-            dataConfig.save(dataFile);
-        } catch (IOException e) {
-            e.printStackTrace();
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
         }
+
+        saveConfig();
     }
 }
@@ -3,8 +3,7 @@ package de.happybavarian07.coolstufflib.languagemanager;/*
  * @Date 25.04.2022 | 17:07
  */
 
-import de.happybavarian07.coolstufflib.utils.Utils;
-import org.bukkit.ChatColor;
+import de.happybavarian07.coolstufflib.utils.ColorFormatter;
 
 public record Placeholder(String key, Object value, PlaceholderType type) {
     /**
@@ -29,12 +28,14 @@ public record Placeholder(String key, Object value, PlaceholderType type) {
         if (value == null) throw new NullPointerException("The Value of Key " + key + " is null");
         if (value instanceof String) {
             StringBuilder result = new StringBuilder();
+            ColorFormatter.LastColorTracker colors = new ColorFormatter.LastColorTracker();
             int start = 0;
             int idx;
             while ((idx = s.indexOf(key, start)) != -1) {
-                String prefix = s.substring(0, idx);
+                colors.append(s, start, idx);
                 result.append(s, start, idx);
-                result.append(Utils.chat(value + ChatColor.getLastColors(prefix)));
+                result.append(format(colors.getLastColors()));
+                colors.append(key);
                 start = idx + key.length();
             }
             result.append(s.substring(start));
@@ -43,6 +44,20 @@ public record Placeholder(String key, Object value, PlaceholderType type) {
         return s.replace(key, value.toString());
     }
 
+    /**
+     * The format function returns the text that replaces the placeholder. String values
+     * are colour translated and followed by the colours that were active before the
+     * placeholder, so the rest of the text keeps its colour.
+     *
+     * @param lastColors The colour codes in effect before the placeholder
+     * @return The replacement text
+     */
+    public String format(String lastColors) {
+        if (value == null) throw new NullPointerException("The Value of Key " + key + " is null");
+        if (value instanceof String) return ColorFormatter.translate((String) value) + lastColors;
+        return value.toString();
+    }
+
     public boolean stringContainsPlaceholder(String s) {
         return s.contains(key);
     }
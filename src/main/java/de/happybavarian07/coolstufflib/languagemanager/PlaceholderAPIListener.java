@@ -0,0 +1,30 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import me.clip.placeholderapi.events.ExpansionRegisterEvent;
+import me.clip.placeholderapi.events.ExpansionUnregisterEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Tells a {@link LanguageManager} when PlaceholderAPI expansions change, so that the cached
+ * decisions which message slots PlaceholderAPI resolves are made again. Only registered when
+ * PlaceholderAPI is enabled.
+ */
+public class PlaceholderAPIListener implements Listener {
+    private final LanguageManager languageManager;
+
+    public PlaceholderAPIListener(LanguageManager languageManager) {
+        this.languageManager = languageManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onExpansionRegister(ExpansionRegisterEvent event) {
+        languageManager.invalidatePlaceholderAPIKeys();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onExpansionUnregister(ExpansionUnregisterEvent event) {
+        languageManager.invalidatePlaceholderAPIKeys();
+    }
+}
@@ -0,0 +1,120 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>An immutable set of placeholders for a single message, passed to methods such as
+ * {@link LanguageManager#getMessage(String, org.bukkit.entity.Player, PlaceholderContext)}.</p>
+ *
+ * <p>Context placeholders are layered over the placeholders registered in the
+ * {@link LanguageManager} and take precedence over them. Unlike
+ * {@link LanguageManager#addPlaceholder(PlaceholderType, String, Object, boolean)} they do not
+ * modify shared state and do not have to be reset, so messages can be rendered with different
+ * contexts from several threads at once. Contexts are copy-on-write and can be reused.</p>
+ *
+ * <pre><code>
+ * PlaceholderContext context = PlaceholderContext.of("%invalidArgs%", invalidArgs);
+ * sender.sendMessage(lgm.getMessage("Player.Commands.CommandContainsInvalidArgs", player, context));
+ * </code></pre>
+ */
+public final class PlaceholderContext {
+    private static final PlaceholderContext EMPTY = new PlaceholderContext(Map.of());
+
+    private final Map<String, Placeholder> placeholders;
+
+    private PlaceholderContext(Map<String, Placeholder> placeholders) {
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Returns the shared context without placeholders.
+     *
+     * @return The empty context
+     */
+    public static PlaceholderContext empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a context with a single placeholder.
+     *
+     * @param key   The placeholder key, e.g. {@code %player%}
+     * @param value The value to replace the key with
+     * @return The new context
+     */
+    public static PlaceholderContext of(String key, Object value) {
+        return EMPTY.with(key, value);
+    }
+
+    /**
+     * Returns a copy of this context with the given placeholder added or replaced.
+     *
+     * @param key   The placeholder key, e.g. {@code %player%}
+     * @param value The value to replace the key with
+     * @return The new context
+     */
+    public PlaceholderContext with(String key, Object value) {
+        Map<String, Placeholder> copy = new HashMap<>(placeholders);
+        copy.put(checkKey(key), new Placeholder(key, checkValue(key, value), PlaceholderType.ALL));
+        return new PlaceholderContext(copy);
+    }
+
+    /**
+     * Returns a copy of this context with all given placeholders added or replaced.
+     *
+     * @param values The placeholder values by key
+     * @return The new context
+     */
+    public PlaceholderContext withAll(Map<String, ?> values) {
+        if (values.isEmpty()) return this;
+        Map<String, Placeholder> copy = new HashMap<>(placeholders);
+        values.forEach((key, value) ->
+                copy.put(checkKey(key), new Placeholder(key, checkValue(key, value), PlaceholderType.ALL)));
+        return new PlaceholderContext(copy);
+    }
+
+    private static String checkKey(String key) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("Placeholder key cannot be null or empty");
+        }
+        return key;
+    }
+
+    private static Object checkValue(String key, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The Value of Key " + key + " is null");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the placeholder for a key.
+     *
+     * @param key The placeholder key
+     * @return The placeholder, or null if the context has no value for the key
+     */
+    public Placeholder get(String key) {
+        return placeholders.get(key);
+    }
+
+    /**
+     * Returns the keys of all placeholders in this context.
+     *
+     * @return An unmodifiable view of the keys
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(placeholders.keySet());
+    }
+
+    /**
+     * Checks whether this context has no placeholders.
+     *
+     * @return True if the context is empty
+     */
+    public boolean isEmpty() {
+        return placeholders.isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>The placeholder map of a {@link LanguageManager}. It keeps a {@link PlaceholderMatcher} over
+ * its keys, which is built on first use and rebuilt only after a key was added that the matcher
+ * does not know yet.</p>
+ *
+ * <p>Removed keys stay in the matcher until the next rebuild, so the common pattern of resetting
+ * placeholders and adding the same keys again with new values does not rebuild it. The map is
+ * safe to read while messages are rendered on other threads.</p>
+ */
+class PlaceholderMap extends ConcurrentHashMap<String, Placeholder> {
+    private final AtomicInteger keyVersion = new AtomicInteger();
+    private transient volatile IndexedKeys indexedKeys;
+
+    /**
+     * Gets the matcher over the current keys, building it if a new key was added since it was
+     * last built.
+     *
+     * @return The matcher
+     */
+    PlaceholderMatcher matcher() {
+        IndexedKeys current = indexedKeys;
+        // Read the version before the keys: a key added during the build bumps it afterwards
+        int version = keyVersion.get();
+        if (current == null || current.version() != version) {
+            current = new IndexedKeys(PlaceholderMatcher.build(keySet()), version);
+            indexedKeys = current;
+        }
+        return current.matcher();
+    }
+
+    private boolean isNewKey(String key) {
+        IndexedKeys current = indexedKeys;
+        return current == null || !current.matcher().contains(key);
+    }
+
+    @Override
+    public Placeholder put(String key, Placeholder value) {
+        boolean newKey = isNewKey(key);
+        Placeholder previous = super.put(key, value);
+        if (newKey) keyVersion.incrementAndGet();
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Placeholder> map) {
+        map.forEach(this::put);
+    }
+
+    @Override
+    public Placeholder putIfAbsent(String key, Placeholder value) {
+        boolean newKey = isNewKey(key);
+        Placeholder previous = super.putIfAbsent(key, value);
+        if (newKey) keyVersion.incrementAndGet();
+        return previous;
+    }
+
+    @Override
+    public Placeholder computeIfAbsent(String key, Function<? super String, ? extends Placeholder> mappingFunction) {
+        boolean newKey = isNewKey(key);
+        Placeholder value = super.computeIfAbsent(key, mappingFunction);
+        if (newKey) keyVersion.incrementAndGet();
+        return value;
+    }
+
+    @Override
+    public Placeholder compute(String key, BiFunction<? super String, ? super Placeholder, ? extends Placeholder> remappingFunction) {
+        boolean newKey = isNewKey(key);
+        Placeholder value = super.compute(key, remappingFunction);
+        if (newKey) keyVersion.incrementAndGet();
+        return value;
+    }
+
+    @Override
+    public Placeholder merge(String key, Placeholder value, BiFunction<? super Placeholder, ? super Placeholder, ? extends Placeholder> remappingFunction) {
+        boolean newKey = isNewKey(key);
+        Placeholder merged = super.merge(key, value, remappingFunction);
+        if (newKey) keyVersion.incrementAndGet();
+        return merged;
+    }
+
+    private record IndexedKeys(PlaceholderMatcher matcher, int version) {
+    }
+}
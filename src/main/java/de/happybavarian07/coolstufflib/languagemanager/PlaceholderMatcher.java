@@ -0,0 +1,198 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import de.happybavarian07.coolstufflib.utils.ColorFormatter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>An Aho-Corasick automaton over a set of placeholder keys. It finds all keys in a text in one
+ * scan, independent of how many keys are registered, and builds the replaced text in a single
+ * buffer.</p>
+ *
+ * <p>The automaton only knows keys, not values. Values are looked up when a key is found, so
+ * placeholders can change their values or be removed without rebuilding it.</p>
+ */
+final class PlaceholderMatcher {
+    private static final int ROOT = 0;
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    private final String[] keys;
+    private final int[] output;
+
+    private PlaceholderMatcher(char[][] labels, int[][] targets, int[] fail, String[] keys, int[] output) {
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.keys = keys;
+        this.output = output;
+    }
+
+    /**
+     * Builds an automaton over the given keys. Empty keys are ignored.
+     *
+     * @param placeholderKeys The keys to find
+     * @return The automaton
+     */
+    static PlaceholderMatcher build(Collection<String> placeholderKeys) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<String> terminals = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminals.add(null);
+        for (String key : placeholderKeys) {
+            if (key == null || key.isEmpty()) continue;
+            int node = ROOT;
+            for (int i = 0; i < key.length(); i++) {
+                Integer child = trie.get(node).get(key.charAt(i));
+                if (child == null) {
+                    child = trie.size();
+                    trie.get(node).put(key.charAt(i), child);
+                    trie.add(new TreeMap<>());
+                    terminals.add(null);
+                }
+                node = child;
+            }
+            terminals.set(node, key);
+        }
+
+        int size = trie.size();
+        char[][] labels = new char[size][];
+        int[][] targets = new int[size][];
+        for (int node = 0; node < size; node++) {
+            TreeMap<Character, Integer> children = trie.get(node);
+            labels[node] = children.isEmpty() ? NO_LABELS : new char[children.size()];
+            targets[node] = children.isEmpty() ? NO_TARGETS : new int[children.size()];
+            int index = 0;
+            for (Map.Entry<Character, Integer> child : children.entrySet()) {
+                labels[node][index] = child.getKey();
+                targets[node][index++] = child.getValue();
+            }
+        }
+
+        PlaceholderMatcher matcher = new PlaceholderMatcher(labels, targets, new int[size],
+                terminals.toArray(new String[0]), new int[size]);
+        matcher.link();
+        return matcher;
+    }
+
+    // Computes failure links breadth first, and for every node the nearest suffix node that ends a key
+    private void link() {
+        Arrays.fill(output, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                char c = labels[node][i];
+                int child = targets[node][i];
+                int f = fail[node];
+                while (f != ROOT && child(f, c) == -1) {
+                    f = fail[f];
+                }
+                int target = child(f, c);
+                fail[child] = target != -1 ? target : ROOT;
+                output[child] = keys[fail[child]] != null ? fail[child] : output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int child(int node, char c) {
+        int index = Arrays.binarySearch(labels[node], c);
+        return index >= 0 ? targets[node][index] : -1;
+    }
+
+    private int next(int node, char c) {
+        while (true) {
+            int child = child(node, c);
+            if (child != -1) return child;
+            if (node == ROOT) return ROOT;
+            node = fail[node];
+        }
+    }
+
+    /**
+     * Checks whether a key is part of the automaton.
+     *
+     * @param key The key to check
+     * @return True if {@link #replace} and {@link #findKeys} find the key
+     */
+    boolean contains(String key) {
+        int node = ROOT;
+        for (int i = 0; i < key.length() && node != -1; i++) {
+            node = child(node, key.charAt(i));
+        }
+        return node != -1 && key.equals(keys[node]);
+    }
+
+    /**
+     * Replaces all keys in the text in one scan. Where keys overlap, the key that ends first is
+     * replaced and, of those, the longest. Replaced values are not scanned again. String values are
+     * followed by the colours active before the key, like {@link Placeholder#replace(String)}.
+     *
+     * @param text   The text to replace keys in
+     * @param lookup Returns the placeholder for a found key, or null to leave the key unchanged
+     * @return The replaced text, or the same instance if nothing was replaced
+     */
+    String replace(String text, Function<String, Placeholder> lookup) {
+        StringBuilder builder = null;
+        ColorFormatter.LastColorTracker colors = null;
+        int copied = 0;
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            for (int match = keys[node] != null ? node : output[node]; match != -1; match = output[match]) {
+                Placeholder placeholder = lookup.apply(keys[match]);
+                if (placeholder == null) continue;
+                if (builder == null) {
+                    builder = new StringBuilder(text.length() + 32);
+                    colors = new ColorFormatter.LastColorTracker();
+                }
+                int keyStart = i + 1 - keys[match].length();
+                builder.append(text, copied, keyStart);
+                colors.append(text, copied, keyStart);
+                String value = placeholder.format(placeholder.value() instanceof String ? colors.getLastColors() : "");
+                builder.append(value);
+                colors.append(value);
+                copied = i + 1;
+                node = ROOT;
+                break;
+            }
+        }
+        if (builder == null) return text;
+        return builder.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Finds the distinct keys that occur anywhere in the text, including overlapping ones.
+     *
+     * @param text   The text to search
+     * @param filter Which of the found keys to include
+     * @return The found keys in order of their first end position
+     */
+    List<String> findKeys(String text, Predicate<String> filter) {
+        List<String> found = new ArrayList<>();
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            for (int match = keys[node] != null ? node : output[node]; match != -1; match = output[match]) {
+                if (!found.contains(keys[match]) && filter.test(keys[match])) found.add(keys[match]);
+            }
+        }
+        return found;
+    }
+}
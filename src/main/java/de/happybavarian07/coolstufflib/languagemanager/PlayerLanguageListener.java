@@ -0,0 +1,28 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+/**
+ * Starts loading the stored language of a player while they are still logging in, so that a
+ * lazily loaded language (see {@link LanguageManager#setLazyLoading(boolean)}) is usually
+ * ready before the first message is sent to the player.
+ */
+public class PlayerLanguageListener implements Listener {
+    private final LanguageManager languageManager;
+
+    public PlayerLanguageListener(LanguageManager languageManager) {
+        this.languageManager = languageManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        PerPlayerLanguageHandler playerLanguageHandler = languageManager.getPLHandler();
+        if (playerLanguageHandler != null) {
+            playerLanguageHandler.activatePlayerLanguage(event.getUniqueId());
+        }
+    }
+}
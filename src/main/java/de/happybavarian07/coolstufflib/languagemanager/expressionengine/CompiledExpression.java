@@ -0,0 +1,81 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+
+/**
+ * <p>A pre-linked, closure based form of a parsed {@link Parser.Expression}.</p>
+ *
+ * <p>Compiled expressions are produced by the {@link ExpressionCompiler}. Operator dispatch,
+ * literal conversion and function lookups are resolved once at compile time, so evaluating a
+ * compiled expression only walks a tree of small closures instead of going through the
+ * {@link Interpreter} visitor for every node.</p>
+ *
+ * <p>A compiled expression is bound to the function registry of the interpreter it was compiled
+ * against. Registering or unregistering functions, or changing the function white-/blacklist,
+ * makes it stale; use {@link #isLinkedTo(Interpreter)} to check before reusing it.</p>
+ *
+ * <pre><code>
+ * ExpressionCompiler compiler = new ExpressionCompiler(interpreter);
+ * CompiledExpression compiled = compiler.compile(parsedExpression);
+ * Object result = compiled.evaluate(interpreter);
+ * </code></pre>
+ */
+public final class CompiledExpression {
+    private final Parser.Expression source;
+    private final Node root;
+    private final int linkVersion;
+
+    CompiledExpression(Parser.Expression source, Node root, int linkVersion) {
+        this.source = source;
+        this.root = root;
+        this.linkVersion = linkVersion;
+    }
+
+    /**
+     * Evaluates the compiled expression using the variables and context of the given interpreter.
+     *
+     * @param interpreter The interpreter providing variables and context
+     * @return The result of the evaluation
+     * @throws ExpressionEngineException if an error occurs during evaluation or a function call
+     *                                   exceeds the interpreter's step, time or depth budget
+     */
+    public Object evaluate(Interpreter interpreter) {
+        interpreter.beginEvaluation();
+        try {
+            return root.evaluate(interpreter);
+        } catch (ExpressionEngineException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ExpressionEngineException("Error evaluating expression: " + e.getMessage(), e);
+        } finally {
+            interpreter.endEvaluation();
+        }
+    }
+
+    /**
+     * Returns the parsed expression this compiled form was created from.
+     *
+     * @return The source expression tree
+     */
+    public Parser.Expression getSource() {
+        return source;
+    }
+
+    /**
+     * Checks whether the call sites of this expression are still valid for the given interpreter.
+     *
+     * @param interpreter The interpreter to check against
+     * @return True if no function registrations changed since compilation, false otherwise
+     */
+    public boolean isLinkedTo(Interpreter interpreter) {
+        return interpreter.getLinkVersion() == linkVersion;
+    }
+
+    /**
+     * A single compiled node of the expression tree.
+     */
+    @FunctionalInterface
+    interface Node {
+        Object evaluate(Interpreter interpreter);
+    }
+}
@@ -0,0 +1,116 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>A list of expressions that is parsed once and evaluated together against one set of variables.</p>
+ *
+ * <p>Rendering a menu page or a message usually evaluates many small expressions for the same
+ * player. A batch binds the variables once per evaluation instead of once per expression, and
+ * all expressions share the parse and result caches of the {@link ExpressionEngine} that
+ * prepared the batch. Results are returned in the order of the expressions.</p>
+ *
+ * <p>Large batches can be split across a {@link ForkJoinPool}; every chunk then runs on its own
+ * interpreter frame (see {@link Interpreter#newFrame()}), so the engine's shared interpreter is
+ * never used from more than one thread.</p>
+ *
+ * <pre><code>
+ * ExpressionBatch batch = engine.prepareBatch(List.of("level * 2", "rank == 'admin'"));
+ * List&lt;Object&gt; results = batch.evaluate(Map.of("level", 10, "rank", "admin"));
+ * </code></pre>
+ */
+public final class ExpressionBatch {
+    /**
+     * Minimum number of expressions per chunk when a batch is split across a pool.
+     */
+    public static final int PARALLEL_CHUNK_SIZE = 32;
+
+    private final ExpressionEngine engine;
+    private final String[] sources;
+    private final Object[] prepared;
+
+    ExpressionBatch(ExpressionEngine engine, String[] sources, Object[] prepared) {
+        this.engine = engine;
+        this.sources = sources;
+        this.prepared = prepared;
+    }
+
+    /**
+     * Evaluates all expressions of the batch on the calling thread.
+     *
+     * @param variables The variables to bind for all expressions, may be null
+     * @return The results, in the order of the expressions
+     * @throws ExpressionEngineException if any expression cannot be evaluated
+     */
+    public List<Object> evaluate(Map<String, Object> variables) {
+        Map<String, Object> bound = variables != null ? variables : Map.of();
+        Object[] results = new Object[prepared.length];
+        evaluateRange(engine.newBatchTarget(false, bound), bound, results, 0, prepared.length);
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * Evaluates all expressions of the batch, splitting it into chunks on the given pool if it
+     * holds at least two chunks' worth of expressions. Smaller batches, or a null pool, are
+     * evaluated on the calling thread.
+     * <p>
+     * Functions called from a parallel batch must be safe to call from several threads.
+     * </p>
+     *
+     * @param variables The variables to bind for all expressions, may be null
+     * @param pool      The pool to run chunks on, or null
+     * @return The results, in the order of the expressions
+     * @throws ExpressionEngineException if any expression cannot be evaluated
+     */
+    public List<Object> evaluate(Map<String, Object> variables, ForkJoinPool pool) {
+        int chunks = pool != null ? Math.min(pool.getParallelism(), prepared.length / PARALLEL_CHUNK_SIZE) : 0;
+        if (chunks < 2) {
+            return evaluate(variables);
+        }
+        Map<String, Object> bound = variables != null ? variables : Map.of();
+        Object[] results = new Object[prepared.length];
+        int chunkSize = (prepared.length + chunks - 1) / chunks;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < prepared.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, prepared.length);
+            tasks.add(pool.submit(() -> evaluateRange(engine.newBatchTarget(true, bound), bound, results, start, end)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private void evaluateRange(Interpreter target, Map<String, Object> variables, Object[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = engine.evaluatePrepared(target, sources[i], prepared[i], variables);
+        }
+    }
+
+    /**
+     * Returns the number of expressions in the batch.
+     *
+     * @return The batch size
+     */
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * Returns the trimmed expression texts of the batch.
+     *
+     * @return The expressions, in evaluation order
+     */
+    public List<String> getExpressions() {
+        return List.of(sources);
+    }
+}
@@ -0,0 +1,356 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.CompiledExpression.Node;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionTimeoutException;
+
+/**
+ * Compiles parsed expressions into trees of pre-linked closures.
+ * <p>
+ * The compiler walks a {@link Parser.Expression} tree once and produces a {@link CompiledExpression}
+ * in which every node is a small closure. Work that the {@link Interpreter} repeats for every
+ * evaluation is done here exactly once:
+ * </p>
+ * <ul>
+ *   <li>Operators are dispatched to a dedicated closure instead of a switch per evaluation</li>
+ *   <li>Quoted string and numeric literals are converted to their runtime values</li>
+ *   <li>Function names, generic call types, the white-/blacklist check and the registered
+ *       function are resolved for every call site</li>
+ *   <li>Groupings are removed from the tree</li>
+ * </ul>
+ * <p>
+ * Variables are still looked up at evaluation time, so a compiled expression can be evaluated
+ * repeatedly against changing variable values.
+ * </p>
+ */
+public class ExpressionCompiler implements Parser.Expression.Visitor<Node> {
+    private final Interpreter interpreter;
+
+    /**
+     * Creates a new compiler that links function calls against the given interpreter.
+     *
+     * @param interpreter The interpreter whose function registry is used for linking
+     */
+    public ExpressionCompiler(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * Compiles the given expression tree.
+     *
+     * @param expression The parsed expression
+     * @return The compiled expression
+     * @throws ExpressionEngineException if the expression is null
+     */
+    public CompiledExpression compile(Parser.Expression expression) {
+        if (expression == null) {
+            throw new ExpressionEngineException("Cannot compile null expression");
+        }
+        int linkVersion = interpreter.getLinkVersion();
+        return new CompiledExpression(expression, compileNode(expression), linkVersion);
+    }
+
+    /**
+     * Compiles a node that counts one step against the interpreter's budget per evaluation, like
+     * the interpreter does for every node it visits.
+     */
+    private Node compileNode(Parser.Expression expression) {
+        if (expression == null) {
+            return i -> {
+                throw new ExpressionEngineException("Cannot evaluate null expression");
+            };
+        }
+        Node node = expression.accept(this);
+        return i -> {
+            i.step();
+            return node.evaluate(i);
+        };
+    }
+
+    @Override
+    public Node visitBinaryExpr(Parser.Expression.Binary expr) {
+        if (expr.left == null || expr.right == null) {
+            throw new ExpressionEngineException("Binary expression must have both left and right operands.");
+        }
+        if (expr.operator == null) {
+            throw new ExpressionEngineException("Binary expression must have an operator.");
+        }
+        Token operator = expr.operator;
+
+        switch (operator.type()) {
+            case MINUS, MULTIPLY, DIVIDE, MODULO, POWER -> {
+                return boxed(compileArithmetic(expr));
+            }
+            case PLUS -> {
+                if (expr.isNumeric()) {
+                    return boxed(compileArithmetic(expr));
+                }
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                DoubleNode left = compileDouble(expr.left, operator);
+                DoubleNode right = compileDouble(expr.right, operator);
+                return switch (operator.type()) {
+                    case GREATER -> i -> left.evaluate(i) > right.evaluate(i);
+                    case GREATER_EQUAL -> i -> left.evaluate(i) >= right.evaluate(i);
+                    case LESS -> i -> left.evaluate(i) < right.evaluate(i);
+                    default -> i -> left.evaluate(i) <= right.evaluate(i);
+                };
+            }
+            default -> {
+            }
+        }
+
+        Node left = compileNode(expr.left);
+        Node right = compileNode(expr.right);
+        return switch (operator.type()) {
+            case PLUS -> i -> {
+                Object l = left.evaluate(i);
+                Object r = right.evaluate(i);
+                if (l instanceof Number a && r instanceof Number b) {
+                    return a.doubleValue() + b.doubleValue();
+                }
+                if (l instanceof String || r instanceof String) {
+                    return Interpreter.stringify(l) + Interpreter.stringify(r);
+                }
+                throw new ExpressionEngineException("Operands must be two numbers or at least one string.");
+            };
+            case EQUAL -> i -> Interpreter.isEqual(left.evaluate(i), right.evaluate(i));
+            case NOT_EQUAL -> i -> !Interpreter.isEqual(left.evaluate(i), right.evaluate(i));
+            default -> i -> {
+                left.evaluate(i);
+                right.evaluate(i);
+                return null;
+            };
+        };
+    }
+
+    private static Node boxed(DoubleNode node) {
+        return i -> node.evaluate(i);
+    }
+
+    /**
+     * Compiles an expression whose value must be a number into a node that works on primitive
+     * doubles. Numeric literals and arithmetic subtrees are computed without boxing; any other
+     * expression is evaluated normally and checked to be a {@link Number}. Like {@link #compileNode},
+     * every returned node counts one step per evaluation.
+     */
+    private DoubleNode compileDouble(Parser.Expression expression, Token operator) {
+        if (expression instanceof Parser.Expression.Binary binary && binary.isNumeric()) {
+            DoubleNode arithmetic = compileArithmetic(binary);
+            return i -> {
+                i.step();
+                return arithmetic.evaluate(i);
+            };
+        }
+        if (expression instanceof Parser.Expression.Literal literal && literal.value instanceof Number number) {
+            double constant = number.doubleValue();
+            return i -> {
+                i.step();
+                return constant;
+            };
+        }
+        if (expression instanceof Parser.Expression.Unary unary && unary.isNumeric()) {
+            DoubleNode right = compileDouble(unary.right, unary.operator);
+            return i -> {
+                i.step();
+                return -right.evaluate(i);
+            };
+        }
+        if (expression instanceof Parser.Expression.Grouping grouping && grouping.isNumeric()) {
+            DoubleNode inner = compileDouble(grouping.expression, operator);
+            return i -> {
+                i.step();
+                return inner.evaluate(i);
+            };
+        }
+        Node node = compileNode(expression);
+        return i -> {
+            Object value = node.evaluate(i);
+            Interpreter.checkNumberOperand(operator, value);
+            return ((Number) value).doubleValue();
+        };
+    }
+
+    /**
+     * Compiles the operator of a numeric binary expression. The returned node does not count a
+     * step for the expression itself; its operands do.
+     */
+    private DoubleNode compileArithmetic(Parser.Expression.Binary binary) {
+        DoubleNode left = compileDouble(binary.left, binary.operator);
+        DoubleNode right = compileDouble(binary.right, binary.operator);
+        return switch (binary.operator.type()) {
+            case PLUS -> i -> left.evaluate(i) + right.evaluate(i);
+            case MINUS -> i -> left.evaluate(i) - right.evaluate(i);
+            case MULTIPLY -> i -> left.evaluate(i) * right.evaluate(i);
+            case DIVIDE -> i -> {
+                double dividend = left.evaluate(i);
+                double divisor = right.evaluate(i);
+                if (divisor == 0) throw new ExpressionEngineException("Division by zero.");
+                return dividend / divisor;
+            };
+            case MODULO -> i -> left.evaluate(i) % right.evaluate(i);
+            default -> i -> Math.pow(left.evaluate(i), right.evaluate(i));
+        };
+    }
+
+    @Override
+    public Node visitCallExpr(Parser.Expression.Call expr) {
+        String fullFunctionName = expr.name.lexeme();
+        Interpreter.CallSite site = interpreter.bindCall(expr);
+        // Errors are deferred to evaluation so that untaken branches behave like in the interpreter
+        if (site.error() != null) {
+            String message = site.error();
+            return i -> {
+                throw new ExpressionEngineException(message);
+            };
+        }
+
+        Node[] arguments = new Node[expr.arguments.size()];
+        for (int a = 0; a < arguments.length; a++) {
+            arguments[a] = compileNode(expr.arguments.get(a));
+        }
+
+        return i -> {
+            Object[] values = new Object[arguments.length];
+            for (int a = 0; a < arguments.length; a++) {
+                values[a] = site.convertArgument(a, arguments[a].evaluate(i));
+            }
+            try {
+                return site.invoke(i, values);
+            } catch (ExpressionTimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ExpressionEngineException("Error calling function " + fullFunctionName + ": " + e.getMessage(), e);
+            }
+        };
+    }
+
+    @Override
+    public Node visitLogicalExpr(Parser.Expression.Logical expr) {
+        Node left = compileNode(expr.left);
+        Node right = compileNode(expr.right);
+        return switch (expr.operator.type()) {
+            case OR -> i -> {
+                Object l = left.evaluate(i);
+                return Interpreter.isTruthy(l) ? l : right.evaluate(i);
+            };
+            case AND -> i -> {
+                Object l = left.evaluate(i);
+                return !Interpreter.isTruthy(l) ? l : right.evaluate(i);
+            };
+            default -> i -> {
+                left.evaluate(i);
+                return right.evaluate(i);
+            };
+        };
+    }
+
+    @Override
+    public Node visitUnaryExpr(Parser.Expression.Unary expr) {
+        Token operator = expr.operator;
+        if (operator.type() == TokenType.MINUS) {
+            DoubleNode negated = compileDouble(expr.right, operator);
+            return i -> -negated.evaluate(i);
+        }
+        Node right = compileNode(expr.right);
+        return switch (operator.type()) {
+            case NOT -> i -> !Interpreter.isTruthy(right.evaluate(i));
+            default -> i -> {
+                right.evaluate(i);
+                return null;
+            };
+        };
+    }
+
+    @Override
+    public Node visitLiteralExpr(Parser.Expression.Literal expr) {
+        Object value = expr.value;
+        if (value instanceof String str && !Interpreter.isQuoted(str)) {
+            // Unquoted strings depend on the interpreter context and must be resolved per evaluation
+            return i -> i.convertLiteral(str);
+        }
+        Object constant = interpreter.convertLiteral(value);
+        return i -> constant;
+    }
+
+    @Override
+    public Node visitVariableExpr(Parser.Expression.Variable expr) {
+        String name = expr.name.lexeme();
+        return i -> i.resolveVariable(name);
+    }
+
+    @Override
+    public Node visitGroupingExpr(Parser.Expression.Grouping expr) {
+        return compileNode(expr.expression);
+    }
+
+    @Override
+    public Node visitTernaryExpr(Parser.Expression.Ternary expr) {
+        Node condition = compileNode(expr.condition);
+        Node trueBranch = compileNode(expr.trueExpression);
+        Node falseBranch = compileNode(expr.falseExpression);
+        return i -> Interpreter.isTruthy(condition.evaluate(i)) ? trueBranch.evaluate(i) : falseBranch.evaluate(i);
+    }
+
+    @Override
+    public Node visitConditionalChainExpr(Parser.Expression.ConditionalChain expr) {
+        int size = expr.branches.size();
+        Node[] conditions = new Node[size];
+        Node[] outputs = new Node[size];
+        for (int b = 0; b < size; b++) {
+            Parser.Expression.ConditionalBranch branch = expr.branches.get(b);
+            conditions[b] = compileNode(branch.condition);
+            outputs[b] = compileNode(branch.output);
+        }
+        Node elseBranch = expr.elseBranch != null ? compileNode(expr.elseBranch) : null;
+        return i -> {
+            for (int b = 0; b < conditions.length; b++) {
+                if (Boolean.TRUE.equals(conditions[b].evaluate(i))) {
+                    return outputs[b].evaluate(i);
+                }
+            }
+            return elseBranch != null ? elseBranch.evaluate(i) : null;
+        };
+    }
+
+    @Override
+    public Node visitConditionalBranchExpr(Parser.Expression.ConditionalBranch expr) {
+        // Not used directly; handled in visitConditionalChainExpr
+        return i -> null;
+    }
+
+    @Override
+    public Node visitAssignmentExpr(Parser.Expression.Assignment expr) {
+        Node value = compileNode(expr.value);
+        String name = expr.name.lexeme();
+        int uses = expr.uses;
+        return i -> {
+            Object result = value.evaluate(i);
+            i.setVariable(name, result, uses);
+            return result;
+        };
+    }
+
+    @Override
+    public Node visitSequenceExpr(Parser.Expression.Sequence expr) {
+        Node[] steps = new Node[expr.exprs.size()];
+        for (int s = 0; s < steps.length; s++) {
+            steps[s] = compileNode(expr.exprs.get(s));
+        }
+        return i -> {
+            Object result = null;
+            for (Node step : steps) {
+                result = step.evaluate(i);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * A compiled node that produces a primitive double.
+     */
+    @FunctionalInterface
+    private interface DoubleNode {
+        double evaluate(Interpreter interpreter);
+    }
+}
@@ -1,21 +1,22 @@
 package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
 
+import de.happybavarian07.coolstufflib.cache.SegmentedLruCache;
 import de.happybavarian07.coolstufflib.cache.expression.ExpressionCache;
 import de.happybavarian07.coolstufflib.cache.expression.ExpressionCacheKey;
 import de.happybavarian07.coolstufflib.languagemanager.LanguageManager;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.conditions.HeadMaterialCondition;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionTimeoutException;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.FunctionCall;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.MaterialCondition;
 import de.happybavarian07.coolstufflib.utils.Head;
 import org.bukkit.Material;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiConsumer;
 
 /**
@@ -41,14 +42,67 @@ import java.util.function.BiConsumer;
  * @since 2025-05-24
  */
 public class ExpressionEngine {
+    /**
+     * Default number of distinct expression strings kept in the parse cache.
+     */
+    public static final int DEFAULT_PARSE_CACHE_SIZE = 1024;
+    /**
+     * Default number of evaluation results kept in the result cache.
+     */
+    public static final int DEFAULT_RESULT_CACHE_SIZE = 4096;
+    /**
+     * Default lifetime of a cached evaluation result in milliseconds.
+     */
+    public static final long DEFAULT_RESULT_CACHE_TTL_MILLIS = 5 * 60 * 1000L;
+
     private final Interpreter interpreter = new Interpreter();
     private final Lexer lexer = new Lexer("");
     private final Parser parser = new Parser(null);
     private final LanguageFunctionManager functionManager;
-    private final ExpressionCache<Parser.Expression> parseCache = new ExpressionCache<>();
-    private final ExpressionCache<Object> evalCache = new ExpressionCache<>();
+    private final ExpressionCache<ParsedExpression> parseCache;
+    private final SegmentedLruCache<ExpressionCacheKey, Object> resultCache;
+    private final ExpressionCache<Object> evalCache;
+    private final ExpressionCompiler compiler = new ExpressionCompiler(interpreter);
+    private final ExpressionOptimizer optimizer = new ExpressionOptimizer(interpreter);
+    private boolean compilationEnabled = false;
+    private boolean optimizationEnabled = true;
+    private boolean cacheImpureResults = false;
+    private volatile boolean concurrentMode = false;
 
     public ExpressionEngine() {
+        this(DEFAULT_PARSE_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new engine with a custom parse cache size.
+     * <p>
+     * The parse cache is keyed by the normalized expression text only, so it holds one entry
+     * per distinct expression string regardless of variable values. Once full, the least
+     * recently used expression is evicted.
+     * </p>
+     *
+     * @param parseCacheSize The maximum number of parsed expressions to keep
+     */
+    public ExpressionEngine(int parseCacheSize) {
+        this(parseCacheSize, DEFAULT_RESULT_CACHE_SIZE, DEFAULT_RESULT_CACHE_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a new engine with custom parse and result cache bounds.
+     * <p>
+     * The result cache is keyed by the expression text plus the values of the variables it
+     * references. It keeps at most {@code resultCacheSize} entries using a segmented LRU policy,
+     * and each result expires {@code resultCacheTtlMillis} after it was computed.
+     * </p>
+     *
+     * @param parseCacheSize       The maximum number of parsed expressions to keep
+     * @param resultCacheSize      The maximum number of evaluation results to keep
+     * @param resultCacheTtlMillis The lifetime of a cached result in milliseconds, or 0 for no expiry
+     */
+    public ExpressionEngine(int parseCacheSize, int resultCacheSize, long resultCacheTtlMillis) {
+        this.parseCache = new ExpressionCache<>(new SegmentedLruCache<>(parseCacheSize));
+        this.resultCache = new SegmentedLruCache<>(resultCacheSize, resultCacheTtlMillis);
+        this.evalCache = new ExpressionCache<>(resultCache);
         this.functionManager = new LanguageFunctionManager(this);
     }
 
@@ -97,6 +151,25 @@ public class ExpressionEngine {
         this.interpreter.registerFunction(name, functionCall, defaultType, argTypes, returnType);
     }
 
+    /**
+     * Registers a function with type information and a purity flag.
+     * <p>
+     * Pure functions must be free of side effects and return the same result for the same
+     * arguments. When optimization is enabled, calls to them with only constant arguments are
+     * evaluated once and replaced by their result.
+     * </p>
+     *
+     * @param name The function name
+     * @param functionCall The implementation
+     * @param defaultType The default type parameter
+     * @param argTypes Argument types (null for any)
+     * @param returnType Return type (null for any)
+     * @param pure True if the function may be folded at parse time
+     */
+    public void registerFunction(String name, FunctionCall functionCall, String defaultType, Class<?>[] argTypes, Class<?> returnType, boolean pure) {
+        this.interpreter.registerFunction(name, functionCall, defaultType, argTypes, returnType, pure);
+    }
+
     public void unregisterFunction(String name) {
         this.interpreter.unregisterFunction(name);
     }
@@ -154,35 +227,37 @@ public class ExpressionEngine {
      * @return A MaterialCondition or HeadMaterial representing the result
      */
     public MaterialCondition parse(String expression, Material defaultMaterial) {
-        try {
-            lexer.setSource(expression);
-            List<Token> tokens = lexer.scanTokens();
-            parser.setTokens(tokens);
-
-            // Try to parse as a conditional chain first
-            Parser.Expression expr;
-            if (tokens.stream().anyMatch(t -> t.type() == TokenType.IF || t.type() == TokenType.ELIF || t.type() == TokenType.ELSE)) {
-                expr = parser.parseConditionalChain();
-            } else {
-                expr = parser.parse();
-            }
+        return parse(expression, defaultMaterial, null);
+    }
 
-            if (expr == null) {
-                throw new IllegalArgumentException("Failed to parse expression: " + expression);
-            }
+    /**
+     * Parses a material expression like {@link #parse(String, Material)}, with the given scope
+     * layered over this engine's variables. The parsed expression is cached like the other
+     * expressions and evaluated on its own frame, so the engine's own variables are not
+     * modified and several threads can parse materials at once.
+     *
+     * @param expression      The expression to parse
+     * @param defaultMaterial The default material to return if parsing fails
+     * @param scope           The variables to evaluate with, or null for the engine's variables only
+     * @return A MaterialCondition or HeadMaterial representing the result
+     */
+    public MaterialCondition parse(String expression, Material defaultMaterial, VariableScope scope) {
+        Interpreter target = interpreter.newFrame(scope);
+        try {
+            Parser.Expression expr = getOrParseExpression(normalizeExpression(expression.trim())).getExpression();
 
             // Evaluate the conditional chain
             if (expr instanceof Parser.Expression.ConditionalChain chain) {
                 for (Parser.Expression.ConditionalBranch branch : chain.branches) {
-                    Object condResult = interpreter.interpret(branch.condition);
+                    Object condResult = target.interpret(branch.condition);
                     if (condResult instanceof Boolean && (Boolean) condResult) {
-                        Object out = interpreter.interpret(branch.output);
-                        return parseMaterialOutput(out, defaultMaterial);
+                        Object out = target.interpret(branch.output);
+                        return parseMaterialOutput(target, out, defaultMaterial);
                     }
                 }
                 if (chain.elseBranch != null) {
-                    Object out = interpreter.interpret(chain.elseBranch);
-                    return parseMaterialOutput(out, defaultMaterial);
+                    Object out = target.interpret(chain.elseBranch);
+                    return parseMaterialOutput(target, out, defaultMaterial);
                 }
                 return new DirectMaterialCondition(defaultMaterial);
             }
@@ -194,7 +269,7 @@ public class ExpressionEngine {
         }
     }
 
-    private MaterialCondition parseMaterialOutput(Object out, Material defaultMaterial) {
+    private MaterialCondition parseMaterialOutput(Interpreter target, Object out, Material defaultMaterial) {
         if (out instanceof Material) {
             return new DirectMaterialCondition((Material) out);
         } else if (out instanceof String s) {
@@ -231,7 +306,7 @@ public class ExpressionEngine {
             }
         } else if (out instanceof Parser.Expression.Call) {
             // Evaluate function call output (e.g., Out<Material>(STONE))
-            Object result = interpreter.interpret((Parser.Expression) out);
+            Object result = target.interpret((Parser.Expression) out);
             if (result instanceof Material) {
                 return new DirectMaterialCondition((Material) result);
             }
@@ -290,6 +365,27 @@ public class ExpressionEngine {
      *                                  or if the result cannot be converted to the specified type
      */
     public <T> T parse(String expression, Class<T> type) {
+        return parse(expression, type, interpreter);
+    }
+
+    /**
+     * Parses an expression like {@link #parse(String, Class)}, with the given scope layered over
+     * this engine's variables. The expression is always evaluated on a fresh interpreter frame,
+     * also without a scope: assignments made by the expression stay in that frame, the engine's
+     * own variables are not modified and several threads can evaluate at once, as long as the
+     * engine's variables are not changed meanwhile.
+     *
+     * @param <T>        the expected return type
+     * @param expression the expression to parse
+     * @param type       the class object representing the expected return type
+     * @param scope      the variables to evaluate with, or null for the engine's variables only
+     * @return the parsed expression result converted to type T
+     */
+    public <T> T parse(String expression, Class<T> type, VariableScope scope) {
+        return parse(expression, type, interpreter.newFrame(scope));
+    }
+
+    private <T> T parse(String expression, Class<T> type, Interpreter target) {
         if (expression == null) {
             throw new IllegalArgumentException("Expression cannot be null");
         }
@@ -302,9 +398,9 @@ public class ExpressionEngine {
                 Material material = Material.valueOf(expression.toUpperCase().replace("\"", "").replace("'", ""));
                 return type.cast(material);
             }
-            Map<String, Object> variableState = new HashMap<>();
-            Parser.Expression expr = getOrParseExpression(expression, variableState);
-            Object result = getOrEvalExpression(expr, expression, variableState);
+            expression = normalizeExpression(expression);
+            ParsedExpression parsed = getOrParseExpression(expression);
+            Object result = getOrEvalExpression(target, parsed, null);
             if (result == null) {
                 return null;
             }
@@ -333,9 +429,9 @@ public class ExpressionEngine {
             if (isMaterialName(expression)) {
                 return Material.valueOf(expression.toUpperCase().replace("\"", "").replace("'", ""));
             }
-            Map<String, Object> variableState = new HashMap<>();
-            Parser.Expression expr = getOrParseExpression(expression, variableState);
-            return getOrEvalExpression(expr, expression, variableState);
+            expression = normalizeExpression(expression);
+            ParsedExpression parsed = getOrParseExpression(expression);
+            return getOrEvalExpression(interpreter, parsed, null);
         } catch (RuntimeException e) {
             if (e instanceof ExpressionEngineException) throw e;
             throw new ExpressionEngineException("Error parsing expression: " + expression + " - " + e.getMessage(), e);
@@ -343,15 +439,13 @@ public class ExpressionEngine {
     }
 
     private Parser.@Nullable Expression tokenizeAndParseExpression(String expression) {
-        lexer.setSource(expression);
-        List<Token> tokens = lexer.scanTokens();
+        List<Token> tokens = new Lexer(expression).scanTokens();
 
         if (tokens.isEmpty() || tokens.size() == 1 && tokens.get(0).type() == TokenType.EOF) {
             return null;
         }
 
-        parser.setTokens(tokens);
-        return parser.parse();
+        return new Parser(tokens).parse();
     }
 
     public Object evaluate(String expression, Map<String, Object> variables) {
@@ -373,13 +467,11 @@ public class ExpressionEngine {
                 return material;
             }
 
-            Parser.Expression expr = getOrParseExpression(expression, variables);
-            interpreter.clearVariables();
-            for (Map.Entry<String, Object> var : variables.entrySet()) {
-                interpreter.setVariable(var.getKey(), var.getValue());
-            }
+            expression = normalizeExpression(expression);
+            ParsedExpression parsed = getOrParseExpression(expression);
+            Interpreter target = bindVariables(concurrentMode ? interpreter.newFrame() : interpreter, variables);
 
-            Object result = getOrEvalExpression(expr, expression, variables);
+            Object result = getOrEvalExpression(target, parsed, variables);
 
             if (interpreter.getLogger() != null) {
                 interpreter.getLogger().accept("Expression evaluation completed. Result: {}", new Object[]{result});
@@ -395,74 +487,457 @@ public class ExpressionEngine {
         }
     }
 
-    private Parser.Expression getOrParseExpression(String expression, Map<String, Object> variableState) {
-        Set<String> relevantVars = extractRelevantVariables(expression);
-        Map<String, Object> relevantState = new HashMap<>();
-        for (String var : relevantVars) {
-            if (variableState != null && variableState.containsKey(var)) {
-                relevantState.put(var, variableState.get(var));
+    /**
+     * Evaluates an expression with the given scope layered over this engine's variables.
+     * <p>
+     * Names bound in the scope hide the engine's variables of the same name; all other names
+     * resolve as usual. The evaluation runs on its own interpreter frame, so neither the scope nor
+     * the engine's variables are modified, and per-player variables never have to be copied onto
+     * the shared engine.
+     * </p>
+     *
+     * @param expression The expression to evaluate
+     * @param scope      The variables to evaluate with, or null for the engine's variables only
+     * @return The result of the evaluation
+     * @throws ExpressionEngineException if the expression cannot be parsed or evaluated
+     */
+    public Object evaluate(String expression, VariableScope scope) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Expression cannot be null");
+        }
+        expression = expression.trim();
+        if (expression.isEmpty()) {
+            throw new IllegalArgumentException("Expression cannot be empty");
+        }
+        try {
+            if (isMaterialName(expression)) {
+                return Material.valueOf(expression.toUpperCase().replace("\"", "").replace("'", ""));
+            }
+            ParsedExpression parsed = getOrParseExpression(normalizeExpression(expression));
+            return getOrEvalExpression(interpreter.newFrame(scope), parsed, null);
+        } catch (RuntimeException e) {
+            throw evaluationFailure(expression, e);
+        }
+    }
+
+    /**
+     * Evaluates several expressions against the same variables and returns the results in order.
+     * <p>
+     * The variables are bound once for the whole list and all expressions share the parse and
+     * result caches. To evaluate the same list repeatedly, prepare it once with
+     * {@link #prepareBatch(List)} instead.
+     * </p>
+     *
+     * @param expressions The expressions to evaluate
+     * @param variables   The variables to bind for all expressions
+     * @return The results, in the order of the expressions
+     * @throws ExpressionEngineException if any expression cannot be parsed or evaluated
+     */
+    public List<Object> evaluateAll(List<String> expressions, Map<String, Object> variables) {
+        return prepareBatch(expressions).evaluate(variables);
+    }
+
+    /**
+     * Evaluates several expressions against the same variables, splitting large lists across
+     * the given pool. See {@link ExpressionBatch#evaluate(Map, ForkJoinPool)}.
+     *
+     * @param expressions The expressions to evaluate
+     * @param variables   The variables to bind for all expressions
+     * @param pool        The pool to evaluate large batches on, or null to evaluate on the calling thread
+     * @return The results, in the order of the expressions
+     * @throws ExpressionEngineException if any expression cannot be parsed or evaluated
+     */
+    public List<Object> evaluateAll(List<String> expressions, Map<String, Object> variables, ForkJoinPool pool) {
+        return prepareBatch(expressions).evaluate(variables, pool);
+    }
+
+    /**
+     * Parses a list of expressions once so that they can be evaluated together repeatedly.
+     *
+     * @param expressions The expressions of the batch
+     * @return The prepared batch
+     * @throws ExpressionEngineException if any expression cannot be parsed
+     */
+    public ExpressionBatch prepareBatch(List<String> expressions) {
+        if (expressions == null) {
+            throw new IllegalArgumentException("Expressions cannot be null");
+        }
+        String[] sources = new String[expressions.size()];
+        Object[] prepared = new Object[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            String expression = expressions.get(i);
+            if (expression == null) {
+                throw new IllegalArgumentException("Expression cannot be null");
+            }
+            expression = expression.trim();
+            if (expression.isEmpty()) {
+                throw new IllegalArgumentException("Expression cannot be empty");
+            }
+            sources[i] = expression;
+            try {
+                if (isMaterialName(expression)) {
+                    prepared[i] = Material.valueOf(expression.toUpperCase().replace("\"", "").replace("'", ""));
+                } else {
+                    prepared[i] = getOrParseExpression(normalizeExpression(expression));
+                }
+            } catch (RuntimeException e) {
+                throw evaluationFailure(expression, e);
             }
         }
+        return new ExpressionBatch(this, sources, prepared);
+    }
+
+    /**
+     * Evaluates one prepared batch entry, either a material constant or a parsed expression,
+     * on an interpreter that already has the variables bound.
+     */
+    Object evaluatePrepared(Interpreter target, String source, Object prepared, Map<String, Object> variables) {
+        if (!(prepared instanceof ParsedExpression parsed)) {
+            return prepared;
+        }
+        try {
+            return getOrEvalExpression(target, parsed, variables);
+        } catch (RuntimeException e) {
+            throw evaluationFailure(source, e);
+        }
+    }
+
+    /**
+     * Returns the interpreter a batch should evaluate on when it runs on the calling thread.
+     */
+    Interpreter newBatchTarget(boolean ownFrame, Map<String, Object> variables) {
+        return bindVariables(ownFrame || concurrentMode ? interpreter.newFrame() : interpreter, variables);
+    }
 
-        ExpressionCacheKey key = new ExpressionCacheKey(expression, relevantState);
-        Parser.Expression expr = parseCache.get(key);
-        if (expr == null) {
+    private static Interpreter bindVariables(Interpreter target, Map<String, Object> variables) {
+        target.clearVariables();
+        for (Map.Entry<String, Object> var : variables.entrySet()) {
+            target.setVariable(var.getKey(), var.getValue());
+        }
+        return target;
+    }
+
+    private ExpressionEngineException evaluationFailure(String expression, RuntimeException e) {
+        if (interpreter.getErrorHandler() != null) {
+            interpreter.getErrorHandler().accept(this, e);
+        }
+        if (e instanceof ExpressionEngineException engineException) return engineException;
+        return new ExpressionEngineException("Error evaluating expression: " + expression + " - " + e.getMessage(), e);
+    }
+
+    private ParsedExpression getOrParseExpression(String expression) {
+        ExpressionCacheKey key = new ExpressionCacheKey(expression, null);
+        ParsedExpression parsed = parseCache.get(key);
+        if (parsed == null) {
             if (interpreter.getLogger() != null) {
                 interpreter.getLogger().accept("Cache miss for parse: {}", new Object[]{expression});
             }
-            lexer.setSource(expression);
-            List<Token> tokens = lexer.scanTokens();
-            parser.setTokens(tokens);
-            expr = parser.parse();
-            parseCache.put(key, expr);
+            // A fresh lexer and parser keep cache misses safe when several threads evaluate at once
+            List<Token> tokens = new Lexer(expression).scanTokens();
+            Parser.Expression expr = new Parser(tokens).parse();
+            if (expr == null) {
+                throw new IllegalArgumentException("Failed to parse expression: " + expression);
+            }
+            parsed = new ParsedExpression(expression, tokens, expr);
+            parseCache.put(key, parsed);
         } else if (interpreter.getLogger() != null) {
             interpreter.getLogger().accept("Cache hit for parse: {}", new Object[]{expression});
         }
-        return expr;
+        return parsed;
     }
 
-    private Object getOrEvalExpression(Parser.Expression expr, String expression, Map<String, Object> variableState) {
-        Set<String> relevantVars = extractRelevantVariables(expression);
-        Map<String, Object> relevantState = new HashMap<>();
-        for (String var : relevantVars) {
-            if (variableState != null && variableState.containsKey(var)) {
-                relevantState.put(var, variableState.get(var));
+    /**
+     * Normalizes an expression for use as a cache key by collapsing runs of spaces and tabs
+     * outside of string literals into a single space. The lexer ignores this whitespace, so
+     * the normalized text always produces the same expression tree.
+     *
+     * @param expression The trimmed expression text
+     * @return The normalized expression text, or the input itself if nothing had to change
+     */
+    static String normalizeExpression(String expression) {
+        StringBuilder normalized = null;
+        char quote = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            boolean collapse = false;
+            if (quote != 0) {
+                if (c == '\\') {
+                    if (normalized != null) normalized.append(c);
+                    i++;
+                    if (i < expression.length() && normalized != null) normalized.append(expression.charAt(i));
+                    continue;
+                }
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '\t' || (c == ' ' && i > 0 && isBlank(expression.charAt(i - 1)))) {
+                collapse = true;
+            }
+            if (collapse && normalized == null) {
+                normalized = new StringBuilder(expression.length());
+                normalized.append(expression, 0, i);
+            }
+            if (normalized != null) {
+                if (!collapse) {
+                    normalized.append(c);
+                } else if (normalized.length() == 0 || normalized.charAt(normalized.length() - 1) != ' ') {
+                    normalized.append(' ');
+                }
             }
         }
+        return normalized != null ? normalized.toString() : expression;
+    }
 
-        ExpressionCacheKey key = new ExpressionCacheKey(expression, relevantState);
-        Object result = evalCache.get(key);
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private Object getOrEvalExpression(Interpreter target, ParsedExpression parsed, Map<String, Object> variableState) {
+        String expression = parsed.getSource();
+        Parser.Expression tree = parsed.getExpression();
+        // Debug mode evaluates the original tree so that every step can still be traced
+        if (optimizationEnabled && !target.isDebug()) {
+            ParsedExpression.Optimized optimized = parsed.getOptimized(optimizer, interpreter);
+            if (optimized.constant()) {
+                return optimized.value();
+            }
+            tree = optimized.tree();
+        }
+        ExpressionCacheKey key = cacheImpureResults || parsed.isPure(interpreter)
+                ? createEvalKey(target, parsed, variableState) : null;
+        Object result = key != null ? evalCache.get(key) : null;
         if (result == null) {
             if (interpreter.getLogger() != null) {
                 interpreter.getLogger().accept("Cache miss for eval: {}", new Object[]{expression});
             }
-            result = interpreter.interpret(expr);
-            evalCache.put(key, result);
+            if ((compilationEnabled || target != interpreter) && !target.isDebug()) {
+                result = parsed.getCompiled(compiler, tree, interpreter).evaluate(target);
+            } else {
+                result = target.interpret(tree);
+            }
+            if (key != null && result != null) {
+                evalCache.put(key, result);
+            }
         } else if (interpreter.getLogger() != null) {
             interpreter.getLogger().accept("Cache hit for eval: {}", new Object[]{expression});
         }
         return result;
     }
 
-    private Set<String> extractRelevantVariables(String expression) {
-        Set<String> vars = new HashSet<>();
-        lexer.setSource(expression);
-        List<Token> tokens = lexer.scanTokens();
-        for (Token token : tokens) {
-            if (token.type() == TokenType.IDENTIFIER) {
-                vars.add(token.lexeme());
+    /**
+     * Builds the result cache key from the identifiers collected while parsing, so no further
+     * lexing is needed. When no variable map is given, the variables currently set on the
+     * target interpreter are used instead.
+     */
+    private ExpressionCacheKey createEvalKey(Interpreter target, ParsedExpression parsed, Map<String, Object> variableState) {
+        String[] identifiers = parsed.getIdentifiers();
+        String[] relevant = identifiers;
+        Object[] values = new Object[identifiers.length];
+        int count = 0;
+        for (int i = 0; i < identifiers.length; i++) {
+            String var = identifiers[i];
+            boolean present = variableState != null ? variableState.containsKey(var) : target.hasVariable(var);
+            if (!present) {
+                if (relevant == identifiers) {
+                    relevant = new String[identifiers.length];
+                    System.arraycopy(identifiers, 0, relevant, 0, i);
+                }
+                continue;
             }
+            values[count] = variableState != null ? variableState.get(var) : target.peekVariable(var);
+            if (relevant != identifiers) relevant[count] = var;
+            count++;
+        }
+        if (count == 0) {
+            return new ExpressionCacheKey(parsed.getSource(), null, null);
+        }
+        if (count != relevant.length) {
+            relevant = Arrays.copyOf(relevant, count);
+            values = Arrays.copyOf(values, count);
         }
-        return vars;
+        return new ExpressionCacheKey(parsed.getSource(), relevant, values);
     }
 
-    private int computeVariableStateHash(Map<String, Object> variableState, Set<String> relevantVars) {
-        int hash = 1;
-        for (String var : relevantVars) {
-            Object value = variableState.get(var);
-            hash = 31 * hash + (value != null ? value.hashCode() : 0);
+    /**
+     * Parses and compiles an expression into a pre-linked closure tree.
+     * <p>
+     * The returned {@link CompiledExpression} can be evaluated repeatedly against this engine's
+     * interpreter without going through the visitor, see {@link #evaluateCompiled(CompiledExpression, Map)}.
+     * It becomes stale when functions are registered or unregistered afterwards.
+     * </p>
+     *
+     * @param expression The expression to compile
+     * @return The compiled expression
+     * @throws ExpressionEngineException if the expression cannot be parsed
+     */
+    public CompiledExpression compile(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Expression cannot be null");
+        }
+        try {
+            String normalized = normalizeExpression(expression.trim());
+            if (normalized.isEmpty()) {
+                throw new IllegalArgumentException("Expression cannot be empty");
+            }
+            ParsedExpression parsed = getOrParseExpression(normalized);
+            Parser.Expression tree = optimizationEnabled
+                    ? parsed.getOptimized(optimizer, interpreter).tree() : parsed.getExpression();
+            return parsed.getCompiled(compiler, tree, interpreter);
+        } catch (RuntimeException e) {
+            if (e instanceof ExpressionEngineException) throw e;
+            throw new ExpressionEngineException("Error compiling expression: " + expression + " - " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Evaluates a previously compiled expression with the given variables.
+     * <p>
+     * Stale compiled expressions (see {@link CompiledExpression#isLinkedTo(Interpreter)}) are
+     * re-linked transparently before evaluation.
+     * </p>
+     *
+     * @param compiled  The compiled expression
+     * @param variables The variables to bind for this evaluation
+     * @return The result of the evaluation
+     */
+    public Object evaluateCompiled(CompiledExpression compiled, Map<String, Object> variables) {
+        if (compiled == null) {
+            throw new IllegalArgumentException("Compiled expression cannot be null");
+        }
+        try {
+            if (!compiled.isLinkedTo(interpreter)) {
+                compiled = compiler.compile(compiled.getSource());
+            }
+            interpreter.clearVariables();
+            if (variables != null) {
+                for (Map.Entry<String, Object> var : variables.entrySet()) {
+                    interpreter.setVariable(var.getKey(), var.getValue());
+                }
+            }
+            return compiled.evaluate(interpreter);
+        } catch (RuntimeException e) {
+            if (interpreter.getErrorHandler() != null) {
+                interpreter.getErrorHandler().accept(this, e);
+            }
+            throw e;
         }
-        return hash;
+    }
+
+    /**
+     * Enables or disables the compile step for evaluation.
+     * <p>
+     * When enabled, parsed expressions are compiled once into a tree of pre-linked closures
+     * (see {@link ExpressionCompiler}) and cache misses are evaluated through that tree instead
+     * of the interpreter visitor. Debug mode always uses the interpreter so that each
+     * evaluation step can still be traced.
+     * </p>
+     *
+     * @param enabled True to enable compilation, false to always use the interpreter
+     */
+    public void setCompilationEnabled(boolean enabled) {
+        this.compilationEnabled = enabled;
+    }
+
+    /**
+     * Returns whether the compile step is enabled.
+     *
+     * @return True if compilation is enabled, false otherwise
+     */
+    public boolean isCompilationEnabled() {
+        return compilationEnabled;
+    }
+
+    /**
+     * Enables or disables the optimization pass.
+     * <p>
+     * When enabled (the default), parsed expressions are simplified once by the
+     * {@link ExpressionOptimizer} before they are evaluated: constant sub-expressions and calls
+     * to pure functions with constant arguments are folded, and branches with constant conditions
+     * are pruned. Expressions that fold into a single constant skip the result cache entirely.
+     * </p>
+     *
+     * @param enabled True to optimize parsed expressions, false to evaluate them as written
+     */
+    public void setOptimizationEnabled(boolean enabled) {
+        this.optimizationEnabled = enabled;
+    }
+
+    /**
+     * Returns whether the optimization pass is enabled.
+     *
+     * @return True if optimization is enabled, false otherwise
+     */
+    public boolean isOptimizationEnabled() {
+        return optimizationEnabled;
+    }
+
+    /**
+     * Sets whether results of expressions that call impure functions are cached.
+     * <p>
+     * Functions are impure unless they were registered with the {@code pure} flag, see
+     * {@link #registerFunction(String, FunctionCall, String, Class[], Class, boolean)}. Their
+     * results may change between calls with the same variables, for example {@code random()} or
+     * {@code hasPermission(player, node)}, so by default such expressions are always evaluated.
+     * </p>
+     *
+     * @param cache True to cache every result, false to skip expressions calling impure functions
+     */
+    public void setCacheImpureResults(boolean cache) {
+        this.cacheImpureResults = cache;
+    }
+
+    /**
+     * Returns whether results of expressions that call impure functions are cached.
+     *
+     * @return True if every result is cached, false otherwise
+     */
+    public boolean isCacheImpureResults() {
+        return cacheImpureResults;
+    }
+
+    /**
+     * Returns the bounded result cache, for example to read its hit, miss and eviction counts.
+     *
+     * @return The result cache of this engine
+     */
+    public SegmentedLruCache<ExpressionCacheKey, Object> getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Removes all cached evaluation results. Parsed expressions are kept.
+     */
+    public void clearResultCache() {
+        evalCache.clear();
+    }
+
+    /**
+     * Enables or disables concurrent evaluation mode.
+     * <p>
+     * By default {@link #evaluate(String, Map)} binds the given variables on the engine's shared
+     * interpreter, so the engine must only be used from one thread at a time. In concurrent mode
+     * every call instead evaluates the shared, immutable compiled expression against its own
+     * variable frame (see {@link Interpreter#newFrame()}), which allows async chat threads or
+     * repository callbacks to evaluate expressions on the same engine in parallel without locking.
+     * </p>
+     * <p>
+     * Functions, context objects and white-/blacklists are shared by all frames and may still be
+     * changed while evaluations are running.
+     * </p>
+     *
+     * @param enabled True to give every evaluation its own variable frame, false to use the shared interpreter
+     */
+    public void setConcurrentMode(boolean enabled) {
+        this.concurrentMode = enabled;
+    }
+
+    /**
+     * Returns whether concurrent evaluation mode is enabled.
+     *
+     * @return True if every evaluation uses its own variable frame, false otherwise
+     */
+    public boolean isConcurrentMode() {
+        return concurrentMode;
     }
 
     /**
@@ -813,7 +1288,9 @@ public class ExpressionEngine {
     /**
      * Sets the maximum depth for recursive expressions.
      * <p>
-     * This prevents stack overflow errors in cases of deeply nested or recursive expressions.
+     * This prevents stack overflow errors when functions evaluate expressions that call them again.
+     * Only evaluations nested through function calls count; the nesting of a single expression,
+     * such as a long chain of additions, is not limited. Use 0 to disable the check.
      * </p>
      *
      * @param maxDepth The maximum depth (default is 100)
@@ -834,10 +1311,13 @@ public class ExpressionEngine {
     /**
      * Sets the timeout for expression evaluation in milliseconds.
      * <p>
-     * If an expression exceeds this time limit, it will be terminated and an exception will be thrown.
+     * If an expression exceeds this time limit, it will be terminated and an
+     * {@link ExpressionTimeoutException} will be thrown. The deadline is checked cooperatively
+     * every {@link Interpreter#DEADLINE_CHECK_INTERVAL} evaluation steps, so a single slow
+     * function call is not interrupted.
      * </p>
      *
-     * @param timeoutMillis The timeout in milliseconds
+     * @param timeoutMillis The timeout in milliseconds, 0 to disable
      */
     public void setEvaluationTimeout(int timeoutMillis) {
         interpreter.setEvaluationTimeout(timeoutMillis);
@@ -852,6 +1332,29 @@ public class ExpressionEngine {
         return interpreter.getEvaluationTimeout();
     }
 
+    /**
+     * Sets the maximum number of steps a single evaluation may take.
+     * <p>
+     * Every visited expression node counts as one step; compiled expressions count their function
+     * calls. An evaluation that exceeds the limit is aborted with an {@link ExpressionTimeoutException}.
+     * Expressions evaluated from inside function calls share the budget of the outer evaluation.
+     * </p>
+     *
+     * @param maxSteps The step limit, 0 for unlimited (the default)
+     */
+    public void setMaxEvaluationSteps(int maxSteps) {
+        interpreter.setMaxEvaluationSteps(maxSteps);
+    }
+
+    /**
+     * Gets the maximum number of steps a single evaluation may take.
+     *
+     * @return The step limit, 0 if unlimited
+     */
+    public int getMaxEvaluationSteps() {
+        return interpreter.getMaxEvaluationSteps();
+    }
+
     /**
      * Registers a custom variable type with the engine.
      * <p>
@@ -0,0 +1,232 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies parsed expressions before they are evaluated or compiled.
+ * <p>
+ * The optimizer walks a {@link Parser.Expression} tree once and returns an equivalent tree in
+ * which work that does not depend on variables has already been done:
+ * </p>
+ * <ul>
+ *   <li>Binary, unary, logical and ternary nodes whose operands are constants are folded into
+ *       a single literal</li>
+ *   <li>Calls to functions registered as pure are folded when all arguments are constants</li>
+ *   <li>Conditional chain branches with constant conditions are pruned, and a chain whose first
+ *       remaining condition is always true is replaced by that branch's output</li>
+ *   <li>Groupings are removed from the tree</li>
+ * </ul>
+ * <p>
+ * A subtree is only folded if evaluating it succeeds; anything that would fail is left in place
+ * so that the error is still reported at evaluation time. Unquoted string literals depend on the
+ * interpreter context and are never treated as constants.
+ * </p>
+ * <pre><code>
+ * ExpressionOptimizer optimizer = new ExpressionOptimizer(interpreter);
+ * Parser.Expression optimized = optimizer.optimize(parsedExpression);
+ * if (ExpressionOptimizer.isConstant(optimized)) {
+ *     Object value = ExpressionOptimizer.constantValue(optimized);
+ * }
+ * </code></pre>
+ */
+public class ExpressionOptimizer implements Parser.Expression.Visitor<Parser.Expression> {
+    private final Interpreter interpreter;
+
+    /**
+     * Creates a new optimizer that folds pure function calls registered on the given interpreter.
+     *
+     * @param interpreter The interpreter whose function registry and white-/blacklist are used
+     */
+    public ExpressionOptimizer(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * Returns an optimized, semantically equivalent version of the given expression tree.
+     * The input tree is not modified; unchanged subtrees are shared with the result.
+     *
+     * @param expression The parsed expression, may be null
+     * @return The optimized expression, or null if the input was null
+     */
+    public Parser.Expression optimize(Parser.Expression expression) {
+        return expression != null ? expression.accept(this) : null;
+    }
+
+    /**
+     * Checks whether the given expression is a constant literal, i.e. a number, boolean, quoted
+     * string or folded value that does not depend on variables or context.
+     *
+     * @param expression The expression to check
+     * @return True if the expression always evaluates to the same value
+     */
+    public static boolean isConstant(Parser.Expression expression) {
+        return expression instanceof Parser.Expression.Literal literal
+                && !(literal.value instanceof String str && !Interpreter.isQuoted(str));
+    }
+
+    /**
+     * Returns the runtime value of a constant literal.
+     *
+     * @param expression A constant expression, see {@link #isConstant(Parser.Expression)}
+     * @return The value the literal evaluates to
+     */
+    public static Object constantValue(Parser.Expression expression) {
+        Object value = ((Parser.Expression.Literal) expression).value;
+        if (value instanceof String str) {
+            return str.substring(1, str.length() - 1);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+
+    /**
+     * Evaluates an expression whose operands are all constants and turns the result into a
+     * literal. Returns the original expression if evaluation fails or the result cannot be
+     * represented as a literal without changing its type.
+     */
+    private Parser.Expression fold(Parser.Expression expression) {
+        Object value;
+        try {
+            value = interpreter.newFrame().interpret(expression);
+        } catch (RuntimeException e) {
+            return expression;
+        }
+        if (value == null || value instanceof Integer || value instanceof Long || value instanceof Float) {
+            return expression;
+        }
+        if (value instanceof String str) {
+            return new Parser.Expression.Literal('"' + str + '"');
+        }
+        return new Parser.Expression.Literal(value);
+    }
+
+    @Override
+    public Parser.Expression visitBinaryExpr(Parser.Expression.Binary expr) {
+        Parser.Expression left = optimize(expr.left);
+        Parser.Expression right = optimize(expr.right);
+        Parser.Expression result = left == expr.left && right == expr.right
+                ? expr : new Parser.Expression.Binary(left, expr.operator, right);
+        return isConstant(left) && isConstant(right) ? fold(result) : result;
+    }
+
+    @Override
+    public Parser.Expression visitCallExpr(Parser.Expression.Call expr) {
+        List<Parser.Expression> arguments = new ArrayList<>(expr.arguments.size());
+        boolean changed = false;
+        boolean constantArguments = true;
+        for (Parser.Expression argument : expr.arguments) {
+            Parser.Expression optimized = optimize(argument);
+            changed |= optimized != argument;
+            constantArguments &= isConstant(optimized);
+            arguments.add(optimized);
+        }
+        Parser.Expression result = changed ? new Parser.Expression.Call(expr.name, arguments) : expr;
+        if (!constantArguments) {
+            return result;
+        }
+        Interpreter.CallSite site = interpreter.bindCall(expr);
+        return site.error() == null && site.function().pure() ? fold(result) : result;
+    }
+
+    @Override
+    public Parser.Expression visitLogicalExpr(Parser.Expression.Logical expr) {
+        Parser.Expression left = optimize(expr.left);
+        Parser.Expression right = optimize(expr.right);
+        if (isConstant(left)) {
+            boolean truthy = Interpreter.isTruthy(constantValue(left));
+            switch (expr.operator.type()) {
+                case OR:
+                    return truthy ? left : right;
+                case AND:
+                    return !truthy ? left : right;
+                default:
+                    break;
+            }
+        }
+        return left == expr.left && right == expr.right
+                ? expr : new Parser.Expression.Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Parser.Expression visitUnaryExpr(Parser.Expression.Unary expr) {
+        Parser.Expression right = optimize(expr.right);
+        Parser.Expression result = right == expr.right ? expr : new Parser.Expression.Unary(expr.operator, right);
+        return isConstant(right) ? fold(result) : result;
+    }
+
+    @Override
+    public Parser.Expression visitLiteralExpr(Parser.Expression.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Parser.Expression visitVariableExpr(Parser.Expression.Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Parser.Expression visitGroupingExpr(Parser.Expression.Grouping expr) {
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Parser.Expression visitTernaryExpr(Parser.Expression.Ternary expr) {
+        Parser.Expression condition = optimize(expr.condition);
+        if (isConstant(condition)) {
+            return Interpreter.isTruthy(constantValue(condition))
+                    ? optimize(expr.trueExpression) : optimize(expr.falseExpression);
+        }
+        Parser.Expression trueExpression = optimize(expr.trueExpression);
+        Parser.Expression falseExpression = optimize(expr.falseExpression);
+        if (condition == expr.condition && trueExpression == expr.trueExpression && falseExpression == expr.falseExpression) {
+            return expr;
+        }
+        return new Parser.Expression.Ternary(condition, trueExpression, falseExpression);
+    }
+
+    @Override
+    public Parser.Expression visitConditionalChainExpr(Parser.Expression.ConditionalChain expr) {
+        List<Parser.Expression.ConditionalBranch> branches = new ArrayList<>(expr.branches.size());
+        for (Parser.Expression.ConditionalBranch branch : expr.branches) {
+            Parser.Expression condition = optimize(branch.condition);
+            if (isConstant(condition)) {
+                // The chain only takes a branch whose condition is exactly Boolean.TRUE
+                if (!Boolean.TRUE.equals(constantValue(condition))) {
+                    continue;
+                }
+                Parser.Expression output = optimize(branch.output);
+                return branches.isEmpty() ? output : new Parser.Expression.ConditionalChain(branches, output);
+            }
+            branches.add(new Parser.Expression.ConditionalBranch(condition, optimize(branch.output)));
+        }
+        Parser.Expression elseBranch = optimize(expr.elseBranch);
+        if (branches.isEmpty()) {
+            return elseBranch != null ? elseBranch : new Parser.Expression.Literal(null);
+        }
+        return new Parser.Expression.ConditionalChain(branches, elseBranch);
+    }
+
+    @Override
+    public Parser.Expression visitConditionalBranchExpr(Parser.Expression.ConditionalBranch expr) {
+        // Not used directly; handled in visitConditionalChainExpr
+        return expr;
+    }
+
+    @Override
+    public Parser.Expression visitAssignmentExpr(Parser.Expression.Assignment expr) {
+        Parser.Expression value = optimize(expr.value);
+        return value == expr.value ? expr : new Parser.Expression.Assignment(expr.name, value, expr.uses);
+    }
+
+    @Override
+    public Parser.Expression visitSequenceExpr(Parser.Expression.Sequence expr) {
+        List<Parser.Expression> exprs = new ArrayList<>(expr.exprs.size());
+        for (Parser.Expression step : expr.exprs) {
+            exprs.add(optimize(step));
+        }
+        return new Parser.Expression.Sequence(exprs);
+    }
+}
@@ -0,0 +1,205 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A text split once into literal segments and embedded {@code EXPR(...)} or
+ * {@code EXPRESSION(...)} slots, so that it can be rendered repeatedly in a single pass.</p>
+ *
+ * <p>Slots are found case-insensitively. The end of a slot is the parenthesis that balances its
+ * opening one, ignoring parentheses inside quoted strings, so slots may contain function calls
+ * and grouped sub-expressions such as {@code EXPR(add(level, 1) * 2)}.</p>
+ *
+ * <p>Rendering evaluates every slot with {@link ExpressionEngine#parse(String, Class, VariableScope)}
+ * and appends the results into a per-thread builder that is reused between calls. If a slot
+ * fails, its original text and the rest of the input are kept unchanged.</p>
+ *
+ * <pre><code>
+ * ExpressionTemplate template = ExpressionTemplate.compile("Next level in EXPR(100 - xp) xp");
+ * String text = template.render(engine, null);
+ * </code></pre>
+ */
+public final class ExpressionTemplate {
+    private static final String LONG_MARKER = "EXPRESSION(";
+    private static final String SHORT_MARKER = "EXPR(";
+    private static final int MAX_POOLED_CAPACITY = 8192;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String source;
+    private final String[] literals;
+    private final String[] expressions;
+    private final int[] slotStarts;
+
+    private ExpressionTemplate(String source, String[] literals, String[] expressions, int[] slotStarts) {
+        this.source = source;
+        this.literals = literals;
+        this.expressions = expressions;
+        this.slotStarts = slotStarts;
+    }
+
+    /**
+     * Splits the given text into literal segments and expression slots.
+     *
+     * @param source The text to compile
+     * @return The compiled template
+     */
+    public static ExpressionTemplate compile(String source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Template source cannot be null");
+        }
+        List<String> literals = new ArrayList<>();
+        List<String> expressions = new ArrayList<>();
+        List<Integer> slotStarts = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            int markerLength = markerLengthAt(source, i);
+            if (markerLength == 0) {
+                i++;
+                continue;
+            }
+            int open = i + markerLength - 1;
+            int close = findClosingParenthesis(source, open);
+            if (close == -1) {
+                i += markerLength;
+                continue;
+            }
+            literals.add(source.substring(literalStart, i));
+            expressions.add(source.substring(open + 1, close));
+            slotStarts.add(i);
+            i = close + 1;
+            literalStart = i;
+        }
+        literals.add(source.substring(literalStart));
+
+        return new ExpressionTemplate(source, literals.toArray(new String[0]), expressions.toArray(new String[0]),
+                slotStarts.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static int markerLengthAt(String source, int index) {
+        char c = source.charAt(index);
+        if (c != 'E' && c != 'e') {
+            return 0;
+        }
+        if (source.regionMatches(true, index, LONG_MARKER, 0, LONG_MARKER.length())) {
+            return LONG_MARKER.length();
+        }
+        if (source.regionMatches(true, index, SHORT_MARKER, 0, SHORT_MARKER.length())) {
+            return SHORT_MARKER.length();
+        }
+        return 0;
+    }
+
+    private static int findClosingParenthesis(String source, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Evaluates all slots and returns the rendered text.
+     *
+     * @param engine The engine to evaluate the slots with; if null, the source is returned unchanged
+     * @param scope  The variables to layer over the engine's variables, or null
+     * @return The text with every slot replaced by its result, {@code null} results rendered as "null"
+     */
+    public String render(ExpressionEngine engine, VariableScope scope) {
+        if (expressions.length == 0 || engine == null) {
+            return source;
+        }
+        StringBuilder builder = BUILDER.get();
+        // A non-empty pooled builder belongs to an outer render on this thread, e.g. a slot that
+        // calls a function which renders another template
+        boolean pooled = builder.length() == 0;
+        if (!pooled) {
+            builder = new StringBuilder(source.length() + 16);
+        }
+        try {
+            for (int i = 0; i < expressions.length; i++) {
+                builder.append(literals[i]);
+                Object result;
+                try {
+                    result = engine.parse(expressions[i], Object.class, scope);
+                } catch (RuntimeException e) {
+                    builder.append(source, slotStarts[i], source.length());
+                    return builder.toString();
+                }
+                builder.append(result);
+            }
+            builder.append(literals[expressions.length]);
+            return builder.toString();
+        } finally {
+            if (pooled) {
+                if (builder.capacity() > MAX_POOLED_CAPACITY) {
+                    BUILDER.remove();
+                } else {
+                    builder.setLength(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the template contains at least one expression slot.
+     *
+     * @return True if rendering evaluates expressions
+     */
+    public boolean hasExpressions() {
+        return expressions.length > 0;
+    }
+
+    /**
+     * Returns the text the template was compiled from.
+     *
+     * @return The source text
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the expression texts of all slots, in order.
+     *
+     * @return The slot expressions
+     */
+    public List<String> getExpressions() {
+        return List.of(expressions);
+    }
+
+    /**
+     * Returns the literal segments around the slots, in order. There is always one more literal
+     * than there are slots; the literal at index {@code i} precedes slot {@code i}.
+     *
+     * @return The literal segments
+     */
+    public List<String> getLiterals() {
+        return List.of(literals);
+    }
+
+    /**
+     * Returns the opening marker of a slot as written in the source, e.g. {@code "expr("}.
+     *
+     * @param index The slot index
+     * @return The marker text including the opening parenthesis
+     */
+    public String getMarker(int index) {
+        return source.substring(slotStarts[index], slotStarts[index] + markerLengthAt(source, slotStarts[index]));
+    }
+}
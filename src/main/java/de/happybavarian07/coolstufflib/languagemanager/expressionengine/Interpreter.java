@@ -1,14 +1,20 @@
 package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
 
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionTimeoutException;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionVariableException;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.interfaces.FunctionCall;
 import org.bukkit.Material;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 /**
  * The interpreter evaluates parsed expressions and computes their values.
@@ -21,23 +27,165 @@ import java.util.Map;
  * The interpreter maintains internal state in the form of variables and registered functions
  * that can be referenced during expression evaluation.
  * </p>
+ * <p>
+ * Variables are private to one interpreter, while functions, context, white-/blacklists and type
+ * registrations can be shared: {@link #newFrame()} creates a lightweight interpreter with its own
+ * variables that shares everything else with its parent. Frames allow the same engine to evaluate
+ * expressions on several threads at once without locking. {@link #newFrame(VariableScope)} creates a
+ * frame whose variable lookups fall through to its parent's variables, so a {@link VariableScope}
+ * can be layered over the parent without changing it.
+ * </p>
+ * <p>
+ * Every evaluation runs under a cooperative budget: each visited node counts as one step, in the
+ * visitor, on the numeric fast path and in compiled expressions alike. The evaluation is aborted
+ * with an {@link ExpressionTimeoutException} once it exceeds the step limit, when expressions
+ * evaluated from function calls nest deeper than the recursion depth, or when the evaluation
+ * timeout has passed. The clock is only read every {@link #DEADLINE_CHECK_INTERVAL} steps, and no
+ * watchdog thread is involved.
+ * </p>
  */
 public class Interpreter implements Parser.Expression.Visitor<Object> {
+    /**
+     * Number of steps between two checks of the evaluation deadline.
+     */
+    public static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private static final Object UNDEFINED = new Object();
+
     private final Map<String, VariableWithUses> variables = new HashMap<>();
-    private final Map<String, RegisteredFunction> functions = new HashMap<>();
-    private final Map<String, Object> context = new HashMap<>();
-    private final List<String> functionWhitelist = new ArrayList<>();
-    private final List<String> functionBlacklist = new ArrayList<>();
-    private final List<String> variableWhitelist = new ArrayList<>();
-    private final List<String> variableBlacklist = new ArrayList<>();
+    private final Map<String, RegisteredFunction> functions;
+    private final Map<String, Object> context;
+    private final Set<String> functionWhitelist;
+    private final Set<String> functionBlacklist;
+    private final Set<String> variableWhitelist;
+    private final Set<String> variableBlacklist;
     private boolean debug = false;
     private boolean strict = false;
     private int maxRecursionDepth = 100;
     private int evaluationTimeout = 0;
-    private final Map<String, Class<?>> variableTypes = new HashMap<>();
-    private final Map<String, Class<?>> functionTypes = new HashMap<>();
+    private int maxEvaluationSteps = 0;
+    private int depth;
+    private int steps;
+    private long deadline;
+    private final Map<String, Class<?>> variableTypes;
+    private final Map<String, Class<?>> functionTypes;
     private java.util.function.BiConsumer<ExpressionEngine, Exception> errorHandler;
     private java.util.function.BiConsumer<String, Object[]> logger;
+    private final AtomicInteger linkVersion;
+    private final Interpreter fallback;
+    private final VariableScope scope;
+
+    public Interpreter() {
+        this.functions = new ConcurrentHashMap<>();
+        this.context = new ConcurrentHashMap<>();
+        this.functionWhitelist = ConcurrentHashMap.newKeySet();
+        this.functionBlacklist = ConcurrentHashMap.newKeySet();
+        this.variableWhitelist = ConcurrentHashMap.newKeySet();
+        this.variableBlacklist = ConcurrentHashMap.newKeySet();
+        this.variableTypes = new ConcurrentHashMap<>();
+        this.functionTypes = new ConcurrentHashMap<>();
+        this.linkVersion = new AtomicInteger();
+        this.fallback = null;
+        this.scope = null;
+    }
+
+    private Interpreter(Interpreter parent, Interpreter fallback, VariableScope scope) {
+        this.functions = parent.functions;
+        this.context = parent.context;
+        this.functionWhitelist = parent.functionWhitelist;
+        this.functionBlacklist = parent.functionBlacklist;
+        this.variableWhitelist = parent.variableWhitelist;
+        this.variableBlacklist = parent.variableBlacklist;
+        this.variableTypes = parent.variableTypes;
+        this.functionTypes = parent.functionTypes;
+        this.linkVersion = parent.linkVersion;
+        this.fallback = fallback;
+        this.scope = scope;
+        this.debug = parent.debug;
+        this.strict = parent.strict;
+        this.maxRecursionDepth = parent.maxRecursionDepth;
+        this.evaluationTimeout = parent.evaluationTimeout;
+        this.maxEvaluationSteps = parent.maxEvaluationSteps;
+        this.errorHandler = parent.errorHandler;
+        this.logger = parent.logger;
+    }
+
+    /**
+     * Creates a new evaluation frame for this interpreter.
+     * <p>
+     * The frame starts without variables and shares the registered functions, the injected context,
+     * the white-/blacklists and the type registrations with this interpreter. Settings such as debug
+     * mode or the logger are copied at creation time. Frames are cheap to create and are meant to be
+     * used for a single evaluation on a single thread.
+     * </p>
+     *
+     * @return A new interpreter frame with an empty variable scope
+     */
+    public Interpreter newFrame() {
+        return new Interpreter(this, null, null);
+    }
+
+    /**
+     * Creates a new evaluation frame that layers the given scope over this interpreter's variables.
+     * <p>
+     * Variables are looked up on the frame first, then in the scope and finally on this interpreter.
+     * The scope's bindings are read in place rather than copied. Assignments and removals only ever
+     * affect the frame's own variables. A variable with a use limit that is read through the frame
+     * gets a copy on the frame on its first read, so its uses are counted per frame and this
+     * interpreter's variables are never modified through it. Reading through to this interpreter
+     * is not synchronized; its variables must not be changed while the frame is used.
+     * </p>
+     *
+     * @param scope The bindings to place on the frame, may be null
+     * @return A new interpreter frame backed by this interpreter's variables
+     */
+    public Interpreter newFrame(VariableScope scope) {
+        return new Interpreter(this, this, scope);
+    }
+
+    /**
+     * Looks up a variable without counting a use: the frame's own variables first, then its scope
+     * and then its parent.
+     */
+    private VariableWithUses findVariable(String name) {
+        VariableWithUses var = variables.get(name);
+        if (var != null || fallback == null) {
+            return var;
+        }
+        VariableScope.Binding binding = scope != null ? scope.lookup(name) : null;
+        if (binding != null) {
+            return new VariableWithUses(binding.value(), binding.uses());
+        }
+        return fallback.findVariable(name);
+    }
+
+    /**
+     * Reads a variable and counts one use against it. On a frame, an inherited variable with a use
+     * limit is copied onto the frame on its first read, so the limit is enforced per frame and the
+     * scope and parent stay untouched. Unlimited variables are read in place.
+     *
+     * @return The value, or {@link #UNDEFINED} if the variable is not defined
+     */
+    private Object readVariable(String name) {
+        VariableWithUses var = variables.get(name);
+        if (var == null && fallback != null) {
+            VariableScope.Binding binding = scope != null ? scope.lookup(name) : null;
+            if (binding != null && binding.uses() < 0) {
+                return binding.value();
+            }
+            VariableWithUses inherited = binding != null
+                    ? new VariableWithUses(binding.value(), binding.uses()) : fallback.findVariable(name);
+            if (inherited == null) {
+                return UNDEFINED;
+            }
+            if (inherited.remainingUses < 0) {
+                return inherited.value;
+            }
+            var = inherited.copy();
+            variables.put(name, var);
+        }
+        return var != null ? var.getValue() : UNDEFINED;
+    }
 
     /**
      * Evaluates the given expression and returns its result.
@@ -48,11 +196,19 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
      *
      * @param expression The expression to evaluate
      * @return The result of evaluating the expression
+     * @throws ExpressionTimeoutException if the evaluation exceeds its step, time or depth budget
      * @throws RuntimeException if an error occurs during evaluation
      */
     public Object interpret(Parser.Expression expression) {
         try {
-            return evaluate(expression);
+            beginEvaluation();
+            try {
+                return evaluate(expression);
+            } finally {
+                endEvaluation();
+            }
+        } catch (ExpressionTimeoutException timeout) {
+            throw timeout;
         } catch (RuntimeException error) {
             throw new RuntimeException("Runtime error: " + error.getMessage(), error);
         }
@@ -68,6 +224,29 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         }
         if (debug) {
             System.out.println("[ExpressionEngine DEBUG] Evaluating binary expression: " + expr);
+        } else {
+            // Numeric fast path: evaluate over primitive doubles and box only the final result
+            switch (expr.operator.type()) {
+                case PLUS:
+                    if (expr.isNumeric()) return evaluateArithmetic(expr);
+                    break;
+                case MINUS:
+                case MULTIPLY:
+                case DIVIDE:
+                case MODULO:
+                case POWER:
+                    return evaluateArithmetic(expr);
+                case GREATER:
+                    return evaluateDouble(expr.left, expr.operator) > evaluateDouble(expr.right, expr.operator);
+                case GREATER_EQUAL:
+                    return evaluateDouble(expr.left, expr.operator) >= evaluateDouble(expr.right, expr.operator);
+                case LESS:
+                    return evaluateDouble(expr.left, expr.operator) < evaluateDouble(expr.right, expr.operator);
+                case LESS_EQUAL:
+                    return evaluateDouble(expr.left, expr.operator) <= evaluateDouble(expr.right, expr.operator);
+                default:
+                    break;
+            }
         }
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
@@ -117,6 +296,63 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         return null;
     }
 
+    /**
+     * Evaluates an expression that must produce a number without boxing intermediate results.
+     * <p>
+     * Numeric literals and arithmetic subtrees (see {@link Parser.Expression#isNumeric()}) are
+     * computed directly on primitive doubles. Any other expression is evaluated normally and its
+     * result must be a {@link Number}. Every node counts as one step, like in {@link #interpret}.
+     * </p>
+     *
+     * @param expression The expression to evaluate
+     * @param operator   The operator the value is used by, for error messages
+     * @return The numeric value of the expression
+     * @throws ExpressionEngineException if the expression does not evaluate to a number
+     * @throws ExpressionTimeoutException if the evaluation exceeds its step or time budget
+     */
+    double evaluateDouble(Parser.Expression expression, Token operator) {
+        if (expression instanceof Parser.Expression.Binary binary && binary.isNumeric()) {
+            step();
+            return evaluateArithmetic(binary);
+        } else if (expression instanceof Parser.Expression.Literal literal && literal.value instanceof Number number) {
+            step();
+            return number.doubleValue();
+        } else if (expression instanceof Parser.Expression.Unary unary && unary.isNumeric()) {
+            step();
+            return -evaluateDouble(unary.right, unary.operator);
+        } else if (expression instanceof Parser.Expression.Grouping grouping && grouping.isNumeric()) {
+            step();
+            return evaluateDouble(grouping.expression, operator);
+        }
+        Object value = evaluate(expression);
+        checkNumberOperand(operator, value);
+        return ((Number) value).doubleValue();
+    }
+
+    /**
+     * Applies the operator of a numeric binary expression to its operands. The node itself has
+     * already been counted by the caller.
+     */
+    private double evaluateArithmetic(Parser.Expression.Binary binary) {
+        double left = evaluateDouble(binary.left, binary.operator);
+        double right = evaluateDouble(binary.right, binary.operator);
+        switch (binary.operator.type()) {
+            case PLUS:
+                return left + right;
+            case MINUS:
+                return left - right;
+            case MULTIPLY:
+                return left * right;
+            case DIVIDE:
+                if (right == 0) throw new ExpressionEngineException("Division by zero.");
+                return left / right;
+            case MODULO:
+                return left % right;
+            default:
+                return Math.pow(left, right);
+        }
+    }
+
     @Override
     public Object visitLogicalExpr(Parser.Expression.Logical expr) {
         Object left = evaluate(expr.left);
@@ -130,11 +366,14 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
 
     @Override
     public Object visitUnaryExpr(Parser.Expression.Unary expr) {
+        if (!debug && expr.isNumeric()) {
+            return -evaluateDouble(expr.right, expr.operator);
+        }
         Object right = evaluate(expr.right);
         return switch (expr.operator.type()) {
             case MINUS -> {
                 checkNumberOperand(expr.operator, right);
-                yield -(double) right;
+                yield -((Number) right).doubleValue();
             }
             case NOT -> !isTruthy(right);
             default -> null;
@@ -143,12 +382,32 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
 
     @Override
     public Object visitLiteralExpr(Parser.Expression.Literal expr) {
-        if (expr.value instanceof String str) {
-            if ((str.startsWith("\"") && str.endsWith("\"")) || (str.startsWith("'") && str.endsWith("'"))) {
+        return convertLiteral(expr.value);
+    }
+
+    @Override
+    public Object visitVariableExpr(Parser.Expression.Variable expr) {
+        return resolveVariable(expr.name.lexeme());
+    }
+
+    /**
+     * Converts a raw literal value into its runtime representation.
+     * <p>
+     * Quoted strings lose their quotes, numeric types are widened to {@link Double} and
+     * unquoted strings are resolved against the context, numbers, booleans and materials.
+     * </p>
+     *
+     * @param value The raw literal value as produced by the parser
+     * @return The converted runtime value
+     */
+    Object convertLiteral(Object value) {
+        if (value instanceof String str) {
+            if (isQuoted(str)) {
                 return str.substring(1, str.length() - 1);
             }
-            if (context.containsKey(str)) {
-                return context.get(str);
+            Object contextValue = context.get(str);
+            if (contextValue != null) {
+                return contextValue;
             }
             try {
                 return Double.valueOf(str);
@@ -162,28 +421,42 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
                 return str;
             }
         }
-        if (expr.value instanceof Integer i) return i.doubleValue();
-        if (expr.value instanceof Long l) return l.doubleValue();
-        if (expr.value instanceof Float f) return f.doubleValue();
-        return expr.value;
+        if (value instanceof Integer i) return i.doubleValue();
+        if (value instanceof Long l) return l.doubleValue();
+        if (value instanceof Float f) return f.doubleValue();
+        return value;
     }
 
-    @Override
-    public Object visitVariableExpr(Parser.Expression.Variable expr) {
-        String name = expr.name.lexeme();
+    /**
+     * Checks whether a raw string literal is wrapped in single or double quotes.
+     *
+     * @param str The raw literal
+     * @return True if the literal is a quoted string, false if it is resolved at runtime
+     */
+    static boolean isQuoted(String str) {
+        return (str.startsWith("\"") && str.endsWith("\"")) || (str.startsWith("'") && str.endsWith("'"));
+    }
+
+    /**
+     * Resolves a variable reference by checking the variables, the injected context and
+     * finally the material names, in that order.
+     *
+     * @param name The variable name
+     * @return The resolved value
+     * @throws ExpressionVariableException if the variable is not allowed or cannot be resolved
+     */
+    Object resolveVariable(String name) {
         if (!isVariableAllowed(name))
             throw new ExpressionVariableException("Access to variable '" + name + "' is not allowed");
 
-        if (variables.containsKey(name)) {
-            VariableWithUses v = variables.get(name);
-            //System.out.println("[Variable tracking] Accessing variable " + name + " (remaining uses: " + v.remainingUses + ")");
-            Object value = v.getValue();
-            //System.out.println("[Variable tracking] After access variable " + name + " (remaining uses: " + v.remainingUses + ")");
+        Object value = readVariable(name);
+        if (value != UNDEFINED) {
             return value;
         }
 
-        if (context.containsKey(name)) {
-            return context.get(name);
+        Object contextValue = context.get(name);
+        if (contextValue != null) {
+            return contextValue;
         }
 
         try {
@@ -250,6 +523,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
             throw new ExpressionEngineException("Cannot evaluate null expression");
         }
         try {
+            step();
             if (debug) {
                 System.out.println("[ExpressionEngine DEBUG] Evaluating: " + expression);
             }
@@ -258,53 +532,115 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
                 System.out.println("[ExpressionEngine DEBUG] Result: " + result);
             }
             return result;
+        } catch (ExpressionTimeoutException e) {
+            throw e;
         } catch (Exception e) {
             throw new ExpressionEngineException("Error evaluating expression: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Enters one level of evaluation. The outermost level starts a new budget; nested levels,
+     * i.e. expressions evaluated from inside function calls, share it. Every call must be paired
+     * with {@link #endEvaluation()}. The depth counts these nested evaluations only, not the
+     * nesting of the expression tree, so long operator chains are not limited by it.
+     *
+     * @throws ExpressionTimeoutException if the maximum recursion depth is exceeded
+     */
+    void beginEvaluation() {
+        if (depth == 0) {
+            steps = 0;
+            if (evaluationTimeout > 0) {
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(evaluationTimeout);
+            }
+        } else if (maxRecursionDepth > 0 && depth >= maxRecursionDepth) {
+            throw new ExpressionTimeoutException("Expression exceeded the maximum recursion depth of " + maxRecursionDepth);
+        }
+        depth++;
+    }
+
+    void endEvaluation() {
+        depth--;
+    }
+
+    /**
+     * Counts one evaluation step against the budget and checks the deadline every
+     * {@link #DEADLINE_CHECK_INTERVAL} steps.
+     *
+     * @throws ExpressionTimeoutException if the step limit or the evaluation timeout is exceeded
+     */
+    void step() {
+        int count = ++steps;
+        if (maxEvaluationSteps > 0 && count > maxEvaluationSteps) {
+            throw new ExpressionTimeoutException("Expression exceeded its budget of " + maxEvaluationSteps + " steps");
+        }
+        if (evaluationTimeout > 0 && count % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+            throw new ExpressionTimeoutException("Expression exceeded its evaluation timeout of " + evaluationTimeout + " ms");
+        }
+    }
+
     @Override
     public Object visitCallExpr(Parser.Expression.Call expr) {
-        String fullFunctionName = expr.name.lexeme();
-        String functionName = fullFunctionName;
-        String callType = null;
-        int lt = fullFunctionName.indexOf('<');
-        int gt = fullFunctionName.indexOf('>');
-        if (lt != -1 && gt != -1 && gt > lt) {
-            functionName = fullFunctionName.substring(0, lt);
-            callType = fullFunctionName.substring(lt + 1, gt);
-        }
-        if (!isFunctionAllowed(functionName))
-            throw new ExpressionEngineException("Access to function '" + functionName + "' is not allowed");
-        RegisteredFunction reg = functions.get(functionName);
-        if (reg == null) {
-            throw new ExpressionEngineException("Undefined function: " + fullFunctionName);
-        }
-        List<Object> arguments = new ArrayList<>();
-        for (int i = 0; i < expr.arguments.size(); i++) {
-            Object arg = evaluate(expr.arguments.get(i));
-            // Type inference & auto-conversion
-            if (reg.argTypes != null && i < reg.argTypes.length && reg.argTypes[i] != null) {
-                arg = TypeUtil.convert(arg, reg.argTypes[i]);
-            }
-            arguments.add(arg);
+        CallSite site = bindCall(expr);
+        if (site.error() != null) {
+            throw new ExpressionEngineException(site.error());
         }
-        if (callType == null && reg.defaultType != null) {
-            callType = reg.defaultType;
+        Object[] arguments = new Object[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = site.convertArgument(i, evaluate(expr.arguments.get(i)));
         }
         try {
-            Object result = reg.function.call(this, arguments, callType);
-            // Auto-convert return type
-            if (reg.returnType != null) {
-                result = TypeUtil.convert(result, reg.returnType);
-            }
-            return result;
+            return site.invoke(this, arguments);
+        } catch (ExpressionTimeoutException e) {
+            throw e;
         } catch (Exception e) {
-            throw new ExpressionEngineException("Error calling function " + fullFunctionName + ": " + e.getMessage(), e);
+            throw new ExpressionEngineException("Error calling function " + expr.name.lexeme() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolves the function a call refers to, together with its call type and argument
+     * converters. The result is cached on the call node and reused until the function registry
+     * or the function white-/blacklist changes.
+     *
+     * @param expr The call expression
+     * @return The bound call site; its error is set if the function is not allowed or not registered
+     */
+    CallSite bindCall(Parser.Expression.Call expr) {
+        CallSite site = expr.callSite;
+        if (site != null && site.link() == linkVersion && site.version() == linkVersion.get()) {
+            return site;
+        }
+        int version = linkVersion.get();
+        String functionName = expr.functionName;
+        if (!isFunctionAllowed(functionName)) {
+            site = new CallSite(linkVersion, version, null, null, null, null,
+                    "Access to function '" + functionName + "' is not allowed");
+        } else {
+            RegisteredFunction reg = functions.get(functionName);
+            if (reg == null) {
+                site = new CallSite(linkVersion, version, null, null, null, null,
+                        "Undefined function: " + expr.name.lexeme());
+            } else {
+                UnaryOperator<Object>[] argumentConverters = null;
+                if (reg.argTypes != null) {
+                    @SuppressWarnings("unchecked")
+                    UnaryOperator<Object>[] converters = new UnaryOperator[reg.argTypes.length];
+                    for (int i = 0; i < converters.length; i++) {
+                        converters[i] = TypeUtil.converter(reg.argTypes[i]);
+                    }
+                    argumentConverters = converters;
+                }
+                String callType = expr.callType != null ? expr.callType : reg.defaultType;
+                site = new CallSite(linkVersion, version, reg, callType, argumentConverters,
+                        TypeUtil.converter(reg.returnType), null);
+            }
         }
+        expr.callSite = site;
+        return site;
     }
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null) return false;
         if (object instanceof Boolean) return (boolean) object;
         if (object instanceof Number) return ((Number) object).doubleValue() != 0;
@@ -312,7 +648,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         return true;
     }
 
-    private boolean isEqual(Object a, Object b) {
+    static boolean isEqual(Object a, Object b) {
         if (a == null && b == null) return true;
         if (a == null) return false;
 
@@ -323,17 +659,17 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         return a.equals(b);
     }
 
-    private void checkNumberOperand(Token operator, Object operand) {
+    static void checkNumberOperand(Token operator, Object operand) {
         if (operand instanceof Number) return;
         throw new ExpressionEngineException("Invalid operand for operator " + operator.lexeme() + ": " + operand + " (must be a number)");
     }
 
-    private void checkNumberOperands(Token operator, Object left, Object right) {
+    static void checkNumberOperands(Token operator, Object left, Object right) {
         checkNumberOperand(operator, left);
         checkNumberOperand(operator, right);
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) return "null";
         if (object instanceof Double) {
             String text = object.toString();
@@ -360,7 +696,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     }
 
     public boolean hasVariable(String name, boolean checkUses) {
-        VariableWithUses var = variables.get(name);
+        VariableWithUses var = findVariable(name);
         if (var == null) return false;
         return !checkUses || var.remainingUses > 0;
     }
@@ -377,10 +713,8 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
      * @return The value of the variable, or null if it does not exist or has no remaining uses.
      */
     public Object getVariable(String name) {
-        VariableWithUses var = variables.get(name);
-        if (var == null) return null;
-
-        return var.getValue();
+        Object value = readVariable(name);
+        return value != UNDEFINED ? value : null;
     }
 
     /**
@@ -391,7 +725,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
      * @return The value of the variable, or null if it does not exist.
      */
     public Object peekVariable(String name) {
-        VariableWithUses var = variables.get(name);
+        VariableWithUses var = findVariable(name);
         if (var == null) return null;
         return var.peekValue();
     }
@@ -401,7 +735,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     }
 
     public boolean hasVariable(String name) {
-        return variables.containsKey(name);
+        return findVariable(name) != null;
     }
 
     public void registerFunction(String name, FunctionCall function) {
@@ -413,17 +747,58 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     }
 
     public void registerFunction(String name, FunctionCall function, String defaultType, Class<?>[] argTypes, Class<?> returnType) {
+        registerFunction(name, function, defaultType, argTypes, returnType, false);
+    }
+
+    /**
+     * Registers a function with type information and a purity flag.
+     * <p>
+     * A pure function has no side effects and always returns the same result for the same
+     * arguments. Calls to pure functions whose arguments are all constants may be folded
+     * into a literal by the {@link ExpressionOptimizer}.
+     * </p>
+     *
+     * @param name        The function name
+     * @param function    The implementation
+     * @param defaultType The default type parameter
+     * @param argTypes    Argument types (null for any)
+     * @param returnType  Return type (null for any)
+     * @param pure        True if the function is side-effect free and deterministic
+     */
+    public void registerFunction(String name, FunctionCall function, String defaultType, Class<?>[] argTypes, Class<?> returnType, boolean pure) {
         if (functions.containsKey(name))
             return;
-        functions.put(name, new RegisteredFunction(function, defaultType, argTypes, returnType));
+        functions.put(name, new RegisteredFunction(function, defaultType, argTypes, returnType, pure));
+        linkVersion.incrementAndGet();
     }
 
     public void unregisterFunction(String name) {
-        functions.remove(name);
+        if (functions.remove(name) != null) linkVersion.incrementAndGet();
     }
 
     public void clearFunctions() {
         functions.clear();
+        linkVersion.incrementAndGet();
+    }
+
+    /**
+     * Looks up a registered function by its plain name (without generic suffix).
+     *
+     * @param name The function name
+     * @return The registered function, or null if none is registered under that name
+     */
+    RegisteredFunction lookupFunction(String name) {
+        return functions.get(name);
+    }
+
+    /**
+     * Returns a counter that changes whenever the function registry or the function
+     * white-/blacklist changes. Compiled expressions use it to detect stale call sites.
+     *
+     * @return The current link version
+     */
+    int getLinkVersion() {
+        return linkVersion.get();
     }
 
     public boolean isDebug() {
@@ -435,6 +810,10 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     }
 
     public void putContext(String key, Object value) {
+        if (value == null) {
+            context.remove(key);
+            return;
+        }
         context.put(key, value);
     }
 
@@ -449,11 +828,13 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     public void setFunctionWhitelist(List<String> whitelist) {
         functionWhitelist.clear();
         if (whitelist != null) functionWhitelist.addAll(whitelist);
+        linkVersion.incrementAndGet();
     }
 
     public void setFunctionBlacklist(List<String> blacklist) {
         functionBlacklist.clear();
         if (blacklist != null) functionBlacklist.addAll(blacklist);
+        linkVersion.incrementAndGet();
     }
 
     public void setVariableWhitelist(List<String> whitelist) {
@@ -466,7 +847,7 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         if (blacklist != null) variableBlacklist.addAll(blacklist);
     }
 
-    private boolean isFunctionAllowed(String name) {
+    boolean isFunctionAllowed(String name) {
         if (!functionWhitelist.isEmpty() && !functionWhitelist.contains(name)) return false;
         if (functionBlacklist.contains(name)) return false;
         return true;
@@ -484,6 +865,8 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
     public int getMaxRecursionDepth() { return maxRecursionDepth; }
     public void setEvaluationTimeout(int timeoutMillis) { evaluationTimeout = timeoutMillis; }
     public int getEvaluationTimeout() { return evaluationTimeout; }
+    public void setMaxEvaluationSteps(int maxSteps) { maxEvaluationSteps = maxSteps; }
+    public int getMaxEvaluationSteps() { return maxEvaluationSteps; }
     public void registerVariableType(String name, Class<?> clazz) { if (name != null && clazz != null) variableTypes.put(name, clazz); }
     public void registerFunctionType(String name, Class<?> clazz) { if (name != null && clazz != null) functionTypes.put(name, clazz); }
     public void setErrorHandler(java.util.function.BiConsumer<ExpressionEngine, Exception> handler) { errorHandler = handler; }
@@ -497,9 +880,17 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         private int remainingUses;
 
         VariableWithUses(Object value, int uses) {
+            this(value, uses, uses);
+        }
+
+        private VariableWithUses(Object value, int remainingUses, int maxUses) {
             this.value = value;
-            this.remainingUses = uses;
-            this.maxUses = uses;
+            this.remainingUses = remainingUses;
+            this.maxUses = maxUses;
+        }
+
+        VariableWithUses copy() {
+            return new VariableWithUses(value, remainingUses, maxUses);
         }
 
         /**
@@ -529,7 +920,31 @@ public class Interpreter implements Parser.Expression.Visitor<Object> {
         }
     }
 
-    private record RegisteredFunction(FunctionCall function, String defaultType, Class<?>[] argTypes,
-                                      Class<?> returnType) {
+    record RegisteredFunction(FunctionCall function, String defaultType, Class<?>[] argTypes,
+                              Class<?> returnType, boolean pure) {
+    }
+
+    /**
+     * A call expression resolved against the function registry of an interpreter. The link
+     * counter and its version at bind time identify the registry state the site is valid for.
+     */
+    record CallSite(AtomicInteger link, int version, RegisteredFunction function, String callType,
+                    UnaryOperator<Object>[] argumentConverters, UnaryOperator<Object> returnConverter,
+                    String error) {
+
+        Object convertArgument(int index, Object value) {
+            if (argumentConverters == null || index >= argumentConverters.length) return value;
+            UnaryOperator<Object> converter = argumentConverters[index];
+            return converter != null ? converter.apply(value) : value;
+        }
+
+        /**
+         * Calls the bound function. The argument array is handed over as a fixed-size list view
+         * and must not be reused by the caller afterwards.
+         */
+        Object invoke(Interpreter interpreter, Object[] arguments) {
+            Object result = function.function().call(interpreter, Arrays.asList(arguments), callType);
+            return returnConverter != null ? returnConverter.apply(result) : result;
+        }
     }
 }
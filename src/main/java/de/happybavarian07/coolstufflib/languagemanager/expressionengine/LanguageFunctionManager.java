@@ -133,7 +133,7 @@ public class LanguageFunctionManager {
                 return ((Number) args.get(0)).doubleValue() + ((Number) args.get(1)).doubleValue();
             }
             throw new RuntimeException("Unsupported add() return type: " + callType);
-        }, "double");
+        }, "double", null, null, true);
 
         registerFunction("Out", (interpreter, args, callType) -> {
             if (args == null || args.isEmpty()) return null;
@@ -168,7 +168,7 @@ public class LanguageFunctionManager {
                 return value;
             }
             return value;
-        }, "Object");
+        }, "Object", null, null, true);
     }
 
     /**
@@ -381,6 +381,20 @@ public class LanguageFunctionManager {
         expressionEngine.registerFunction(name, function, defaultType);
     }
 
+    /**
+     * Registers a function with the expression parser, including type information and a purity flag.
+     * 
+     * @param name The name of the function
+     * @param function The function implementation
+     * @param defaultType The default return type for the function
+     * @param argTypes Argument types (null for any)
+     * @param returnType Return type (null for any)
+     * @param pure True if the function is side-effect free and its calls may be folded at parse time
+     */
+    public void registerFunction(String name, FunctionCall function, String defaultType, Class<?>[] argTypes, Class<?> returnType, boolean pure) {
+        expressionEngine.registerFunction(name, function, defaultType, argTypes, returnType, pure);
+    }
+
     /**
      * Unregisters a function from the expression parser.
      * 
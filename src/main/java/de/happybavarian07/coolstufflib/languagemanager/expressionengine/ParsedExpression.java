@@ -0,0 +1,178 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The result of lexing and parsing one expression string, as stored in the parse cache of the
+ * {@link ExpressionEngine}.
+ * <p>
+ * The token list, the sorted identifier names and the expression tree are produced by a single
+ * lexer pass and reused for every evaluation of the same expression text. The optimized tree and
+ * the compiled form are created lazily on first use.
+ * </p>
+ */
+final class ParsedExpression {
+    private static final String[] NO_IDENTIFIERS = new String[0];
+
+    private final String source;
+    private final List<Token> tokens;
+    private final String[] identifiers;
+    private final Parser.Expression expression;
+    private final String[] functionNames;
+    private volatile Purity purity;
+    private volatile Optimized optimized;
+    private volatile CompiledExpression compiled;
+
+    ParsedExpression(String source, List<Token> tokens, Parser.Expression expression) {
+        this.source = source;
+        this.tokens = List.copyOf(tokens);
+        this.identifiers = collectIdentifiers(this.tokens);
+        this.expression = expression;
+        Set<String> calls = new LinkedHashSet<>();
+        collectFunctionNames(expression, calls);
+        this.functionNames = calls.toArray(NO_IDENTIFIERS);
+    }
+
+    private static String[] collectIdentifiers(List<Token> tokens) {
+        TreeSet<String> names = null;
+        for (Token token : tokens) {
+            if (token.type() == TokenType.IDENTIFIER) {
+                if (names == null) names = new TreeSet<>();
+                names.add(token.lexeme());
+            }
+        }
+        return names != null ? names.toArray(new String[0]) : NO_IDENTIFIERS;
+    }
+
+    private static void collectFunctionNames(Parser.Expression expression, Set<String> names) {
+        if (expression instanceof Parser.Expression.Call call) {
+            names.add(call.functionName);
+            for (Parser.Expression argument : call.arguments) collectFunctionNames(argument, names);
+        } else if (expression instanceof Parser.Expression.Binary binary) {
+            collectFunctionNames(binary.left, names);
+            collectFunctionNames(binary.right, names);
+        } else if (expression instanceof Parser.Expression.Logical logical) {
+            collectFunctionNames(logical.left, names);
+            collectFunctionNames(logical.right, names);
+        } else if (expression instanceof Parser.Expression.Unary unary) {
+            collectFunctionNames(unary.right, names);
+        } else if (expression instanceof Parser.Expression.Grouping grouping) {
+            collectFunctionNames(grouping.expression, names);
+        } else if (expression instanceof Parser.Expression.Ternary ternary) {
+            collectFunctionNames(ternary.condition, names);
+            collectFunctionNames(ternary.trueExpression, names);
+            collectFunctionNames(ternary.falseExpression, names);
+        } else if (expression instanceof Parser.Expression.ConditionalChain chain) {
+            for (Parser.Expression.ConditionalBranch branch : chain.branches) {
+                collectFunctionNames(branch.condition, names);
+                collectFunctionNames(branch.output, names);
+            }
+            collectFunctionNames(chain.elseBranch, names);
+        } else if (expression instanceof Parser.Expression.Assignment assignment) {
+            collectFunctionNames(assignment.value, names);
+        } else if (expression instanceof Parser.Expression.Sequence sequence) {
+            for (Parser.Expression step : sequence.exprs) collectFunctionNames(step, names);
+        }
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    List<Token> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the distinct identifier names of the expression in sorted order.
+     *
+     * @return The identifier names, never null
+     */
+    String[] getIdentifiers() {
+        return identifiers;
+    }
+
+    Parser.Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Checks whether every function this expression calls is registered as pure. Results of
+     * expressions that call impure or unknown functions may change between evaluations with the
+     * same variables and should not be cached.
+     *
+     * @param interpreter The interpreter whose function registry is checked
+     * @return True if the expression only calls pure functions or no functions at all
+     */
+    boolean isPure(Interpreter interpreter) {
+        if (functionNames.length == 0) {
+            return true;
+        }
+        Purity current = purity;
+        int linkVersion = interpreter.getLinkVersion();
+        if (current == null || current.linkVersion() != linkVersion) {
+            boolean pure = true;
+            for (String name : functionNames) {
+                Interpreter.RegisteredFunction reg = interpreter.lookupFunction(name);
+                if (reg == null || !reg.pure()) {
+                    pure = false;
+                    break;
+                }
+            }
+            current = new Purity(linkVersion, pure);
+            purity = current;
+        }
+        return current.pure();
+    }
+
+    /**
+     * Returns the optimized form of this expression, optimizing it again if the function registry
+     * changed since the last run, because folded pure function calls may no longer be valid.
+     *
+     * @param optimizer   The optimizer to use
+     * @param interpreter The interpreter whose function registry the optimizer uses
+     * @return The up-to-date optimized expression
+     */
+    Optimized getOptimized(ExpressionOptimizer optimizer, Interpreter interpreter) {
+        Optimized current = optimized;
+        int linkVersion = interpreter.getLinkVersion();
+        if (current == null || current.linkVersion() != linkVersion) {
+            Parser.Expression tree = optimizer.optimize(expression);
+            boolean constant = ExpressionOptimizer.isConstant(tree);
+            current = new Optimized(tree, linkVersion, constant, constant ? ExpressionOptimizer.constantValue(tree) : null);
+            optimized = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the compiled form of the given tree of this expression, compiling or re-linking it
+     * if necessary.
+     *
+     * @param compiler    The compiler to use
+     * @param tree        The tree to compile, either {@link #getExpression()} or an optimized version of it
+     * @param interpreter The interpreter the compiled form has to be linked to
+     * @return The up-to-date compiled expression
+     */
+    CompiledExpression getCompiled(ExpressionCompiler compiler, Parser.Expression tree, Interpreter interpreter) {
+        CompiledExpression current = compiled;
+        if (current == null || current.getSource() != tree || !current.isLinkedTo(interpreter)) {
+            current = compiler.compile(tree);
+            compiled = current;
+        }
+        return current;
+    }
+
+    /**
+     * The optimized tree of an expression, together with its constant value if the whole
+     * expression folded into a single literal.
+     */
+    record Optimized(Parser.Expression tree, int linkVersion, boolean constant, Object value) {
+    }
+
+    private record Purity(int linkVersion, boolean pure) {
+    }
+}
@@ -485,6 +485,17 @@ public class Parser {
     public static abstract class Expression {
         public abstract <R> R accept(Visitor<R> visitor);
 
+        /**
+         * <p>Returns whether this expression is statically known to produce a number (or fail).
+         * Numeric subtrees can be evaluated over primitive doubles without boxing intermediate
+         * results.</p>
+         *
+         * @return True if the expression always evaluates to a number
+         */
+        public boolean isNumeric() {
+            return false;
+        }
+
         public static interface Visitor<R> {
             R visitBinaryExpr(Binary expr);
 
@@ -529,10 +540,22 @@ public class Parser {
             public final Token operator;
             public final Expression right;
 
+            private final boolean numeric;
+
             public Binary(Expression left, Token operator, Expression right) {
                 this.left = left;
                 this.operator = operator;
                 this.right = right;
+                this.numeric = operator != null && switch (operator.type()) {
+                    case MINUS, MULTIPLY, DIVIDE, MODULO, POWER -> true;
+                    case PLUS -> left != null && right != null && left.isNumeric() && right.isNumeric();
+                    default -> false;
+                };
+            }
+
+            @Override
+            public boolean isNumeric() {
+                return numeric;
             }
 
             @Override
@@ -595,6 +618,11 @@ public class Parser {
                 this.right = right;
             }
 
+            @Override
+            public boolean isNumeric() {
+                return operator != null && operator.type() == TokenType.MINUS;
+            }
+
             @Override
             public <R> R accept(Visitor<R> visitor) {
                 return visitor.visitUnaryExpr(this);
@@ -619,6 +647,11 @@ public class Parser {
                 this.value = value;
             }
 
+            @Override
+            public boolean isNumeric() {
+                return value instanceof Number;
+            }
+
             @Override
             public <R> R accept(Visitor<R> visitor) {
                 return visitor.visitLiteralExpr(this);
@@ -670,6 +703,11 @@ public class Parser {
                 this.expression = expression;
             }
 
+            @Override
+            public boolean isNumeric() {
+                return expression != null && expression.isNumeric();
+            }
+
             @Override
             public <R> R accept(Visitor<R> visitor) {
                 return visitor.visitGroupingExpr(this);
@@ -695,10 +733,33 @@ public class Parser {
         public static class Call extends Expression {
             public final Token name;
             public final List<Expression> arguments;
+            /**
+             * The function name without a generic suffix, e.g. {@code Out} for {@code Out<int>}.
+             */
+            public final String functionName;
+            /**
+             * The type given in the generic suffix, or null if the call has none.
+             */
+            public final String callType;
+            /**
+             * The call site bound by the last interpreter that evaluated this call, see
+             * {@link Interpreter#bindCall(Call)}.
+             */
+            volatile Interpreter.CallSite callSite;
 
             public Call(Token name, List<Expression> arguments) {
                 this.name = name;
                 this.arguments = arguments;
+                String fullName = name.lexeme();
+                int lt = fullName.indexOf('<');
+                int gt = fullName.indexOf('>');
+                if (lt != -1 && gt != -1 && gt > lt) {
+                    this.functionName = fullName.substring(0, lt);
+                    this.callType = fullName.substring(lt + 1, gt);
+                } else {
+                    this.functionName = fullName;
+                    this.callType = null;
+                }
             }
 
             @Override
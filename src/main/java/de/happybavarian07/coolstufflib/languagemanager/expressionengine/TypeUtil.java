@@ -1,19 +1,46 @@
 package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
 
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
 public class TypeUtil {
     public static Object convert(Object value, Class<?> targetType) {
         if (value == null) return null;
         if (targetType == null || targetType.isInstance(value)) return value;
-        String str = value.toString();
+        return parse(value, targetType, parserFor(targetType));
+    }
+
+    /**
+     * Returns a converter that behaves like {@link #convert(Object, Class)} for a fixed target
+     * type. The target type is resolved once, so call sites can convert their arguments without
+     * comparing classes on every call.
+     *
+     * @param targetType The type to convert to, or null for no conversion
+     * @return The converter, or null if values are passed through unchanged
+     */
+    public static UnaryOperator<Object> converter(Class<?> targetType) {
+        if (targetType == null || targetType == Object.class) return null;
+        Function<String, Object> parser = parserFor(targetType);
+        return value -> value == null || targetType.isInstance(value) ? value : parse(value, targetType, parser);
+    }
+
+    private static Function<String, Object> parserFor(Class<?> targetType) {
         if (targetType == Integer.class || targetType == int.class) {
-            return Integer.parseInt(str);
+            return Integer::parseInt;
         } else if (targetType == Double.class || targetType == double.class) {
-            return Double.parseDouble(str);
+            return Double::parseDouble;
         } else if (targetType == Boolean.class || targetType == boolean.class) {
-            return Boolean.parseBoolean(str);
+            return Boolean::parseBoolean;
         } else if (targetType == String.class) {
-            return str;
+            return str -> str;
+        }
+        return null;
+    }
+
+    private static Object parse(Object value, Class<?> targetType, Function<String, Object> parser) {
+        if (parser == null) {
+            throw new IllegalArgumentException("Cannot convert " + value + " to " + targetType.getSimpleName());
         }
-        throw new IllegalArgumentException("Cannot convert " + value + " to " + targetType.getSimpleName());
+        return parser.apply(value.toString());
     }
 }
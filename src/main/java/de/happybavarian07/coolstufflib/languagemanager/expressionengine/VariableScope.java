@@ -0,0 +1,148 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>An immutable set of variable bindings that can be layered over the variables of an
+ * {@link ExpressionEngine} without modifying it.</p>
+ *
+ * <p>Scopes are copy-on-write: {@link #with(String, Object, int)} and {@link #without(String)}
+ * return a new scope and leave the original untouched, so a scope can be stored per player and
+ * read from any thread without locking. A scope may have a parent scope; bindings of the child
+ * hide bindings of the parent with the same name.</p>
+ *
+ * <p>When an expression is evaluated against a scope (see {@link ExpressionEngine#evaluate(String, VariableScope)}),
+ * a fresh interpreter frame reads the scope's bindings in place. Names that are not bound in the
+ * scope fall through to the engine's own variables, i.e. language-level and global variables.</p>
+ *
+ * <pre><code>
+ * VariableScope scope = VariableScope.empty().with("kills", 12).with("bonus", 3, 1);
+ * Object result = engine.evaluate("kills * 2 + bonus", scope);
+ * </code></pre>
+ */
+public final class VariableScope {
+    private static final VariableScope EMPTY = new VariableScope(null, Map.of());
+
+    private final VariableScope parent;
+    private final Map<String, Binding> bindings;
+
+    private VariableScope(VariableScope parent, Map<String, Binding> bindings) {
+        this.parent = parent;
+        this.bindings = bindings;
+    }
+
+    /**
+     * Returns the shared scope without bindings and without a parent.
+     *
+     * @return The empty scope
+     */
+    public static VariableScope empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a new, empty scope whose lookups fall through to this scope.
+     *
+     * @return A child scope of this scope
+     */
+    public VariableScope child() {
+        return new VariableScope(this, Map.of());
+    }
+
+    /**
+     * Returns a copy of this scope with the given variable bound without a use limit.
+     *
+     * @param name  The variable name
+     * @param value The variable value, may be null
+     * @return The new scope
+     */
+    public VariableScope with(String name, Object value) {
+        return with(name, value, -1);
+    }
+
+    /**
+     * Returns a copy of this scope with the given variable bound. The use limit applies to each
+     * evaluation against the scope separately, the scope itself is never consumed.
+     *
+     * @param name  The variable name
+     * @param value The variable value, may be null
+     * @param uses  The number of reads allowed per evaluation, -1 for unlimited
+     * @return The new scope
+     */
+    public VariableScope with(String name, Object value, int uses) {
+        if (name == null) {
+            throw new IllegalArgumentException("Variable name cannot be null");
+        }
+        Map<String, Binding> copy = new HashMap<>(bindings);
+        copy.put(name, new Binding(value, uses));
+        return new VariableScope(parent, copy);
+    }
+
+    /**
+     * Returns a copy of this scope without the given variable. Only this scope's own binding is
+     * removed; a binding of the same name in a parent scope becomes visible again.
+     *
+     * @param name The variable name
+     * @return The new scope, or this scope if the variable was not bound in it
+     */
+    public VariableScope without(String name) {
+        if (!bindings.containsKey(name)) {
+            return this;
+        }
+        if (bindings.size() == 1) {
+            return parent != null ? parent.child() : EMPTY;
+        }
+        Map<String, Binding> copy = new HashMap<>(bindings);
+        copy.remove(name);
+        return new VariableScope(parent, copy);
+    }
+
+    /**
+     * Looks up a binding in this scope and then in its parents.
+     *
+     * @param name The variable name
+     * @return The binding, or null if the variable is not bound
+     */
+    public Binding lookup(String name) {
+        for (VariableScope scope = this; scope != null; scope = scope.parent) {
+            Binding binding = scope.bindings.get(name);
+            if (binding != null) {
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether this scope and its parents bind no variables.
+     *
+     * @return True if no variable is visible through this scope
+     */
+    public boolean isEmpty() {
+        for (VariableScope scope = this; scope != null; scope = scope.parent) {
+            if (!scope.bindings.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the parent scope.
+     *
+     * @return The parent, or null for a root scope
+     */
+    public VariableScope getParent() {
+        return parent;
+    }
+
+    /**
+     * A variable value together with its per-evaluation use limit.
+     *
+     * @param value The variable value, may be null
+     * @param uses  The number of reads allowed per evaluation, -1 for unlimited
+     */
+    public record Binding(Object value, int uses) {
+    }
+}
@@ -0,0 +1,10 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions;
+
+/**
+ * Thrown when an evaluation exceeds its step budget, its evaluation timeout or the maximum
+ * recursion depth of the interpreter.
+ */
+public class ExpressionTimeoutException extends ExpressionEngineException {
+    public ExpressionTimeoutException(String message) { super(message); }
+    public ExpressionTimeoutException(String message, Throwable cause) { super(message, cause); }
+}
@@ -3,6 +3,7 @@ package de.happybavarian07.coolstufflib.menusystem.misc;/*
  * @Date 04.11.2023 | 13:27
  */
 
+import de.happybavarian07.coolstufflib.languagemanager.PlaceholderContext;
 import de.happybavarian07.coolstufflib.languagemanager.PlaceholderType;
 import de.happybavarian07.coolstufflib.menusystem.Menu;
 import de.happybavarian07.coolstufflib.menusystem.PlayerMenuUtility;
@@ -73,9 +74,9 @@ public class ConfirmationMenu extends Menu {
                     methodToExecute.invoke(objectToInvokeOn, methodArgs.toArray());
                 } catch (Exception ex) {
                     if(exceptionsToCatch.contains(ex.getClass())) {
-                        lgm.addPlaceholder(PlaceholderType.MESSAGE, "%error%", ex + ": " + ex.getMessage(), false);
-                        lgm.addPlaceholder(PlaceholderType.MESSAGE, "%stacktrace%", Arrays.toString(ex.getStackTrace()), false);
-                        player.sendMessage(lgm.getMessage("Player.General.Error", player, true));
+                        PlaceholderContext context = PlaceholderContext.of("%error%", ex + ": " + ex.getMessage())
+                                .with("%stacktrace%", Arrays.toString(ex.getStackTrace()));
+                        player.sendMessage(lgm.getMessage("Player.General.Error", player, context));
                     }
                     ex.printStackTrace();
                 }
@@ -3,6 +3,7 @@ package de.happybavarian07.coolstufflib.menusystem.misc;/*
  * @Date 27.11.2022 | 10:51
  */
 
+import de.happybavarian07.coolstufflib.languagemanager.PlaceholderContext;
 import de.happybavarian07.coolstufflib.languagemanager.PlaceholderType;
 import de.happybavarian07.coolstufflib.menusystem.Menu;
 import de.happybavarian07.coolstufflib.menusystem.PaginatedMenu;
@@ -171,9 +172,7 @@ public class CustomPlayerSelector<T, R> extends PaginatedMenu<Player> {
                 player.closeInventory();
             }
         })).exceptionally(throwable -> {
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%error%", throwable + ": " + throwable.getMessage(), false);
-            lgm.addPlaceholder(PlaceholderType.MESSAGE, "%stacktrace%", Arrays.toString(throwable.getStackTrace()), false);
-            player.sendMessage(lgm.getMessage("Player.General.Error", player, true));
+            player.sendMessage(lgm.getMessage("Player.General.Error", player, errorContext(throwable)));
             return null;
         });
     }
@@ -191,14 +190,18 @@ public class CustomPlayerSelector<T, R> extends PaginatedMenu<Player> {
                     player.closeInventory();
                 }
             })).exceptionally(throwable -> {
-                lgm.addPlaceholder(PlaceholderType.MESSAGE, "%error%", throwable + ": " + throwable.getMessage(), false);
-                lgm.addPlaceholder(PlaceholderType.MESSAGE, "%stacktrace%", Arrays.toString(throwable.getStackTrace()), false);
-                player.sendMessage(lgm.getMessage("Player.General.Error", player, true));
+                player.sendMessage(lgm.getMessage("Player.General.Error", player, errorContext(throwable)));
                 return null;
             });
         }
     }
 
+    // Runs on the completing thread, so the error is passed per message instead of through the shared placeholders
+    private PlaceholderContext errorContext(Throwable throwable) {
+        return PlaceholderContext.of("%error%", throwable + ": " + throwable.getMessage())
+                .with("%stacktrace%", Arrays.toString(throwable.getStackTrace()));
+    }
+
     public void setPlayers(List<Player> players, Function<Player, ItemStack> renderer) {
         setPaginatedData(players, renderer);
     }
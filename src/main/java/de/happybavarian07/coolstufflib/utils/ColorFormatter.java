@@ -0,0 +1,219 @@
+package de.happybavarian07.coolstufflib.utils;
+
+import de.happybavarian07.coolstufflib.cache.SegmentedLruCache;
+
+/**
+ * <p>Translates {@code &} colour codes, {@code &#RRGGBB} hex colours and the {@code %prefix%}
+ * placeholder in a single pass over the text. {@link #translateCached(String)} and
+ * {@link #formatCached(String, String)} keep their results in a bounded cache for texts from
+ * language files, which are translated again and again. Values inserted for placeholders differ
+ * from call to call and use the uncached {@link #translate(String)}.</p>
+ *
+ * <p>{@link LastColorTracker} follows the colours of a text while it is being built, so the
+ * colours in effect at any point can be read without scanning the text again.</p>
+ *
+ * <pre><code>
+ * String message = ColorFormatter.format("%prefix% &amp;aSaved &amp;#ff8800%count% &amp;aitems", prefix);
+ * </code></pre>
+ */
+public final class ColorFormatter {
+    /**
+     * The character Minecraft uses to start a colour code.
+     */
+    public static final char COLOR_CHAR = '§';
+    private static final char ALT_COLOR_CHAR = '&';
+    private static final String PREFIX_KEY = "%prefix%";
+    private static final String CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+    private static final int CACHE_SIZE = 2048;
+    private static final SegmentedLruCache<String, String> translated = new SegmentedLruCache<>(CACHE_SIZE);
+    private static final SegmentedLruCache<String, String> formatted = new SegmentedLruCache<>(CACHE_SIZE);
+
+    private ColorFormatter() {
+    }
+
+    /**
+     * Translates {@code &} colour codes and {@code &#RRGGBB} hex colours.
+     *
+     * @param text The text to translate
+     * @return The translated text
+     */
+    public static String translate(String text) {
+        if (text.indexOf(ALT_COLOR_CHAR) == -1) return text;
+        return format(text, null, new StringBuilder(text.length() + 16)).toString();
+    }
+
+    /**
+     * Inserts the prefix for {@code %prefix%} and translates colour codes and hex colours of
+     * the text and the prefix.
+     *
+     * @param text   The text to format
+     * @param prefix The prefix to insert
+     * @return The formatted text
+     */
+    public static String format(String text, String prefix) {
+        if (!text.contains(PREFIX_KEY)) return translate(text);
+        return format(text, prefix, new StringBuilder(text.length() + prefix.length() + 16)).toString();
+    }
+
+    /**
+     * Like {@link #translate(String)}, but keeps the result in a bounded cache, so a text that
+     * is translated again returns the same string.
+     *
+     * @param text The text to translate, e.g. a message of a language file
+     * @return The translated text
+     */
+    public static String translateCached(String text) {
+        if (text.indexOf(ALT_COLOR_CHAR) == -1) return text;
+        String result = translated.get(text);
+        if (result == null) {
+            result = translate(text);
+            translated.put(text, result);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #format(String, String)}, but keeps the result in a bounded cache.
+     *
+     * @param text   The text to format, e.g. a message of a language file
+     * @param prefix The prefix to insert
+     * @return The formatted text
+     */
+    public static String formatCached(String text, String prefix) {
+        if (!text.contains(PREFIX_KEY)) return translateCached(text);
+        String key = prefix + '\0' + text;
+        String result = formatted.get(key);
+        if (result == null) {
+            result = format(text, prefix);
+            formatted.put(key, result);
+        }
+        return result;
+    }
+
+    private static StringBuilder format(String text, String prefix, StringBuilder builder) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ALT_COLOR_CHAR && i + 1 < length) {
+                char code = text.charAt(i + 1);
+                if (code == '#' && isHexColor(text, i + 2)) {
+                    builder.append(COLOR_CHAR).append('x');
+                    for (int j = i + 2; j < i + 8; j++) {
+                        builder.append(COLOR_CHAR).append(Character.toLowerCase(text.charAt(j)));
+                    }
+                    i += 7;
+                    continue;
+                }
+                if (CODES.indexOf(code) != -1) {
+                    builder.append(COLOR_CHAR).append(Character.toLowerCase(code));
+                    i++;
+                    continue;
+                }
+            } else if (c == '%' && prefix != null && text.startsWith(PREFIX_KEY, i)) {
+                format(prefix, null, builder);
+                i += PREFIX_KEY.length() - 1;
+                continue;
+            }
+            builder.append(c);
+        }
+        return builder;
+    }
+
+    private static boolean isHexColor(String text, int start) {
+        if (start + 6 > text.length()) return false;
+        for (int i = start; i < start + 6; i++) {
+            if (Character.digit(text.charAt(i), 16) == -1) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the colour codes in effect at the end of a translated text, like Bukkit's
+     * {@code ChatColor.getLastColors}.
+     *
+     * @param text The translated text
+     * @return The last colour followed by the formats applied after it
+     */
+    public static String getLastColors(String text) {
+        return new LastColorTracker().append(text).getLastColors();
+    }
+
+    /**
+     * <p>Follows the colour codes of a translated text that is built piece by piece. Each
+     * appended character is looked at once, so asking for the current colours after every
+     * piece stays linear in the length of the text.</p>
+     *
+     * <p>A colour or reset code replaces the current colours, a format code (bold, italic, ...)
+     * is added to them, and a complete hex colour ({@code §x} followed by six digit codes)
+     * replaces them like a colour. Instances are not thread-safe.</p>
+     */
+    public static final class LastColorTracker {
+        private final StringBuilder colors = new StringBuilder();
+        private StringBuilder hex;
+        private boolean pendingColorChar;
+
+        /**
+         * Follows the colour codes of the given text.
+         *
+         * @param text The text that was appended to the tracked text
+         * @return This tracker
+         */
+        public LastColorTracker append(CharSequence text) {
+            return append(text, 0, text.length());
+        }
+
+        /**
+         * Follows the colour codes of a part of the given text.
+         *
+         * @param text  The text a part of was appended to the tracked text
+         * @param start The first index of the part
+         * @param end   The index after the last character of the part
+         * @return This tracker
+         */
+        public LastColorTracker append(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (pendingColorChar) {
+                    pendingColorChar = false;
+                    applyCode(Character.toLowerCase(c));
+                } else if (c == COLOR_CHAR) {
+                    pendingColorChar = true;
+                } else {
+                    hex = null;
+                }
+            }
+            return this;
+        }
+
+        private void applyCode(char code) {
+            if (hex != null) {
+                hex.append(COLOR_CHAR).append(code);
+                if (hex.length() == 14) {
+                    colors.setLength(0);
+                    colors.append(hex);
+                    hex = null;
+                    return;
+                }
+            }
+            if (code == 'x') {
+                hex = new StringBuilder(14).append(COLOR_CHAR).append('x');
+            } else if ((code >= '0' && code <= '9') || (code >= 'a' && code <= 'f') || code == 'r') {
+                colors.setLength(0);
+                colors.append(COLOR_CHAR).append(code);
+            } else if (code >= 'k' && code <= 'o') {
+                colors.append(COLOR_CHAR).append(code);
+            } else {
+                hex = null;
+            }
+        }
+
+        /**
+         * Returns the colour codes in effect at the end of the text appended so far.
+         *
+         * @return The last colour followed by the formats applied after it
+         */
+        public String getLastColors() {
+            return colors.toString();
+        }
+    }
+}
@@ -16,7 +16,6 @@ import de.happybavarian07.coolstufflib.menusystem.PlayerMenuUtility;
 import de.happybavarian07.coolstufflib.menusystem.misc.ConfirmationMenu;
 import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -42,16 +41,16 @@ import java.util.zip.ZipOutputStream;
 
 public class Utils {
     public static String chat(String s) {
-        return ChatColor.translateAlternateColorCodes('&', s);
+        return ColorFormatter.translateCached(s);
     }
 
     public static String format(Player player, String message, String prefix) {
+        String withColor = ColorFormatter.formatCached(message, prefix);
         try {
-            String withColor = ChatColor.translateAlternateColorCodes('&', message.replace("%prefix%", prefix));
             if (!CoolStuffLib.getLib().isPlaceholderAPIEnabled()) return withColor;
             return PlaceholderAPI.setPlaceholders(player, withColor);
         } catch (Exception e) {
-            return ChatColor.translateAlternateColorCodes('&', message.replace("%prefix%", prefix));
+            return withColor;
         }
     }
 
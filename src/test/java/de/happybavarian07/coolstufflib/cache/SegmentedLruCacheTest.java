@@ -0,0 +1,141 @@
+package de.happybavarian07.coolstufflib.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentedLruCacheTest {
+
+    private AtomicLong time;
+    private SegmentedLruCache<String, String> cache;
+
+    @BeforeEach
+    void setUp() {
+        time = new AtomicLong();
+        cache = new SegmentedLruCache<>(5, 1000, time::get);
+    }
+
+    @Test
+    void testPutAndGet() {
+        cache.put("key1", "value1");
+        assertEquals("value1", cache.get("key1"));
+        assertTrue(cache.containsKey("key1"));
+        assertNull(cache.get("missing"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(5, cache.size());
+        assertEquals(15, cache.getEvictionCount());
+        assertTrue(cache.containsKey("key19"));
+        assertFalse(cache.containsKey("key0"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        SegmentedLruCache<String, String> small = new SegmentedLruCache<>(3);
+        small.put("a", "1");
+        small.put("b", "2");
+        small.put("c", "3");
+        small.get("a");
+        small.put("d", "4");
+
+        assertEquals(3, small.size());
+        assertTrue(small.containsKey("a"));
+        assertFalse(small.containsKey("b"));
+        assertTrue(small.containsKey("c"));
+        assertTrue(small.containsKey("d"));
+    }
+
+    @Test
+    void testFrequentlyReadEntriesSurviveScans() {
+        cache.put("hot", "value");
+        cache.get("hot");
+        for (int i = 0; i < 50; i++) {
+            cache.put("scan" + i, "value" + i);
+        }
+        assertEquals("value", cache.get("hot"));
+    }
+
+    @Test
+    void testEntriesExpireAfterWrite() {
+        cache.put("key", "value");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("value", cache.get("key"));
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertNull(cache.get("key"));
+        assertFalse(cache.containsKey("key"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testCleanUpRemovesExpiredEntries() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.put("c", "3");
+        cache.cleanUp();
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    void testPutWithoutOverwrite() {
+        cache.put("key", "value1");
+        cache.put("key", "value2", false);
+        assertEquals("value1", cache.get("key"));
+        cache.put("key", "value2", true);
+        assertEquals("value2", cache.get("key"));
+    }
+
+    @Test
+    void testRemoveAndClear() {
+        cache.put("a", "1");
+        cache.get("a");
+        cache.put("b", "2");
+        cache.remove("a");
+        assertFalse(cache.containsKey("a"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testHitRateAndReset() {
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2.0 / 3.0, cache.getHitRate(), 0.0001);
+        cache.resetStats();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0.0, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    void testSnapshotDoesNotCountAsRead() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals(Map.of("a", "1", "b", "2"), cache.snapshot());
+        assertEquals(0, cache.getHitCount() + cache.getMissCount());
+        assertThrows(UnsupportedOperationException.class, () -> cache.snapshot().put("c", "3"));
+    }
+
+    @Test
+    void testNullArgumentsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> cache.get(null));
+        assertThrows(IllegalArgumentException.class, () -> cache.put(null, "value"));
+        assertThrows(IllegalArgumentException.class, () -> cache.put("key", null));
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedLruCache<>(0));
+    }
+}
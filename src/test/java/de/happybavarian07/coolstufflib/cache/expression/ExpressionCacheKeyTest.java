@@ -49,6 +49,20 @@ public class ExpressionCacheKeyTest {
         assertNotEquals(key1, key2);
     }
 
+    @Test
+    void testKeyInequalityCollidingValueHashes() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        ExpressionCacheKey key1 = new ExpressionCacheKey("name", Map.of("name", "Aa"));
+        ExpressionCacheKey key2 = new ExpressionCacheKey("name", Map.of("name", "BB"));
+        assertEquals(key1.hashCode(), key2.hashCode());
+        assertNotEquals(key1, key2);
+
+        ExpressionCacheKey intKey = new ExpressionCacheKey("x", new String[]{"x"}, new Object[]{1});
+        ExpressionCacheKey longKey = new ExpressionCacheKey("x", new String[]{"x"}, new Object[]{1L});
+        assertNotEquals(intKey, longKey);
+        assertEquals(intKey, new ExpressionCacheKey("x", new String[]{"x"}, new Object[]{1}));
+    }
+
     @Test
     void testVariableOrderIndependence() {
         Map<String, Object> vars1 = new HashMap<>();
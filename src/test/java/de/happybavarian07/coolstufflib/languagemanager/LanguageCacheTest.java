@@ -0,0 +1,94 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LanguageCacheTest {
+
+    @Test
+    void testPreloadCachesValuesOfSections() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("Messages.Player.Hello", "Hi %player%");
+        config.set("Items.Sword.material", "DIAMOND_SWORD");
+        config.set("Items.Sword.lore", List.of("Sharp"));
+        config.set("Other.Key", "not loaded");
+
+        LanguageCache cache = new LanguageCache("en", 16);
+        assertEquals(3, cache.preload(LanguageSnapshot.of(config), "Messages", "Items", "Missing"));
+        assertEquals("Hi %player%", cache.getData("Messages.Player.Hello"));
+        assertEquals(List.of("Sharp"), cache.getData("Items.Sword.lore"));
+        assertFalse(cache.containsKey("Items.Sword"));
+        assertFalse(cache.containsKey("Other.Key"));
+    }
+
+    @Test
+    void testEvictsSingleEntriesAtCapacity() {
+        LanguageCache cache = new LanguageCache("en", 4);
+        for (int i = 0; i < 6; i++) {
+            cache.addData("Messages.M" + i, "value" + i, true);
+        }
+        assertEquals(4, cache.size());
+        assertEquals(4, cache.getCapacity());
+        assertEquals(2, cache.getEvictionCount());
+        assertNull(cache.getData("Messages.M0"));
+        assertEquals("value5", cache.getData("Messages.M5"));
+    }
+
+    @Test
+    void testTracksHitsAndMisses() {
+        LanguageCache cache = new LanguageCache("en");
+        cache.addData("Messages.A", "a", true);
+        cache.addData("Messages.A", "ignored", false);
+        assertEquals("a", cache.getData("Messages.A"));
+        assertNull(cache.getData("Messages.B"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+
+        cache.resetStats();
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    void testClearCacheKeepsTemplates() {
+        LanguageCache cache = new LanguageCache("en");
+        cache.addData("Messages.A", "a", true);
+        cache.putTemplate("Messages.A", MessageTemplate.compile("a"));
+        cache.clearCache();
+        assertEquals(0, cache.size());
+        assertNotNull(cache.getTemplate("Messages.A"));
+        cache.clearTemplates();
+        assertNull(cache.getTemplate("Messages.A"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testDeprecatedLanguageCacheIsASnapshot() {
+        LanguageCache cache = new LanguageCache("en");
+        cache.setup();
+        cache.addData("Messages.A", "a", true);
+        Map<String, Object> values = cache.getLanguageCache();
+        cache.addData("Messages.B", "b", true);
+        assertEquals(Map.of("Messages.A", "a"), values);
+        assertThrows(UnsupportedOperationException.class, values::clear);
+    }
+
+    @Test
+    void testRemovesOnlyChangedItemTemplates() {
+        LanguageCache cache = new LanguageCache("en");
+        MessageTemplate name = MessageTemplate.compile("Name");
+        cache.putItemTemplate("Sword", new ItemTemplate("STONE", null, null, name, List.of(), false, false));
+        cache.putItemTemplate("SwordHolder", new ItemTemplate("STONE", null, null, name, List.of(), false, false));
+        cache.putItemTemplate("General.Close", new ItemTemplate("BARRIER", null, null, name, List.of(), false, false));
+
+        cache.removeItemTemplates(List.of("Items.Sword.lore", "Messages.Sword"));
+        assertNull(cache.getItemTemplate("Sword"));
+        assertNotNull(cache.getItemTemplate("SwordHolder"));
+        assertNotNull(cache.getItemTemplate("General.Close"));
+    }
+}
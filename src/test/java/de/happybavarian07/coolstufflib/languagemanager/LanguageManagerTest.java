@@ -1,17 +1,53 @@
 package de.happybavarian07.coolstufflib.languagemanager;
 
+import de.happybavarian07.coolstufflib.CoolStuffLib;
 import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionEngine;
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class LanguageManagerTest {
 
@@ -26,11 +62,56 @@ class LanguageManagerTest {
     private LanguageManager languageManager;
     private File langFolder;
 
+    /**
+     * The tasks handed to the scheduler of the test server, run by the test in place of the
+     * main thread.
+     */
+    private static final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+
+    /**
+     * Items and the main thread tasks of the async loads need a server. Its scheduler queues
+     * tasks in {@link #mainThreadTasks} and its item metas only store what is set on them.
+     */
+    @BeforeAll
+    static void setUpServer() {
+        if (Bukkit.getServer() != null) return;
+        Server server = mock(Server.class);
+        when(server.getLogger()).thenReturn(Logger.getLogger("LanguageManagerTest"));
+
+        BukkitScheduler scheduler = mock(BukkitScheduler.class);
+        when(scheduler.runTask(any(Plugin.class), any(Runnable.class))).thenAnswer(invocation -> {
+            Plugin plugin = invocation.getArgument(0);
+            if (!plugin.isEnabled()) throw new IllegalPluginAccessException("Plugin attempted to register task while disabled");
+            mainThreadTasks.add(invocation.getArgument(1));
+            return null;
+        });
+        BukkitTask task = mock(BukkitTask.class);
+        when(task.getTaskId()).thenReturn(1);
+        when(scheduler.runTaskTimer(any(Plugin.class), any(Runnable.class), anyLong(), anyLong())).thenReturn(task);
+        when(server.getScheduler()).thenReturn(scheduler);
+
+        ItemFactory itemFactory = mock(ItemFactory.class);
+        when(itemFactory.getItemMeta(any(Material.class))).thenAnswer(invocation -> newItemMeta(new HashMap<>()));
+        when(itemFactory.isApplicable(any(ItemMeta.class), any(Material.class))).thenReturn(true);
+        when(itemFactory.asMetaFor(any(ItemMeta.class), any(Material.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(server.getItemFactory()).thenReturn(itemFactory);
+
+        Bukkit.setServer(server);
+    }
+
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
+        when(mockPlugin.isEnabled()).thenReturn(true);
+        mainThreadTasks.clear();
         langFolder = tempDir.resolve("languages").toFile();
         langFolder.mkdirs();
+        File[] oldFiles = langFolder.listFiles();
+        if (oldFiles != null) {
+            for (File oldFile : oldFiles) {
+                Files.delete(oldFile.toPath());
+            }
+        }
 
         languageManager = new LanguageManager(mockPlugin, langFolder, "resources", "[TEST]");
     }
@@ -43,6 +124,20 @@ class LanguageManagerTest {
         assertTrue(languageManager.getRegisteredLanguages().isEmpty());
     }
 
+    @Test
+    void testMissingCurrentLanguageFallsBackToFirstRegistered() throws IOException {
+        languageManager.setLazyLoading(true);
+        LanguageFile first = registerLanguage("zz", "Messages: {}\n");
+        registerLanguage("aa", "Messages: {}\n");
+        languageManager.removeLang("zz");
+        LanguageFile second = registerLanguage("mm", "Messages: {}\n");
+
+        assertThrows(NullPointerException.class, () -> languageManager.setCurrentLang(null, false));
+        assertEquals("aa", languageManager.getCurrentLangName());
+        assertNotSame(first, languageManager.getCurrentLang());
+        assertNotSame(second, languageManager.getCurrentLang());
+    }
+
     @Test
     void testPlaceholderRegistration() {
         languageManager.addPlaceholder(PlaceholderType.MESSAGE, "%test%", "testValue", false);
@@ -89,4 +184,310 @@ class LanguageManagerTest {
         ExpressionEngine defaultEngine = languageManager.getExpressionEnginePool().getEngineForLanguage("default");
         assertNotNull(defaultEngine);
     }
+
+    @Test
+    void testStaticItemIsBuiltOnceAndReturnedAsClones() throws IOException {
+        registerLanguage("en", """
+                Items:
+                  Static:
+                    material: STONE
+                    displayName: '&aStone'
+                    lore:
+                      - '&7Just a stone'
+                """);
+
+        ItemStack first = languageManager.getItem("Static", null, "en", false);
+        ItemTemplate template = languageManager.getLanguageCache("en").getItemTemplate("Static");
+        assertNotNull(template);
+        assertNotNull(template.createFinished());
+
+        ItemMeta changedMeta = first.getItemMeta();
+        changedMeta.setDisplayName("changed");
+        first.setItemMeta(changedMeta);
+        ItemStack second = languageManager.getItem("Static", null, "en", false);
+
+        assertNotSame(first, second);
+        assertSame(template, languageManager.getLanguageCache("en").getItemTemplate("Static"));
+        assertEquals(Material.STONE, second.getType());
+        assertEquals("\u00a7aStone", second.getItemMeta().getDisplayName());
+        assertEquals(List.of("\u00a77Just a stone"), second.getItemMeta().getLore());
+    }
+
+    @Test
+    void testItemTemplateIsReplacedWhenItsPathChanges() throws Exception {
+        registerLanguage("en", """
+                Items:
+                  Static:
+                    material: STONE
+                    displayName: 'Old'
+                  Other:
+                    material: DIRT
+                    displayName: 'Other'
+                """);
+        languageManager.getItem("Static", null, "en", false);
+        languageManager.getItem("Other", null, "en", false);
+        ItemTemplate other = languageManager.getLanguageCache("en").getItemTemplate("Other");
+
+        writeLanguage("en", """
+                Items:
+                  Static:
+                    material: STONE
+                    displayName: 'New'
+                  Other:
+                    material: DIRT
+                    displayName: 'Other'
+                """);
+        awaitOnMainThread(languageManager.updateLanguageFromFile("en"));
+
+        assertNull(languageManager.getLanguageCache("en").getItemTemplate("Static"));
+        assertSame(other, languageManager.getLanguageCache("en").getItemTemplate("Other"));
+        assertEquals("New", languageManager.getItem("Static", null, "en", false).getItemMeta().getDisplayName());
+    }
+
+    @Test
+    void testUpdateFromInvalidFileKeepsTheLoadedLanguage() throws Exception {
+        registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+        writeLanguage("en", "Messages:\n  Greeting: 'Hello again\n");
+
+        assertTrue(awaitOnMainThread(languageManager.updateLanguageFromFile("en")).isEmpty());
+        assertEquals("Hello", languageManager.getMessage("Greeting", null, "en", (PlaceholderContext) null));
+        assertEquals("Hello", languageManager.getLang("en", true).getSnapshot().get("Messages.Greeting"));
+    }
+
+    @Test
+    void testPlayerDependentMaterialIsEvaluatedPerPlayer() throws IOException {
+        registerLanguage("en", """
+                Items:
+                  Rank:
+                    material: 'if level > 5: DIAMOND else: STONE'
+                    displayName: 'Rank'
+                """);
+        languageManager.setPLHandler(mock(PerPlayerLanguageHandler.class));
+        Player highLevel = mockPlayer(UUID.randomUUID());
+        Player lowLevel = mockPlayer(UUID.randomUUID());
+        languageManager.setPathExpressionVariable(highLevel.getUniqueId().toString(), "Rank", "level", 10.0, -1);
+        languageManager.setPathExpressionVariable(lowLevel.getUniqueId().toString(), "Rank", "level", 1.0, -1);
+
+        assertEquals(Material.DIAMOND, languageManager.getItem("Rank", highLevel, "en", false).getType());
+        assertEquals(Material.STONE, languageManager.getItem("Rank", lowLevel, "en", false).getType());
+        ItemTemplate template = languageManager.getLanguageCache("en").getItemTemplate("Rank");
+        assertNull(template.createBase());
+        assertNull(template.createFinished());
+    }
+
+    @Test
+    void testReloadLanguagesAsyncPublishesAllLanguagesTogether() throws Exception {
+        useLanguageInPluginConfig("en");
+        registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+        registerLanguage("de", "Messages:\n  Greeting: 'Hallo'\n");
+        writeLanguage("en", "Messages:\n  Greeting: 'Hello again'\n");
+        writeLanguage("de", "Messages:\n  Greeting: 'Hallo nochmal'\n");
+
+        CompletableFuture<Void> reload = languageManager.reloadLanguagesAsync(null, false);
+        Runnable publish = mainThreadTasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(publish);
+
+        assertFalse(reload.isDone());
+        assertEquals("Hello", languageManager.getMessage("Greeting", null, "en", (PlaceholderContext) null));
+        assertEquals("Hallo", languageManager.getMessage("Greeting", null, "de", (PlaceholderContext) null));
+
+        publish.run();
+
+        assertTrue(reload.isDone());
+        assertEquals("Hello again", languageManager.getMessage("Greeting", null, "en", (PlaceholderContext) null));
+        assertEquals("Hallo nochmal", languageManager.getMessage("Greeting", null, "de", (PlaceholderContext) null));
+    }
+
+    @Test
+    void testReloadLanguagesAsyncKeepsOldLanguagesWhenALoadFails() throws Exception {
+        useLanguageInPluginConfig("en");
+        registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+        registerLanguage("de", "Messages:\n  Greeting: 'Hallo'\n");
+        writeLanguage("en", "Messages:\n  Greeting: 'Hello again'\n");
+        writeLanguage("de", "Messages:\n  Greeting: 'Hallo\n");
+
+        CompletableFuture<Void> reload = languageManager.reloadLanguagesAsync(null, false);
+
+        assertThrows(ExecutionException.class, () -> awaitOnMainThread(reload));
+        assertEquals("Hello", languageManager.getMessage("Greeting", null, "en", (PlaceholderContext) null));
+        assertEquals("Hallo", languageManager.getMessage("Greeting", null, "de", (PlaceholderContext) null));
+    }
+
+    @Test
+    void testGetMessagesRendersOncePerLanguageAndForEachPlaceholderAPIRecipient() throws IOException {
+        registerLanguage("en", "Messages:\n  Welcome: 'Welcome #%visit%'\n");
+        registerLanguage("de", "Messages:\n  Welcome: 'Willkommen %player_name% #%visit%'\n");
+        Player alex = mockPlayer(UUID.randomUUID());
+        Player kim = mockPlayer(UUID.randomUUID());
+        Player sam = mockPlayer(UUID.randomUUID());
+        Player lou = mockPlayer(UUID.randomUUID());
+        PerPlayerLanguageHandler handler = mock(PerPlayerLanguageHandler.class);
+        when(handler.getPlayerLanguageName(alex.getUniqueId())).thenReturn("en");
+        when(handler.getPlayerLanguageName(kim.getUniqueId())).thenReturn("de");
+        when(handler.getPlayerLanguageName(sam.getUniqueId())).thenReturn("en");
+        when(handler.getPlayerLanguageName(lou.getUniqueId())).thenReturn("de");
+        languageManager.setPLHandler(handler);
+        Object renderCounter = new Object() {
+            private int renders = 0;
+
+            @Override
+            public String toString() {
+                return String.valueOf(++renders);
+            }
+        };
+        CoolStuffLib lib = mock(CoolStuffLib.class);
+        when(lib.isPlaceholderAPIEnabled()).thenReturn(true);
+
+        try (MockedStatic<CoolStuffLib> mockedLib = mockStatic(CoolStuffLib.class);
+             MockedStatic<PlaceholderAPI> placeholderAPI = mockStatic(PlaceholderAPI.class)) {
+            mockedLib.when(CoolStuffLib::getLib).thenReturn(lib);
+            placeholderAPI.when(() -> PlaceholderAPI.isRegistered("player")).thenReturn(true);
+            placeholderAPI.when(() -> PlaceholderAPI.setPlaceholders(kim, "%player_name%")).thenReturn("Kim");
+            placeholderAPI.when(() -> PlaceholderAPI.setPlaceholders(lou, "%player_name%")).thenReturn("Lou");
+
+            Map<Player, String> messages = languageManager.getMessages("Welcome", List.of(alex, kim, sam, lou),
+                    PlaceholderContext.of("%visit%", renderCounter));
+
+            assertEquals(List.of(alex, kim, sam, lou), new ArrayList<>(messages.keySet()));
+            assertEquals("Welcome #1", messages.get(alex));
+            assertEquals("Willkommen Kim #2", messages.get(kim));
+            assertEquals("Welcome #1", messages.get(sam));
+            assertEquals("Willkommen Lou #3", messages.get(lou));
+            placeholderAPI.verify(() -> PlaceholderAPI.setPlaceholders(kim, "%player_name%"), times(1));
+            placeholderAPI.verify(() -> PlaceholderAPI.setPlaceholders(lou, "%player_name%"), times(1));
+
+            languageManager.broadcastMessage("Welcome", List.of(alex, kim, sam), PlaceholderContext.of("%visit%", "last"));
+            verify(alex).sendMessage("Welcome #last");
+            verify(kim).sendMessage("Willkommen Kim #last");
+            verify(sam).sendMessage("Welcome #last");
+        }
+    }
+
+    @Test
+    void testLazyLanguageIsLoadedOnFirstUse() throws IOException {
+        languageManager.setLazyLoading(true);
+        LanguageFile langFile = registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+
+        assertFalse(languageManager.isLanguageActive("en"));
+        assertFalse(langFile.isLoaded());
+
+        assertEquals("Hello", languageManager.getMessage("Greeting", null, "en", (PlaceholderContext) null));
+        assertTrue(languageManager.isLanguageActive("en"));
+        assertTrue(langFile.isLoaded());
+    }
+
+    @Test
+    void testActivateLanguageLoadsInTheBackground() throws Exception {
+        languageManager.setLazyLoading(true);
+        LanguageFile langFile = registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+
+        CompletableFuture<Void> activation = languageManager.activateLanguage("en");
+        Runnable publish = mainThreadTasks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(publish);
+        assertFalse(languageManager.isLanguageActive("en"));
+
+        publish.run();
+        assertTrue(activation.isDone());
+        assertTrue(languageManager.isLanguageActive("en"));
+        assertTrue(langFile.isLoaded());
+        assertTrue(languageManager.activateLanguage("en").isDone());
+    }
+
+    @Test
+    void testActivationFailsWhenThePluginIsDisabled() throws IOException {
+        languageManager.setLazyLoading(true);
+        registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+        when(mockPlugin.isEnabled()).thenReturn(false);
+
+        CompletableFuture<Void> activation = languageManager.activateLanguage("en");
+        ExecutionException error = assertThrows(ExecutionException.class, () -> activation.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalPluginAccessException.class, error.getCause());
+        assertFalse(languageManager.isLanguageActive("en"));
+        assertTrue(mainThreadTasks.isEmpty());
+    }
+
+    @Test
+    void testIdleLanguagesAreUnloadedExceptTheCurrentOne() throws Exception {
+        LanguageFile english = registerLanguage("en", "Messages:\n  Greeting: 'Hello'\n");
+        LanguageFile german = registerLanguage("de", "Messages:\n  Greeting: 'Hallo'\n");
+        languageManager.setCurrentLang(english, false);
+        assertTrue(languageManager.isLanguageActive("de"));
+
+        assertEquals(0, languageManager.unloadIdleLanguages());
+        languageManager.setLanguageIdleTimeout(1);
+        Thread.sleep(20);
+
+        assertEquals(1, languageManager.unloadIdleLanguages());
+        assertTrue(languageManager.isLanguageActive("en"));
+        assertTrue(english.isLoaded());
+        assertFalse(languageManager.isLanguageActive("de"));
+        assertFalse(german.isLoaded());
+
+        assertEquals("Hallo", languageManager.getMessage("Greeting", null, "de", (PlaceholderContext) null));
+        assertTrue(languageManager.isLanguageActive("de"));
+        languageManager.setLanguageIdleTimeout(0);
+    }
+
+    private void useLanguageInPluginConfig(String langName) {
+        YamlConfiguration pluginConfig = new YamlConfiguration();
+        pluginConfig.set("Plugin.language", langName);
+        when(mockPlugin.getConfig()).thenReturn(pluginConfig);
+    }
+
+    /**
+     * Runs the queued main thread tasks until the future is completed.
+     */
+    private static <T> T awaitOnMainThread(CompletableFuture<T> future) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!future.isDone()) {
+            if (System.nanoTime() > deadline) fail("The future was not completed on the main thread");
+            Runnable task = mainThreadTasks.poll(10, TimeUnit.MILLISECONDS);
+            if (task != null) task.run();
+        }
+        return future.get();
+    }
+
+    private LanguageFile registerLanguage(String langName, String yaml) throws IOException {
+        writeLanguage(langName, yaml);
+        LanguageFile langFile = new LanguageFile(langFolder, "resources", langName);
+        languageManager.addLang(langFile, langName);
+        return langFile;
+    }
+
+    private void writeLanguage(String langName, String yaml) throws IOException {
+        Files.writeString(new File(langFolder, langName + ".yml").toPath(), yaml);
+    }
+
+    private static Player mockPlayer(UUID uuid) {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(uuid);
+        return player;
+    }
+
+    /**
+     * Creates an item meta that stores the values of its setters for the matching getters,
+     * like the server's item metas do.
+     */
+    private static ItemMeta newItemMeta(Map<String, Object> values) {
+        Map<String, Object> state = new HashMap<>(values);
+        return (ItemMeta) Proxy.newProxyInstance(ItemMeta.class.getClassLoader(), new Class<?>[]{ItemMeta.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("clone")) return newItemMeta(state);
+                    if (name.equals("equals")) return proxy == args[0];
+                    if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                    if (name.startsWith("set") && args != null && args.length == 1) {
+                        state.put(name.substring(3), args[0] instanceof List<?> list ? new ArrayList<>(list) : args[0]);
+                        return null;
+                    }
+                    Object value = name.startsWith("get") ? state.get(name.substring(3)) : null;
+                    if (name.startsWith("has") && method.getReturnType() == boolean.class) {
+                        return state.get(name.substring(3)) != null;
+                    }
+                    if (value instanceof List<?> list) return new ArrayList<>(list);
+                    if (value != null) return value;
+                    return method.getReturnType() == boolean.class ? false
+                            : method.getReturnType() == int.class ? 0 : null;
+                });
+    }
 }
@@ -0,0 +1,66 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LanguageSnapshotTest {
+
+    @Test
+    void testFlattensValuesByFullPath() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("Messages.Player.Hello", "Hi %player%");
+        config.set("Items.Sword.lore", List.of("Sharp"));
+
+        LanguageSnapshot snapshot = LanguageSnapshot.of(config);
+        assertEquals("Hi %player%", snapshot.get("Messages.Player.Hello"));
+        assertEquals("Hi %player%", snapshot.get("Messages.Player.Hello", String.class));
+        assertNull(snapshot.get("Items.Sword.lore", String.class));
+        assertEquals(Map.of("Messages.Player.Hello", "Hi %player%", "Items.Sword.lore", List.of("Sharp")), snapshot.getValues());
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    void testSectionsAreContainedButHaveNoValue() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("Items.Sword.material", "DIAMOND_SWORD");
+
+        LanguageSnapshot snapshot = LanguageSnapshot.of(config);
+        assertTrue(snapshot.contains("Items.Sword"));
+        assertTrue(snapshot.isSection("Items.Sword"));
+        assertNull(snapshot.get("Items.Sword"));
+        assertTrue(snapshot.contains("Items.Sword.material"));
+        assertFalse(snapshot.isSection("Items.Sword.material"));
+        assertFalse(snapshot.contains("Items.Shield"));
+    }
+
+    @Test
+    void testGetChangedPaths() {
+        YamlConfiguration oldConfig = new YamlConfiguration();
+        oldConfig.set("Messages.Same", "a");
+        oldConfig.set("Messages.Changed", "b");
+        oldConfig.set("Messages.Removed", "c");
+        YamlConfiguration newConfig = new YamlConfiguration();
+        newConfig.set("Messages.Same", "a");
+        newConfig.set("Messages.Changed", "B");
+        newConfig.set("Items.Added.material", "STONE");
+
+        assertEquals(Set.of("Messages.Changed", "Messages.Removed", "Items.Added.material"),
+                LanguageSnapshot.of(oldConfig).getChangedPaths(LanguageSnapshot.of(newConfig)));
+        assertTrue(LanguageSnapshot.of(oldConfig).getChangedPaths(LanguageSnapshot.of(oldConfig)).isEmpty());
+    }
+
+    @Test
+    void testIsFromComparesConfigurationInstance() {
+        YamlConfiguration config = new YamlConfiguration();
+        LanguageSnapshot snapshot = LanguageSnapshot.of(config);
+        assertTrue(snapshot.isFrom(config));
+        assertFalse(snapshot.isFrom(new YamlConfiguration()));
+        assertFalse(LanguageSnapshot.empty().contains("Messages"));
+    }
+}
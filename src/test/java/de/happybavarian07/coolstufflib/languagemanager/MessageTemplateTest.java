@@ -0,0 +1,88 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.ExpressionEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTemplateTest {
+
+    private ExpressionEngine engine;
+    private Map<String, String> values;
+    private MessageTemplate.PlaceholderResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+        engine.setVariable("xp", 40);
+        values = Map.of("%player%", "Steve", "%amount%", "5");
+        resolver = (key, lastColors) -> values.containsKey(key) ? values.get(key) + lastColors : null;
+    }
+
+    @Test
+    void testStaticTextIsNotDynamic() {
+        MessageTemplate template = MessageTemplate.compile("§aSave 50% now, 20% later");
+        assertFalse(template.isDynamic());
+        assertTrue(template.getPlaceholderKeys().isEmpty());
+        assertEquals("§aSave 50% now, 20% later", template.render(resolver, engine, null));
+    }
+
+    @Test
+    void testResolvesSlotsAndKeepsUnknownKeys() {
+        MessageTemplate template = MessageTemplate.compile("Hi %player%, 50% off %item% for %player%");
+        assertEquals(List.of("%player%", "%item%"), template.getPlaceholderKeys());
+        assertEquals("Hi Steve, 50% off %item% for Steve", template.render(resolver, engine, null));
+    }
+
+    @Test
+    void testPassesColorsBeforeSlot() {
+        MessageTemplate template = MessageTemplate.compile("§cHello §l%player%!");
+        assertEquals("§cHello §lSteve§c§l!", template.render(resolver, engine, null));
+    }
+
+    @Test
+    void testResolvesPlaceholdersInsideExpressions() {
+        MessageTemplate template = MessageTemplate.compile("Need EXPR(%amount% * 2 + xp) xp");
+        assertEquals(List.of("%amount%"), template.getPlaceholderKeys());
+        assertTrue(template.hasExpressions());
+        assertFalse(MessageTemplate.compile("Hi %player%").hasExpressions());
+        assertEquals("Need 50.0 xp", template.render(resolver, engine, null));
+    }
+
+    @Test
+    void testFailedExpressionKeepsRemainingText() {
+        MessageTemplate template = MessageTemplate.compile("EXPR(xp) EXPR(1 / 0) %player% expr(%amount%)");
+        assertEquals("40 EXPR(1 / 0) Steve expr(5)", template.render(resolver, engine, null));
+        assertEquals("EXPR(xp) EXPR(1 / 0) Steve expr(5)", template.render(resolver, null, null));
+    }
+
+    @Test
+    void testFilteredKeysAreCachedPerVersion() {
+        MessageTemplate template = MessageTemplate.compile("%player_name% has %amount% %vault_eco%");
+        AtomicInteger calls = new AtomicInteger();
+        Predicate<String> filter = key -> {
+            calls.incrementAndGet();
+            return key.contains("_");
+        };
+        assertEquals(Set.of("%player_name%", "%vault_eco%"), template.getPlaceholderKeys(filter, 0));
+        template.getPlaceholderKeys(filter, 0);
+        assertEquals(3, calls.get());
+        template.getPlaceholderKeys(filter, 1);
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    void testSlotKeys() {
+        assertTrue(MessageTemplate.isSlotKey("%player%"));
+        assertFalse(MessageTemplate.isSlotKey("%%"));
+        assertFalse(MessageTemplate.isSlotKey("{player}"));
+        assertFalse(MessageTemplate.isSlotKey("%two words%"));
+    }
+}
@@ -0,0 +1,116 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PerPlayerLanguageHandlerTest {
+
+    static final Path tempDir = Path.of("TestOutputs/PerPlayerLanguageHandlerTest");
+
+    private LanguageManager languageManager;
+    private File dataFile;
+    private YamlConfiguration dataConfig;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(tempDir);
+        dataFile = tempDir.resolve("playerdata.yml").toFile();
+        Files.deleteIfExists(dataFile.toPath());
+
+        languageManager = mock(LanguageManager.class);
+        when(languageManager.getCurrentLangName()).thenReturn("en");
+        when(languageManager.getLang(anyString(), eq(false))).thenReturn(mock(LanguageFile.class));
+        dataConfig = spy(new YamlConfiguration());
+    }
+
+    @Test
+    void testChangesOfOnePlayerAreCoalesced() throws IOException {
+        PerPlayerLanguageHandler handler = new PerPlayerLanguageHandler(languageManager, dataFile, dataConfig, 60_000);
+        UUID player = UUID.randomUUID();
+
+        handler.setPlayerLanguage(player, "de");
+        handler.setPlayerLanguage(player, "fr");
+        handler.setPlayerLanguage(player, "en");
+        assertEquals(1, handler.getPendingChangeCount());
+        assertEquals("en", handler.getPlayerLanguageName(player));
+
+        handler.saveConfig();
+        assertEquals(0, handler.getPendingChangeCount());
+        assertEquals("en", YamlConfiguration.loadConfiguration(dataFile).getString("playerdata." + player + ".language"));
+        verify(dataConfig, times(1)).save(dataFile);
+        handler.close();
+    }
+
+    @Test
+    void testChangesAreWrittenInOneBatch() throws IOException {
+        PerPlayerLanguageHandler handler = new PerPlayerLanguageHandler(languageManager, dataFile, dataConfig, 100);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        handler.setPlayerLanguage(first, "de");
+        handler.setPlayerLanguage(second, "fr");
+        handler.setPlayerLanguage(third, "en");
+        handler.removePlayerLanguage(third);
+        verify(dataConfig, never()).save(dataFile);
+
+        verify(dataConfig, timeout(2000)).save(dataFile);
+        verify(dataConfig, after(300).times(1)).save(dataFile);
+        assertEquals(0, handler.getPendingChangeCount());
+        YamlConfiguration written = YamlConfiguration.loadConfiguration(dataFile);
+        assertEquals("de", written.getString("playerdata." + first + ".language"));
+        assertEquals("fr", written.getString("playerdata." + second + ".language"));
+        assertFalse(written.contains("playerdata." + third));
+        handler.close();
+    }
+
+    @Test
+    void testActivatesStoredLanguageOfPlayerWhenLoadingLazily() {
+        UUID player = UUID.randomUUID();
+        dataConfig.set("playerdata." + player + ".language", "de");
+        when(languageManager.isLazyLoading()).thenReturn(true);
+        PerPlayerLanguageHandler handler = new PerPlayerLanguageHandler(languageManager, dataFile, dataConfig, 60_000);
+
+        handler.activatePlayerLanguage(UUID.randomUUID());
+        verify(languageManager, never()).activateLanguage(anyString());
+
+        handler.activatePlayerLanguage(player);
+        verify(languageManager).activateLanguage("de");
+
+        when(languageManager.isLanguageActive("de")).thenReturn(true);
+        handler.activatePlayerLanguage(player);
+        verify(languageManager, times(1)).activateLanguage("de");
+        handler.close();
+    }
+
+    @Test
+    void testCloseWritesPendingChangesAndLaterChangesDirectly() throws IOException {
+        PerPlayerLanguageHandler handler = new PerPlayerLanguageHandler(languageManager, dataFile, dataConfig, 60_000);
+        UUID player = UUID.randomUUID();
+
+        handler.setPlayerLanguage(player, "de");
+        handler.close();
+        assertEquals(0, handler.getPendingChangeCount());
+        assertEquals("de", YamlConfiguration.loadConfiguration(dataFile).getString("playerdata." + player + ".language"));
+
+        handler.setPlayerLanguage(player, "fr");
+        assertEquals(0, handler.getPendingChangeCount());
+        assertEquals("fr", YamlConfiguration.loadConfiguration(dataFile).getString("playerdata." + player + ".language"));
+        verify(dataConfig, times(2)).save(dataFile);
+
+        handler.close();
+        verify(dataConfig, times(2)).save(dataFile);
+    }
+}
@@ -0,0 +1,46 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderContextTest {
+
+    @Test
+    void testWithReturnsNewContext() {
+        PlaceholderContext base = PlaceholderContext.of("%page%", 2);
+        PlaceholderContext extended = base.with("%max_page%", 5);
+
+        assertEquals(Set.of("%page%"), base.getKeys());
+        assertEquals(Set.of("%page%", "%max_page%"), extended.getKeys());
+        assertEquals(5, extended.get("%max_page%").value());
+        assertEquals(PlaceholderType.ALL, extended.get("%page%").type());
+        assertNull(base.get("%max_page%"));
+    }
+
+    @Test
+    void testWithAllReplacesExistingValues() {
+        PlaceholderContext context = PlaceholderContext.of("%error%", "old")
+                .withAll(Map.of("%error%", "new", "%stacktrace%", "[]"));
+        assertEquals("new", context.get("%error%").value());
+        assertEquals("[]", context.get("%stacktrace%").value());
+        assertSame(context, context.withAll(Map.of()));
+    }
+
+    @Test
+    void testEmptyContext() {
+        assertTrue(PlaceholderContext.empty().isEmpty());
+        assertFalse(PlaceholderContext.empty().with("%a%", "b").isEmpty());
+        assertTrue(PlaceholderContext.empty().isEmpty());
+    }
+
+    @Test
+    void testRejectsMissingKeysAndValues() {
+        assertThrows(IllegalArgumentException.class, () -> PlaceholderContext.of(null, "value"));
+        assertThrows(IllegalArgumentException.class, () -> PlaceholderContext.of("", "value"));
+        assertThrows(IllegalArgumentException.class, () -> PlaceholderContext.of("%a%", null));
+    }
+}
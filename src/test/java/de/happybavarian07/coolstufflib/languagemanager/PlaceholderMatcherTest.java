@@ -0,0 +1,79 @@
+package de.happybavarian07.coolstufflib.languagemanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaceholderMatcherTest {
+
+    private static PlaceholderMap placeholders(Placeholder... placeholders) {
+        PlaceholderMap map = new PlaceholderMap();
+        for (Placeholder placeholder : placeholders) {
+            map.put(placeholder.key(), placeholder);
+        }
+        return map;
+    }
+
+    @Test
+    void testReplacesAllKeysInOneScan() {
+        PlaceholderMap map = placeholders(
+                new Placeholder("%player%", "Steve", PlaceholderType.MESSAGE),
+                new Placeholder("%amount%", 5, PlaceholderType.ALL),
+                new Placeholder("{world}", "nether", PlaceholderType.MESSAGE));
+        String text = "%player% got %amount% in {world}, %player%!";
+        assertEquals("Steve got 5 in nether, Steve!", map.matcher().replace(text, map::get));
+        assertSame("nothing here", map.matcher().replace("nothing here", map::get));
+    }
+
+    @Test
+    void testReplacedValuesAreNotScannedAgain() {
+        PlaceholderMap map = placeholders(
+                new Placeholder("%a%", "%b%", PlaceholderType.ALL),
+                new Placeholder("%b%", "x", PlaceholderType.ALL));
+        assertEquals("%b% x", map.matcher().replace("%a% %b%", map::get));
+    }
+
+    @Test
+    void testOverlappingKeysPreferLongestEndingFirst() {
+        PlaceholderMap map = placeholders(
+                new Placeholder("he", "1", PlaceholderType.ALL),
+                new Placeholder("she", "2", PlaceholderType.ALL),
+                new Placeholder("hers", "3", PlaceholderType.ALL));
+        assertEquals("u2rs", map.matcher().replace("ushers", map::get));
+        assertEquals(List.of("she", "he", "hers"), map.matcher().findKeys("ushers", key -> true));
+    }
+
+    @Test
+    void testSkipsKeysTheLookupRejects() {
+        PlaceholderMap map = placeholders(
+                new Placeholder("%item%", "Sword", PlaceholderType.ITEM),
+                new Placeholder("%player%", "Steve", PlaceholderType.MESSAGE));
+        String replaced = map.matcher().replace("%player% holds %item%",
+                key -> map.get(key).type() == PlaceholderType.MESSAGE ? map.get(key) : null);
+        assertEquals("Steve holds %item%", replaced);
+    }
+
+    @Test
+    void testContinuesColorsAfterStringValues() {
+        PlaceholderMap map = placeholders(new Placeholder("%player%", "&eSteve", PlaceholderType.ALL));
+        assertEquals("§aHi §eSteve§a!", map.matcher().replace("§aHi %player%!", map::get));
+    }
+
+    @Test
+    void testMatcherIsRebuiltOnlyForNewKeys() {
+        PlaceholderMap map = placeholders(new Placeholder("%a%", "1", PlaceholderType.ALL));
+        PlaceholderMatcher matcher = map.matcher();
+        map.remove("%a%");
+        map.put("%a%", new Placeholder("%a%", "2", PlaceholderType.ALL));
+        assertSame(matcher, map.matcher());
+        assertEquals("2", map.matcher().replace("%a%", map::get));
+
+        map.put("%b%", new Placeholder("%b%", "3", PlaceholderType.ALL));
+        assertNotSame(matcher, map.matcher());
+        assertTrue(map.matcher().contains("%b%"));
+        assertFalse(map.matcher().contains("%c%"));
+        assertEquals("2 3", map.matcher().replace("%a% %b%", map::get));
+    }
+}
@@ -0,0 +1,60 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionBatchTest {
+
+    private ExpressionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+    }
+
+    @Test
+    void testEvaluateAllReturnsResultsInOrder() {
+        List<Object> results = engine.evaluateAll(
+                List.of("level * 2", "rank == 'admin'", "'Hello ' + name", "2 + 3"),
+                Map.of("level", 10, "rank", "admin", "name", "Steve"));
+        assertEquals(List.of(20.0, true, "Hello Steve", 5.0), results);
+    }
+
+    @Test
+    void testPreparedBatchReusedWithDifferentVariables() {
+        ExpressionBatch batch = engine.prepareBatch(List.of("x + 1", "x * x"));
+        assertEquals(2, batch.size());
+        assertEquals(List.of(3.0, 4.0), batch.evaluate(Map.of("x", 2)));
+        assertEquals(List.of(6.0, 25.0), batch.evaluate(Map.of("x", 5)));
+    }
+
+    @Test
+    void testParallelBatchMatchesSequential() {
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expressions.add("x * " + i + " + y");
+        }
+        ExpressionBatch batch = engine.prepareBatch(expressions);
+        Map<String, Object> variables = Map.of("x", 3, "y", 1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(batch.evaluate(variables), batch.evaluate(variables, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchErrorsAreReported() {
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluateAll(List.of("1 + 1", "missing_function(1)"), Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> engine.prepareBatch(List.of("1", " ")));
+    }
+}
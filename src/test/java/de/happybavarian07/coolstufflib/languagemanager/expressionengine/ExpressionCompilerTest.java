@@ -0,0 +1,72 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCompilerTest {
+
+    private ExpressionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+    }
+
+    @Test
+    void testCompiledMatchesInterpreted() {
+        Map<String, Object> variables = Map.of("x", 10, "y", 4, "name", "Steve", "flag", true);
+        List<String> corpus = List.of(
+                "x + y * 2",
+                "(x + y) * 2",
+                "x / y - x % y",
+                "x ^ 2",
+                "-x + 3",
+                "x > y && flag",
+                "x < y || 'fallback'",
+                "!flag",
+                "name + ' has ' + x",
+                "x == 10 ? 'ten' : 'other'",
+                "x != 10",
+                "if x > 20: 'high' elif x > 5: 'mid' else: 'low'",
+                "add(x, y)",
+                "Out<int>(x)"
+        );
+        for (String expression : corpus) {
+            engine.setCompilationEnabled(false);
+            Object interpreted = engine.evaluate(expression, variables);
+            engine.setCompilationEnabled(true);
+            Object compiled = engine.evaluate(expression + " ", variables);
+            assertEquals(interpreted, compiled, expression);
+        }
+    }
+
+    @Test
+    void testCompiledExpressionReusedWithDifferentVariables() {
+        CompiledExpression compiled = engine.compile("level * 2 + bonus");
+        assertEquals(25.0, engine.evaluateCompiled(compiled, Map.of("level", 10, "bonus", 5)));
+        assertEquals(45.0, engine.evaluateCompiled(compiled, Map.of("level", 20, "bonus", 5)));
+    }
+
+    @Test
+    void testCompiledExpressionRelinksAfterFunctionChange() {
+        CompiledExpression compiled = engine.compile("late(1)");
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluateCompiled(compiled, Map.of()));
+
+        engine.registerFunction("late", (interpreter, args, type) -> "linked");
+        assertFalse(compiled.isLinkedTo(engine.getInterpreter()));
+        assertEquals("linked", engine.evaluateCompiled(compiled, Map.of()));
+    }
+
+    @Test
+    void testUndefinedFunctionInUntakenBranchDoesNotFail() {
+        CompiledExpression compiled = engine.compile("if x > 0: 'ok' else: missing(x)");
+        assertEquals("ok", engine.evaluateCompiled(compiled, Map.of("x", 1)));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluateCompiled(compiled, Map.of("x", -1)));
+    }
+}
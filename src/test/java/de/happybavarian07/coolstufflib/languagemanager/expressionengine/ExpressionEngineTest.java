@@ -0,0 +1,250 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionTimeoutException;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionEngineTest {
+
+    private ExpressionEngine engine;
+    private AtomicInteger parseMisses;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+        parseMisses = new AtomicInteger();
+        engine.setLogger((message, args) -> {
+            if (message.startsWith("Cache miss for parse")) {
+                parseMisses.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    void testResultCacheSeparatesValuesWithCollidingHashes() {
+        ExpressionEngine engine = new ExpressionEngine();
+        assertEquals("Aa", engine.evaluate("name", Map.of("name", "Aa")));
+        assertEquals("BB", engine.evaluate("name", Map.of("name", "BB")));
+    }
+
+    @Test
+    void testParseCacheIndependentOfVariables() {
+        assertEquals(6.0, engine.evaluate("x + 1", Map.of("x", 5)));
+        assertEquals(11.0, engine.evaluate("x + 1", Map.of("x", 10)));
+        assertEquals(21.0, engine.evaluate("x  +   1", Map.of("x", 20)));
+        assertEquals(1, parseMisses.get());
+    }
+
+    @Test
+    void testMaterialExpressionIsParsedOnceAndEvaluatedPerScope() {
+        String expression = "if level > 5: DIAMOND else: STONE";
+        VariableScope high = VariableScope.empty().with("level", 10.0, -1);
+        VariableScope low = VariableScope.empty().with("level", 1.0, -1);
+
+        assertEquals(Material.DIAMOND, engine.parse(expression, Material.BARRIER, high).getMaterial());
+        assertEquals(Material.STONE, engine.parse(expression, Material.BARRIER, low).getMaterial());
+        assertEquals(Material.DIAMOND, engine.parse("if  level > 5: DIAMOND else: STONE", Material.BARRIER, high).getMaterial());
+        assertEquals(1, parseMisses.get());
+        assertNull(engine.peekVariable("level"));
+    }
+
+    @Test
+    void testNormalizeExpressionKeepsStringLiterals() {
+        assertEquals("a + b", ExpressionEngine.normalizeExpression("a  +\tb"));
+        assertEquals("'a  b' + c", ExpressionEngine.normalizeExpression("'a  b'  + c"));
+        String unchanged = "x + 1";
+        assertSame(unchanged, ExpressionEngine.normalizeExpression(unchanged));
+    }
+
+    @Test
+    void testParseCacheIsBounded() {
+        ExpressionEngine small = new ExpressionEngine(2);
+        small.setLogger((message, args) -> {
+            if (message.startsWith("Cache miss for parse")) {
+                parseMisses.incrementAndGet();
+            }
+        });
+        small.evaluate("1 + 1", Map.of());
+        small.evaluate("2 + 2", Map.of());
+        small.evaluate("3 + 3", Map.of());
+        small.evaluate("1 + 1", Map.of());
+        assertEquals(4, parseMisses.get());
+    }
+
+    @Test
+    void testParseUsesCurrentEngineVariablesForResultCache() {
+        engine.setVariable("x", 1);
+        assertEquals(2.0, engine.parse("x + 1", Object.class));
+        engine.setVariable("x", 5);
+        assertEquals(6.0, engine.parse("x + 1", Object.class));
+        assertEquals(1, parseMisses.get());
+    }
+
+    @Test
+    void testFrameSharesFunctionsButNotVariables() {
+        Interpreter root = engine.getInterpreter();
+        root.setVariable("x", 1);
+        Interpreter frame = root.newFrame();
+        frame.setVariable("x", 2);
+        engine.registerFunction("double", (interpreter, args, type) -> ((Number) args.get(0)).doubleValue() * 2);
+
+        assertEquals(1, root.peekVariable("x"));
+        assertEquals(2, frame.peekVariable("x"));
+        assertNotNull(frame.lookupFunction("double"));
+    }
+
+    @Test
+    void testConcurrentModeEvaluatesInParallel() throws Exception {
+        engine.setConcurrentMode(true);
+        engine.registerFunction("square", (interpreter, args, type) -> {
+            double value = ((Number) args.get(0)).doubleValue();
+            return value * value;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t * 1000;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < offset + 200; i++) {
+                        Object result = engine.evaluate("square(x) + y", Map.of("x", i, "y", 1));
+                        if (!Double.valueOf((double) i * i + 1).equals(result)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertFalse(engine.getInterpreter().hasVariable("x"));
+    }
+
+    @Test
+    void testNumericExpressionsUsePrimitivePath() {
+        Parser.Expression expression = new Parser(new Lexer("(x + 2) * y - -z / 4").scanTokens()).parse();
+        assertTrue(expression.isNumeric());
+        assertFalse(new Parser(new Lexer("x + y").scanTokens()).parse().isNumeric());
+
+        Map<String, Object> variables = Map.of("x", 3, "y", 2.5, "z", 8L);
+        assertEquals(14.5, engine.evaluate("(x + 2) * y - -z / 4", variables));
+        assertEquals(true, engine.evaluate("x * 2 >= y + 3", variables));
+        assertEquals("ab3", engine.evaluate("'a' + 'b' + x", variables));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluate("name * 2", Map.of("name", "Steve")));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluate("x / (y - 2.5)", variables));
+    }
+
+    @Test
+    void testImpureFunctionResultsAreNotCached() {
+        AtomicInteger impureCalls = new AtomicInteger();
+        AtomicInteger pureCalls = new AtomicInteger();
+        engine.registerFunction("roll", (interpreter, args, type) -> (double) impureCalls.incrementAndGet());
+        engine.registerFunction("half", (interpreter, args, type) -> {
+            pureCalls.incrementAndGet();
+            return ((Number) args.get(0)).doubleValue() / 2;
+        }, null, null, null, true);
+
+        assertEquals(1.0, engine.evaluate("roll() + x", Map.of("x", 0)));
+        assertEquals(2.0, engine.evaluate("roll() + x", Map.of("x", 0)));
+        engine.evaluate("half(x)", Map.of("x", 4));
+        engine.evaluate("half(x)", Map.of("x", 4));
+        assertEquals(1, pureCalls.get());
+
+        engine.setCacheImpureResults(true);
+        assertEquals(4.0, engine.evaluate("roll() + x", Map.of("x", 1)));
+        assertEquals(4.0, engine.evaluate("roll() + x", Map.of("x", 1)));
+        assertEquals(3, impureCalls.get());
+    }
+
+    @Test
+    void testResultCacheStatistics() {
+        engine.clearResultCache();
+        engine.getResultCache().resetStats();
+        engine.evaluate("x * 3", Map.of("x", 2));
+        engine.evaluate("x * 3", Map.of("x", 2));
+        assertEquals(1, engine.getResultCache().getHitCount());
+        assertEquals(1, engine.getResultCache().getMissCount());
+    }
+
+    @Test
+    void testNullResultsAreReturned() {
+        engine.registerFunction("nothing", (interpreter, args, type) -> null, null, null, null, true);
+        assertNull(engine.evaluate("nothing(x)", Map.of("x", 1)));
+        assertNull(engine.evaluate("nothing(x)", Map.of("x", 1)));
+    }
+
+    @Test
+    void testRunawayRecursionIsAborted() {
+        Parser.Expression recurse = new Parser(new Lexer("recurse(1)").scanTokens()).parse();
+        engine.registerFunction("recurse", (interpreter, args, type) -> interpreter.interpret(recurse));
+        assertThrows(ExpressionTimeoutException.class, () -> engine.evaluate("recurse(x)", Map.of("x", 1)));
+
+        engine.setMaxRecursionDepth(0);
+        engine.setMaxEvaluationSteps(500);
+        assertThrows(ExpressionTimeoutException.class, () -> engine.evaluate("recurse(x)", Map.of("x", 2)));
+        assertEquals(3.0, engine.evaluate("x + 1", Map.of("x", 2)));
+    }
+
+    @Test
+    void testLongOperatorChainsAreNotDepthLimited() {
+        String chain = "x" + " + x".repeat(150);
+        assertEquals(151.0, engine.evaluate(chain, Map.of("x", 1)));
+        engine.setCompilationEnabled(true);
+        assertEquals(302.0, engine.evaluate(chain, Map.of("x", 2)));
+    }
+
+    @Test
+    void testNumericPathCountsSteps() {
+        String product = "x" + " * 2".repeat(30);
+        engine.setMaxEvaluationSteps(20);
+        assertThrows(ExpressionTimeoutException.class, () -> engine.evaluate(product, Map.of("x", 1)));
+        engine.setCompilationEnabled(true);
+        assertThrows(ExpressionTimeoutException.class, () -> engine.evaluate(product, Map.of("x", 2)));
+        engine.setMaxEvaluationSteps(100);
+        assertEquals(Math.pow(2, 31), engine.evaluate(product, Map.of("x", 2)));
+    }
+
+    @Test
+    void testEvaluationTimeoutIsCheckedCooperatively() {
+        Parser.Expression work = new Parser(new Lexer("1 + 2 * 3").scanTokens()).parse();
+        engine.registerFunction("spin", (interpreter, args, type) -> {
+            for (int i = 0; i < 50_000_000; i++) {
+                interpreter.interpret(work);
+            }
+            return 0;
+        });
+        engine.setEvaluationTimeout(20);
+        long start = System.nanoTime();
+        assertThrows(ExpressionTimeoutException.class, () -> engine.evaluate("spin() + x", Map.of("x", 1)));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+    }
+
+    @Test
+    void testCallSitesRebindAfterListChanges() {
+        engine.registerFunction("len", (interpreter, args, type) -> ((String) args.get(0)).length(),
+                null, new Class<?>[]{String.class}, Double.class);
+        assertEquals(5.0, engine.evaluate("len(x)", Map.of("x", "hello")));
+
+        engine.setFunctionBlacklist(List.of("len"));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluate("len(x)", Map.of("x", "other")));
+        engine.setFunctionBlacklist(List.of());
+        assertEquals(3.0, engine.evaluate("len(x)", Map.of("x", "abc")));
+    }
+}
@@ -0,0 +1,128 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionOptimizerTest {
+
+    private ExpressionEngine engine;
+    private ExpressionOptimizer optimizer;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+        optimizer = new ExpressionOptimizer(engine.getInterpreter());
+    }
+
+    private Parser.Expression parse(String expression) {
+        Parser.Expression parsed = new Parser(new Lexer(expression).scanTokens()).parse();
+        assertNotNull(parsed, expression);
+        return parsed;
+    }
+
+    @Test
+    void testFoldsConstantArithmetic() {
+        Parser.Expression optimized = optimizer.optimize(parse("(2 + 3) * 4 - -1"));
+        assertTrue(ExpressionOptimizer.isConstant(optimized));
+        assertEquals(21.0, ExpressionOptimizer.constantValue(optimized));
+    }
+
+    @Test
+    void testFoldsStringConcatenation() {
+        Parser.Expression optimized = optimizer.optimize(parse("'Level ' + 5"));
+        assertTrue(ExpressionOptimizer.isConstant(optimized));
+        assertEquals("Level 5", ExpressionOptimizer.constantValue(optimized));
+    }
+
+    @Test
+    void testKeepsVariableSubtrees() {
+        Parser.Expression optimized = optimizer.optimize(parse("x + 2 * 3"));
+        Parser.Expression.Binary binary = assertInstanceOf(Parser.Expression.Binary.class, optimized);
+        assertInstanceOf(Parser.Expression.Variable.class, binary.left);
+        assertTrue(ExpressionOptimizer.isConstant(binary.right));
+        assertEquals(6.0, ExpressionOptimizer.constantValue(binary.right));
+    }
+
+    @Test
+    void testPrunesConstantConditionalBranches() {
+        Parser.Expression optimized = optimizer.optimize(parse("if 1 > 2: 'a' elif x > 1: 'b' elif 1 > 0: 'c' else: 'd'"));
+        Parser.Expression.ConditionalChain chain = assertInstanceOf(Parser.Expression.ConditionalChain.class, optimized);
+        assertEquals(1, chain.branches.size());
+        assertEquals("c", ExpressionOptimizer.constantValue(chain.elseBranch));
+
+        Parser.Expression first = optimizer.optimize(parse("if 1 > 0: 'yes' else: 'no'"));
+        assertEquals("yes", ExpressionOptimizer.constantValue(first));
+    }
+
+    @Test
+    void testShortCircuitsLogicalAndTernary() {
+        Parser.Expression or = optimizer.optimize(parse("1 > 0 || x"));
+        assertEquals(true, ExpressionOptimizer.constantValue(or));
+        Parser.Expression and = optimizer.optimize(parse("1 > 0 && x"));
+        assertInstanceOf(Parser.Expression.Variable.class, and);
+        Parser.Expression ternary = optimizer.optimize(parse("2 > 1 ? x : y"));
+        assertEquals("x", assertInstanceOf(Parser.Expression.Variable.class, ternary).name.lexeme());
+    }
+
+    @Test
+    void testDoesNotFoldFailingExpressions() {
+        Parser.Expression optimized = optimizer.optimize(parse("1 / 0"));
+        assertFalse(ExpressionOptimizer.isConstant(optimized));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluate("1 / 0", Map.of()));
+    }
+
+    @Test
+    void testFoldsOnlyPureFunctions() {
+        AtomicInteger pureCalls = new AtomicInteger();
+        AtomicInteger impureCalls = new AtomicInteger();
+        engine.registerFunction("twice", (interpreter, args, type) -> {
+            pureCalls.incrementAndGet();
+            return ((Number) args.get(0)).doubleValue() * 2;
+        }, null, null, null, true);
+        engine.registerFunction("counter", (interpreter, args, type) -> {
+            impureCalls.incrementAndGet();
+            return ((Number) args.get(0)).doubleValue();
+        });
+
+        assertTrue(ExpressionOptimizer.isConstant(optimizer.optimize(parse("twice(4) + 1"))));
+        assertFalse(ExpressionOptimizer.isConstant(optimizer.optimize(parse("counter(4) + 1"))));
+        assertFalse(ExpressionOptimizer.isConstant(optimizer.optimize(parse("twice(x)"))));
+        assertEquals(0, impureCalls.get());
+
+        pureCalls.set(0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(9.0, engine.evaluate("twice(4) + 1", Map.of("x", i)));
+        }
+        assertEquals(1, pureCalls.get());
+    }
+
+    @Test
+    void testOptimizedMatchesUnoptimized() {
+        Map<String, Object> variables = Map.of("x", 10, "y", 4, "flag", true);
+        List<String> corpus = List.of(
+                "2 + 3 * 4",
+                "x + 2 * 3",
+                "!(1 > 2) && flag",
+                "0 || x",
+                "1 == 1 ? 'same' : 'different'",
+                "if 1 > 2: 'a' elif x > 5: 'b' else: 'c'",
+                "if 0 > 1: 'a' else: x * 2",
+                "add(2, 3) + x",
+                "'a' + 'b' + x"
+        );
+        for (String expression : corpus) {
+            engine.setOptimizationEnabled(false);
+            Object plain = engine.evaluate(expression, variables);
+            engine.setOptimizationEnabled(true);
+            Object optimized = engine.evaluate(expression, variables);
+            assertEquals(plain, optimized, expression);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionTemplateTest {
+
+    private ExpressionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+        engine.setVariable("xp", 40);
+    }
+
+    @Test
+    void testPlainTextHasNoSlots() {
+        ExpressionTemplate template = ExpressionTemplate.compile("Welcome back (again)!");
+        assertFalse(template.hasExpressions());
+        assertEquals("Welcome back (again)!", template.render(engine, null));
+    }
+
+    @Test
+    void testRendersSlotsCaseInsensitively() {
+        ExpressionTemplate template = ExpressionTemplate.compile("Need EXPR(100 - xp) xp, expression(xp * 2) total, expr('a')");
+        assertEquals(List.of("100 - xp", "xp * 2", "'a'"), template.getExpressions());
+        assertEquals("Need 60.0 xp, 80.0 total, a", template.render(engine, null));
+    }
+
+    @Test
+    void testNestedParenthesesAndQuotes() {
+        ExpressionTemplate template = ExpressionTemplate.compile("[EXPR(add(xp, (1 + 1)) * 2)] EXPR(':)' + '(')");
+        assertEquals(List.of("add(xp, (1 + 1)) * 2", "':)' + '('"), template.getExpressions());
+        assertEquals("[84.0] :)(", template.render(engine, null));
+    }
+
+    @Test
+    void testFailedSlotKeepsRemainingText() {
+        ExpressionTemplate template = ExpressionTemplate.compile("a EXPR(xp) b EXPR(1 / 0) c EXPR(xp)");
+        assertEquals("a 40 b EXPR(1 / 0) c EXPR(xp)", template.render(engine, null));
+        assertEquals(template.getSource(), ExpressionTemplate.compile(template.getSource()).render(null, null));
+    }
+
+    @Test
+    void testUnclosedSlotStaysLiteral() {
+        ExpressionTemplate template = ExpressionTemplate.compile("EXPR(xp is EXPR(xp)");
+        assertEquals(List.of("xp"), template.getExpressions());
+        assertEquals("EXPR(xp is 40", template.render(engine, VariableScope.empty()));
+    }
+
+    @Test
+    void testRendersWithScope() {
+        ExpressionTemplate template = ExpressionTemplate.compile("Level EXPR(level + 1)");
+        assertEquals("Level 6.0", template.render(engine, VariableScope.empty().with("level", 5)));
+        assertEquals("Level 10.0", template.render(engine, VariableScope.empty().with("level", 9)));
+    }
+}
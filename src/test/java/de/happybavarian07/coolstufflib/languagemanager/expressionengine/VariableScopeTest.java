@@ -0,0 +1,90 @@
+package de.happybavarian07.coolstufflib.languagemanager.expressionengine;
+
+import de.happybavarian07.coolstufflib.languagemanager.expressionengine.exceptions.ExpressionEngineException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariableScopeTest {
+
+    private ExpressionEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ExpressionEngine();
+    }
+
+    @Test
+    void testScopesAreCopyOnWrite() {
+        VariableScope base = VariableScope.empty().with("a", 1);
+        VariableScope extended = base.with("b", 2);
+        assertNull(base.lookup("b"));
+        assertEquals(2, extended.lookup("b").value());
+        assertSame(base, base.without("missing"));
+        assertTrue(extended.without("a").without("b").isEmpty());
+        assertTrue(VariableScope.empty().isEmpty());
+    }
+
+    @Test
+    void testChildHidesParent() {
+        VariableScope parent = VariableScope.empty().with("x", 1).with("y", 5);
+        VariableScope child = parent.child().with("x", 2);
+        assertEquals(2, child.lookup("x").value());
+        assertEquals(5, child.lookup("y").value());
+        assertEquals(1, child.without("x").lookup("x").value());
+        assertEquals(12.0, engine.evaluate("x + y * 2", child));
+    }
+
+    @Test
+    void testOverlayFallsThroughWithoutMutatingEngine() {
+        engine.setVariable("base", 10);
+        engine.setVariable("shared", 1);
+        VariableScope overlay = VariableScope.empty().with("shared", 5);
+
+        assertEquals(15.0, engine.evaluate("base + shared", overlay));
+        assertEquals(11.0, engine.evaluate("base + shared", VariableScope.empty()));
+        assertEquals(1, engine.peekVariable("shared"));
+
+        engine.evaluate("let local = 3", overlay);
+        assertFalse(engine.getInterpreter().hasVariable("local"));
+        assertNull(overlay.lookup("local"));
+    }
+
+    @Test
+    void testScopedParseWithoutScopeUsesFrame() {
+        engine.setVariable("base", 2);
+        assertEquals(6.0, engine.parse("let doubled = base * 3", Object.class, null));
+        assertFalse(engine.getInterpreter().hasVariable("doubled"));
+        engine.parse("let kept = base", Object.class);
+        assertTrue(engine.getInterpreter().hasVariable("kept"));
+    }
+
+    @Test
+    void testUsesApplyPerEvaluation() {
+        VariableScope overlay = VariableScope.empty().with("once", 4, 1);
+        assertEquals(4, engine.parse("once", Object.class, overlay));
+        assertEquals(4, engine.parse("once", Object.class, overlay));
+        assertThrows(ExpressionEngineException.class, () -> engine.evaluate("once + once", overlay));
+    }
+
+    @Test
+    void testFrameDoesNotConsumeEngineUses() {
+        engine.getInterpreter().setVariable("limited", 7, 1);
+        VariableScope overlay = VariableScope.empty().with("other", 1);
+
+        assertEquals(8.0, engine.evaluate("limited + other", overlay));
+        assertTrue(engine.getInterpreter().hasVariable("limited", true));
+        assertEquals(7, engine.getInterpreter().getVariable("limited"));
+        assertFalse(engine.getInterpreter().hasVariable("limited", true));
+    }
+
+    @Test
+    void testResultCacheSeparatesOverlays() {
+        VariableScope first = VariableScope.empty().with("level", 2);
+        VariableScope second = VariableScope.empty().with("level", 3);
+        assertEquals(20.0, engine.evaluate("level * 10", first));
+        assertEquals(30.0, engine.evaluate("level * 10", second));
+        assertEquals(20.0, engine.evaluate("level * 10", first));
+    }
+}
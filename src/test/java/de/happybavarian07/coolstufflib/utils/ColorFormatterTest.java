@@ -0,0 +1,90 @@
+package de.happybavarian07.coolstufflib.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColorFormatterTest {
+
+    @Test
+    void testTranslatesColorCodes() {
+        assertEquals("§aGreen §lBold §rReset", ColorFormatter.translate("&aGreen &LBold &rReset"));
+        assertEquals("Tom & Jerry &z", ColorFormatter.translate("Tom & Jerry &z"));
+        assertEquals("trailing &", ColorFormatter.translate("trailing &"));
+    }
+
+    @Test
+    void testTranslatesHexColors() {
+        assertEquals("§x§f§f§8§8§0§0Orange", ColorFormatter.translate("&#FF8800Orange"));
+        assertEquals("§x§1§2§3§a§b§cText §aGreen", ColorFormatter.translate("&#123abcText &aGreen"));
+        assertEquals("&#12G456", ColorFormatter.translate("&#12G456"));
+        assertEquals("&#123", ColorFormatter.translate("&#123"));
+    }
+
+    @Test
+    void testReturnsTextWithoutCodesUnchanged() {
+        String text = "No colours here";
+        assertSame(text, ColorFormatter.translate(text));
+    }
+
+    @Test
+    void testFormatInsertsTranslatedPrefix() {
+        assertEquals("§8[§6Lib§8] §aSaved §8[§6Lib§8]",
+                ColorFormatter.format("%prefix% &aSaved %prefix%", "&8[&6Lib&8]"));
+        assertEquals("§aNo prefix", ColorFormatter.format("&aNo prefix", "&8[&6Lib&8]"));
+    }
+
+    @Test
+    void testFormatDependsOnPrefix() {
+        assertEquals("§aA §fText", ColorFormatter.format("%prefix% &fText", "&aA"));
+        assertEquals("§bB §fText", ColorFormatter.format("%prefix% &fText", "&bB"));
+    }
+
+    @Test
+    void testRepeatedTranslationGivesEqualResult() {
+        String first = ColorFormatter.translate("&aSame &#00ff00text");
+        String second = ColorFormatter.translate("&aSame &#00ff00text");
+        assertEquals("§aSame §x§0§0§f§f§0§0text", first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testCachedTranslationReturnsSameResult() {
+        String first = ColorFormatter.translateCached("&aCached &#00ff00text");
+        assertEquals(ColorFormatter.translate("&aCached &#00ff00text"), first);
+        assertSame(first, ColorFormatter.translateCached("&aCached &#00ff00text"));
+    }
+
+    @Test
+    void testCachedFormatDependsOnPrefix() {
+        String first = ColorFormatter.formatCached("%prefix% &fCached", "&aA");
+        assertEquals("§aA §fCached", first);
+        assertSame(first, ColorFormatter.formatCached("%prefix% &fCached", "&aA"));
+        assertEquals("§bB §fCached", ColorFormatter.formatCached("%prefix% &fCached", "&bB"));
+    }
+
+    @Test
+    void testLastColorsColorReplacesFormats() {
+        assertEquals("§a§l", ColorFormatter.getLastColors("§cRed §aGreen §lBold"));
+        assertEquals("§b", ColorFormatter.getLastColors("§a§lBold §bAqua"));
+        assertEquals("§r", ColorFormatter.getLastColors("§a§lText§r"));
+        assertEquals("", ColorFormatter.getLastColors("Plain"));
+    }
+
+    @Test
+    void testLastColorsHex() {
+        assertEquals("§x§f§f§8§8§0§0§o", ColorFormatter.getLastColors("§aGreen §x§f§f§8§8§0§0Orange §oItalic"));
+        assertEquals("§f", ColorFormatter.getLastColors("§aGreen §x§f§fBroken"));
+    }
+
+    @Test
+    void testTrackerFollowsTextAppendedInPieces() {
+        ColorFormatter.LastColorTracker tracker = new ColorFormatter.LastColorTracker();
+        tracker.append("§aGreen §");
+        assertEquals("§a", tracker.getLastColors());
+        tracker.append("lBold ");
+        assertEquals("§a§l", tracker.getLastColors());
+        tracker.append("xx§cRed", 2, 7);
+        assertEquals("§c", tracker.getLastColors());
+    }
+}